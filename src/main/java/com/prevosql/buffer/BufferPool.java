@@ -0,0 +1,279 @@
+package com.prevosql.buffer;
+
+import com.prevosql.config.operator.PhysicalConfigParser;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Process-wide cache of file pages. Pages are identified by their file
+ * and page number and are read into a fixed number of frames. A page
+ * stays in its frame while it is pinned; unpinned pages are evicted
+ * with the clock algorithm when a frame is needed for another page.
+ *
+ * Every pin hands out its own read-only view of the frame, so several
+ * readers can use the same page at once. The channels of the files
+ * pages are read from are kept open until the file is invalidated.
+ */
+public class BufferPool {
+    private static BufferPool instance;
+
+    private final int capacity;
+    private final List<Frame> frames = new ArrayList<>();
+    private final Map<String, Map<Integer, Frame>> pages = new HashMap<>();
+    private final Map<ByteBuffer, Frame> pinned = new IdentityHashMap<>();
+    private final Map<String, FileChannel> channels = new HashMap<>();
+    private int hand = 0;
+    private long numHits = 0;
+    private long numMisses = 0;
+
+    private static final int PAGE_SIZE = 4096;
+    private static final Logger LOG = Logger.getLogger(BufferPool.class);
+
+    BufferPool(int capacity) {
+        this.capacity = Math.max(capacity, 1);
+    }
+
+    /**
+     * @return Global instance of BufferPool
+     */
+    public static synchronized BufferPool getInstance() {
+        if (instance == null) {
+            instance = new BufferPool(PhysicalConfigParser.getInstance().getNumBufferPoolPages());
+        }
+        return instance;
+    }
+
+    /**
+     * Pins a page, reading it into a frame if it is not cached. The
+     * page has to be unpinned once the caller is done with it.
+     *
+     * @param filename File the page belongs to
+     * @param pageId Page number in the file
+     * @return Read-only view of the page, positioned at its start and
+     * limited to the bytes read, or null if the page is past the end
+     * of the file or could not be read
+     */
+    public ByteBuffer pin(String filename, int pageId) {
+        String path = normalize(filename);
+        Frame frame;
+        boolean load = false;
+        synchronized (this) {
+            frame = lookup(path, pageId);
+            if (frame != null) {
+                numHits++;
+            } else {
+                numMisses++;
+                frame = victim();
+                if (frame == null) {
+                    // every frame is pinned, so read the page without caching it
+                    LOG.debug("Buffer pool is full, reading page " + pageId + " of " + path + " directly");
+                    ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+                    return read(path, pageId, page) > 0 ? page : null;
+                }
+                frame.assign(path, pageId);
+                pages.computeIfAbsent(path, k -> new HashMap<>()).put(pageId, frame);
+                load = true;
+            }
+            frame.pinCount++;
+            frame.referenced = true;
+        }
+
+        if (load) {
+            int size = read(path, pageId, frame.data);
+            frame.finishLoading(size);
+        } else {
+            frame.awaitLoading();
+        }
+
+        synchronized (this) {
+            if (frame.size <= 0) {
+                // past the end of the file; don't keep the page around
+                frame.pinCount--;
+                unmap(frame);
+                return null;
+            }
+            ByteBuffer view = frame.data.asReadOnlyBuffer();
+            view.clear();
+            view.limit(frame.size);
+            pinned.put(view, frame);
+            return view;
+        }
+    }
+
+    /**
+     * Unpins a page. Pages that were not handed out by pin are ignored.
+     *
+     * @param page View of the page returned by pin
+     */
+    public synchronized void unpin(ByteBuffer page) {
+        Frame frame = pinned.remove(page);
+        if (frame != null) {
+            frame.pinCount--;
+        }
+    }
+
+    /**
+     * Drops every cached page of a file and closes its channel. Must be
+     * called whenever the file is rewritten or deleted. Pages that are
+     * still pinned stay valid for their holders.
+     *
+     * @param filename File to drop
+     */
+    public synchronized void invalidate(String filename) {
+        String path = normalize(filename);
+        Map<Integer, Frame> filePages = pages.remove(path);
+        if (filePages != null) {
+            for (Frame frame : filePages.values()) {
+                frame.filename = null;
+            }
+        }
+        FileChannel channel = channels.remove(path);
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.fatal("Failed to close " + path, e);
+            }
+        }
+    }
+
+    /**
+     * @param filename File to get the size of
+     * @return Size of the file in bytes, or 0 if it cannot be opened
+     */
+    public long size(String filename) {
+        String path = normalize(filename);
+        try {
+            FileChannel channel = getChannel(path);
+            return channel == null ? 0 : channel.size();
+        } catch (IOException e) {
+            LOG.fatal("Failed to get size of " + path, e);
+            return 0;
+        }
+    }
+
+    /**
+     * @return Number of pins that found their page in the pool
+     */
+    public synchronized long getNumHits() {
+        return numHits;
+    }
+
+    /**
+     * @return Number of pins that had to read their page
+     */
+    public synchronized long getNumMisses() {
+        return numMisses;
+    }
+
+    private Frame lookup(String path, int pageId) {
+        Map<Integer, Frame> filePages = pages.get(path);
+        return filePages == null ? null : filePages.get(pageId);
+    }
+
+    /**
+     * Finds a frame to read a new page into. Allocates frames until
+     * the pool is full, and then sweeps the clock hand over the frames,
+     * giving recently used pages a second chance.
+     *
+     * @return A free frame, or null if every frame is pinned
+     */
+    private Frame victim() {
+        if (frames.size() < capacity) {
+            Frame frame = new Frame(ByteBuffer.allocateDirect(PAGE_SIZE));
+            frames.add(frame);
+            return frame;
+        }
+        for (int i = 0; i < 2 * capacity; i++) {
+            Frame frame = frames.get(hand);
+            hand = (hand + 1) % capacity;
+            if (frame.pinCount > 0) {
+                continue;
+            }
+            if (frame.referenced && frame.filename != null) {
+                frame.referenced = false;
+                continue;
+            }
+            unmap(frame);
+            return frame;
+        }
+        return null;
+    }
+
+    /**
+     * Removes a frame from the page table if it still holds a page
+     *
+     * @param frame Frame to remove
+     */
+    private void unmap(Frame frame) {
+        if (frame.filename == null) {
+            return;
+        }
+        Map<Integer, Frame> filePages = pages.get(frame.filename);
+        if (filePages != null && filePages.get(frame.pageId) == frame) {
+            filePages.remove(frame.pageId);
+            if (filePages.isEmpty()) {
+                pages.remove(frame.filename);
+            }
+        }
+        frame.filename = null;
+    }
+
+    /**
+     * Reads a page from disk
+     *
+     * @param path Absolute path of the file
+     * @param pageId Page number in the file
+     * @param page Buffer to read into
+     * @return Number of bytes read, or -1 if none could be read
+     */
+    private int read(String path, int pageId, ByteBuffer page) {
+        page.clear();
+        try {
+            FileChannel channel = getChannel(path);
+            if (channel == null) {
+                return -1;
+            }
+            long offset = (long) pageId * PAGE_SIZE;
+            while (page.hasRemaining()) {
+                if (channel.read(page, offset + page.position()) < 0) {
+                    break;
+                }
+            }
+            page.flip();
+            return page.limit() > 0 ? page.limit() : -1;
+
+        } catch (IOException e) {
+            LOG.fatal("Failed to read page " + pageId + " of " + path, e);
+            return -1;
+        }
+    }
+
+    /**
+     * @param path Absolute path of a file
+     * @return Cached channel of the file, opened if needed, or null if it cannot be opened
+     */
+    private synchronized FileChannel getChannel(String path) {
+        FileChannel channel = channels.get(path);
+        if (channel == null || !channel.isOpen()) {
+            try {
+                channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+                channels.put(path, channel);
+            } catch (IOException e) {
+                LOG.fatal("File " + path + " not found", e);
+                return null;
+            }
+        }
+        return channel;
+    }
+
+    private static String normalize(String filename) {
+        return Paths.get(filename).toAbsolutePath().normalize().toString();
+    }
+}
@@ -0,0 +1,59 @@
+package com.prevosql.buffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Slot of the buffer pool holding one page
+ */
+class Frame {
+    final ByteBuffer data;
+    String filename;
+    int pageId;
+    int pinCount = 0;
+    boolean referenced = false;
+    int size = 0;
+    private boolean loaded = true;
+
+    Frame(ByteBuffer data) {
+        this.data = data;
+    }
+
+    /**
+     * Gives the frame to a new page, which still has to be read
+     *
+     * @param filename File the page belongs to
+     * @param pageId Page number in the file
+     */
+    void assign(String filename, int pageId) {
+        this.filename = filename;
+        this.pageId = pageId;
+        synchronized (this) {
+            loaded = false;
+        }
+    }
+
+    /**
+     * Marks the page as read and wakes up everyone waiting for it
+     *
+     * @param size Number of bytes read
+     */
+    synchronized void finishLoading(int size) {
+        this.size = size;
+        loaded = true;
+        notifyAll();
+    }
+
+    /**
+     * Waits until the page has been read
+     */
+    synchronized void awaitLoading() {
+        while (!loaded) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
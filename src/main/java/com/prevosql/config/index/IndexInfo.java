@@ -17,7 +17,7 @@ public class IndexInfo {
      * @param numLeafPages Number of leaf pages in the index
      * @param isClustered Whether or not the index is clustered
      */
-    IndexInfo(String tableName, String searchKey, int numLeafPages, boolean isClustered) {
+    public IndexInfo(String tableName, String searchKey, int numLeafPages, boolean isClustered) {
         this.tableName = tableName;
         this.searchKey = searchKey;
         this.numLeafPages = numLeafPages;
@@ -1,9 +1,11 @@
 package com.prevosql.config.operator;
 
 /**
- * Models the two types of join operators
+ * Models the types of join operators
  */
 public enum JoinOperator {
     BLOCK_NESTED_LOOP,
-    SORT_MERGE
+    SORT_MERGE,
+    HYBRID_HASH,
+    INDEX_NESTED_LOOP
 }
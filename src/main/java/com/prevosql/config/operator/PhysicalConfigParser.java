@@ -1,5 +1,7 @@
 package com.prevosql.config.operator;
 
+import com.prevosql.tuple.io.PageLayout;
+
 /**
  * Models parameters set in configuration file
  */
@@ -31,4 +33,84 @@ public class PhysicalConfigParser {
     public int getNumSortBufferPages() {
         return 100;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return Number of buffer pages hybrid hash join keeps its hash table in
+     */
+    public int getNumHashJoinBufferPages() {
+        return 100;
+    }
+
+    /**
+     * @return Number of buffer pages sort-merge join keeps a group of equal right tuples in
+     */
+    public int getNumMergeJoinBufferPages() {
+        return 100;
+    }
+
+    /**
+     * @return Number of tuples operators pass to their parent per batch
+     */
+    public int getBatchSize() {
+        return 1024;
+    }
+
+    /**
+     * @return Number of threads external sort generates and merges runs with
+     */
+    public int getNumSortThreads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return Number of threads hash join builds and probes its partitions with
+     */
+    public int getNumJoinThreads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return Whether or not binary tuple files are read through memory mappings
+     */
+    public boolean useMemoryMappedReaders() {
+        return true;
+    }
+
+    /**
+     * @return Number of pages sequential scans read ahead in the background,
+     * or 0 to read pages synchronously
+     */
+    public int getNumPrefetchPages() {
+        return 8;
+    }
+
+    /**
+     * @return Number of pages binary tuple writers collect in a buffer
+     * before handing it to their write-behind thread
+     */
+    public int getNumWriteBufferPages() {
+        return 16;
+    }
+
+    /**
+     * @return Number of pages the shared buffer pool caches
+     */
+    public int getNumBufferPoolPages() {
+        return 1024;
+    }
+
+    /**
+     * @return Whether or not external sort writes its runs as compressed pages
+     */
+    public boolean useCompressedSpillFiles() {
+        return true;
+    }
+
+    /**
+     * @return Page layout query output files and relations sorted for clustered
+     * indexes are written in, ROW or PAX; record ids need a fixed number of tuples per page
+     */
+    public PageLayout getRelationPageLayout() {
+        return PageLayout.ROW;
+    }
+}
@@ -1,5 +1,7 @@
 package com.prevosql.config.statistics;
 
+import com.prevosql.tuple.io.ZoneMap;
+
 import java.util.HashMap;
 import java.util.Map;
 
@@ -10,6 +12,7 @@ public class RelationStatistic {
     private int numTuples;
     private int numAttributes;
     private Map<String, AttributeStatistic> attributeMap;
+    private ZoneMap zoneMap;
 
     /**
      * Constructs a relation statistic
@@ -52,6 +55,18 @@ public class RelationStatistic {
         return numAttributes;
     }
 
+    /**
+     * @return Per-page bounds of the relation's attributes, or null if
+     * the relation has none
+     */
+    public ZoneMap getZoneMap() {
+        return zoneMap;
+    }
+
+    void setZoneMap(ZoneMap zoneMap) {
+        this.zoneMap = zoneMap;
+    }
+
     /**
      * Adds an attribute statistic to the relation statistic
      *
@@ -4,7 +4,9 @@ import com.prevosql.config.catalog.DBCatalog;
 import com.prevosql.config.catalog.Table;
 import com.prevosql.config.Configuration;
 import com.prevosql.operator.physical.leaf.ScanPhysicalOperator;
-import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
+import com.prevosql.tuple.io.ZoneMap;
+import com.prevosql.tuple.io.reader.TupleReaderFactory;
 import org.apache.log4j.Logger;
 
 import java.io.FileNotFoundException;
@@ -59,6 +61,9 @@ public class StatsCollector {
      * @return Relation statistic about this table
      */
     public static RelationStatistic getStatistics(String tableName) {
+        if (statistics == null) {
+            return null;
+        }
         String fullName;
         if ((fullName = DBCatalog.getInstance().getTableName(tableName)) != null) {
             return statistics.get(fullName.toLowerCase());
@@ -67,7 +72,9 @@ public class StatsCollector {
     }
 
     /**
-     * Gets statistics about a particular logical table
+     * Gets statistics about a particular logical table. The statistics
+     * are taken from the relation's zone map, which is built along the
+     * way if it does not exist yet.
      *
      * @param table Logical table to get stats for
      * @return String representation of statistics about table
@@ -75,29 +82,21 @@ public class StatsCollector {
     private static String getStats(Table table) {
         StringBuilder sb = new StringBuilder(table.getName());
         HashMap<String, AttributeStatistic> attributeMap = new HashMap<>();
-        for (String attribute : table.getAttributeList()) {
-            attributeMap.put(attribute, new AttributeStatistic(Integer.MAX_VALUE, Integer.MIN_VALUE));
-        }
-        ScanPhysicalOperator so = new ScanPhysicalOperator(table.getName());
-        Tuple t;
-        int numTuples = 0;
-        while ((t = so.getNextTuple()) != null) {
+        ZoneMap zoneMap = TupleReaderFactory.getZoneMap(table.getFileName());
+        int numTuples;
+        if (zoneMap != null && zoneMap.getNumAttributes() == table.getAttributeList().size()) {
             for (String attribute : table.getAttributeList()) {
-                int columnIndex = table.getIndexForColumn(attribute);
-                int value = Integer.parseInt(t.get(columnIndex));
-                AttributeStatistic stat = attributeMap.get(attribute);
-                if (value < stat.getMinValue()) {
-                    stat.setMinValue(value);
-                }
-                if (value > stat.getMaxValue()) {
-                    stat.setMaxValue(value);
-                }
-                attributeMap.put(attribute, stat);
+                int index = table.getIndexForColumn(attribute);
+                attributeMap.put(attribute, new AttributeStatistic(zoneMap.getMin(index), zoneMap.getMax(index)));
             }
-            numTuples++;
+            numTuples = zoneMap.getNumTuples();
+        } else {
+            zoneMap = null;
+            numTuples = scanStats(table, attributeMap);
         }
 
         RelationStatistic r = new RelationStatistic(numTuples, attributeMap);
+        r.setZoneMap(zoneMap);
         statistics.put(table.getName(), r);
 
         sb.append(" ").append(numTuples);
@@ -111,4 +110,40 @@ public class StatsCollector {
 
         return sb.toString();
     }
+
+    /**
+     * Scans a table to find the bounds of its attributes
+     *
+     * @param table Logical table to scan
+     * @param attributeMap Map to put the statistic of each attribute in
+     * @return Number of tuples in the table
+     */
+    private static int scanStats(Table table, Map<String, AttributeStatistic> attributeMap) {
+        for (String attribute : table.getAttributeList()) {
+            attributeMap.put(attribute, new AttributeStatistic(Integer.MAX_VALUE, Integer.MIN_VALUE));
+        }
+        ScanPhysicalOperator so = new ScanPhysicalOperator(table.getName());
+        TupleBatch batch;
+        int numTuples = 0;
+        while ((batch = so.getNextBatch()) != null) {
+            int[] rows = batch.getSelection();
+            int numRows = batch.getNumSelected();
+            for (String attribute : table.getAttributeList()) {
+                int[] column = batch.getColumn(table.getIndexForColumn(attribute));
+                AttributeStatistic stat = attributeMap.get(attribute);
+                int min = stat.getMinValue();
+                int max = stat.getMaxValue();
+                for (int i = 0; i < numRows; i++) {
+                    int value = column[rows[i]];
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                stat.setMinValue(min);
+                stat.setMaxValue(max);
+            }
+            numTuples += numRows;
+        }
+        so.close();
+        return numTuples;
+    }
 }
@@ -1,5 +1,6 @@
 package com.prevosql.index;
 
+import com.prevosql.buffer.BufferPool;
 import com.prevosql.config.catalog.DBCatalog;
 import com.prevosql.index.entry.DataEntry;
 import com.prevosql.index.entry.RecordId;
@@ -11,6 +12,7 @@ import com.prevosql.index.node.TreeNode;
 import com.prevosql.operator.physical.leaf.ScanPhysicalOperator;
 import com.prevosql.operator.physical.unary.sort.ExternalSortPhysicalOperator;
 import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.io.ZoneMap;
 import com.prevosql.tuple.io.reader.TupleReader;
 import com.prevosql.tuple.io.reader.TupleReaderFactory;
 import net.sf.jsqlparser.schema.Column;
@@ -22,6 +24,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -86,7 +89,7 @@ public class Index {
                 tupleOffset = 0;
                 currPage = reader.getCurrPage();
             }
-            int searchKey = Integer.parseInt(t.get(column));
+            int searchKey = t.get(column);
             List<RecordId> keys;
             if (indexMap.get(searchKey) == null) {
                 keys = new ArrayList<>();
@@ -97,6 +100,7 @@ public class Index {
             indexMap.put(searchKey, keys);
             tupleOffset++;
         }
+        reader.close();
 
         // build leaf layer
         int numDataEntries = indexMap.size();
@@ -267,11 +271,17 @@ public class Index {
                 10
         );
 
-        Path source = exo.getFinalFilePath();
+        // sort runs may be compressed, so write the relation back out page by page.
+        // The sort only reads the relation once it is dumped, so the sorted copy
+        // goes next to it and replaces it when the sort is done.
         Path dest = Paths.get(DBCatalog.getInstance().getTable(tableName).getFileName());
+        Path sorted = Paths.get(dest.toString() + ".sorted");
         try {
-            Files.delete(dest);
-            Files.copy(source, dest);
+            exo.dump(sorted.toString());
+            exo.close();
+            BufferPool.getInstance().invalidate(dest.toString());
+            Files.move(sorted, dest, StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(Paths.get(ZoneMap.getSidecarName(dest.toString())));
 
         } catch (IOException e) {
             LOG.fatal(e);
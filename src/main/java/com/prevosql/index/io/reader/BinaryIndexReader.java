@@ -1,24 +1,25 @@
 package com.prevosql.index.io.reader;
 
+import com.prevosql.buffer.BufferPool;
 import com.prevosql.config.catalog.DBCatalog;
 import com.prevosql.index.entry.DataEntry;
 import com.prevosql.index.entry.RecordId;
 import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.io.reader.PageDecoder;
 import org.apache.log4j.Logger;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
+import java.io.File;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 
 /**
- * Reader for binary indexes
+ * Reader for binary indexes. Index pages and the relation pages
+ * that record ids point to are read through the buffer pool.
  */
 public class BinaryIndexReader {
-    private final ByteBuffer buffer;
-    private FileChannel channel;
+    private final String filename;
+    private static final BufferPool POOL = BufferPool.getInstance();
+    private static final ThreadLocal<PageDecoder> DECODER = ThreadLocal.withInitial(PageDecoder::new);
 
     private static final int PAGE_SIZE = 4096;
     private static final Logger LOG = Logger.getLogger(BinaryIndexReader.class);
@@ -30,17 +31,12 @@ public class BinaryIndexReader {
      * @param filename File to load index from
      */
     public BinaryIndexReader(String filename) {
-        try {
-            FileInputStream inputStream = new FileInputStream(filename);
-            channel = inputStream.getChannel();
-
-        } catch (FileNotFoundException e) {
-            LOG.fatal(e);
-            System.err.println("Failed to load index file: " + e.getMessage());
+        this.filename = filename;
+        if (!new File(filename).exists()) {
+            LOG.fatal("Index file " + filename + " not found");
+            System.err.println("Failed to load index file: " + filename + " (No such file or directory)");
             System.exit(1);
         }
-
-        buffer = ByteBuffer.allocate(PAGE_SIZE);
     }
 
     /**
@@ -50,20 +46,10 @@ public class BinaryIndexReader {
      * @return A data entry corresponding to this key, or the nearest one after
      */
     public DataEntry findKey(int key) {
-        try {
-            channel.read(buffer, 0);
-            buffer.flip();
-            int rootAddress = buffer.getInt();
-            buffer.clear();
-            return findKeyHelper(rootAddress, key);
-
-        } catch (IOException e) {
-            LOG.fatal(e);
-            System.err.println("Failed to read index file: " + e.getMessage());
-            System.exit(1);
-        }
-
-        return null;
+        ByteBuffer header = pinPage(filename, 0, "index");
+        int rootAddress = header.getInt();
+        POOL.unpin(header);
+        return findKeyHelper(rootAddress, key);
     }
 
     /**
@@ -75,9 +61,8 @@ public class BinaryIndexReader {
      * @return Data entry for this key, or the closest one
      */
     private DataEntry findKeyHelper(int rootAddress, int key) {
+        ByteBuffer buffer = pinPage(filename, rootAddress, "index");
         try {
-            channel.read(buffer, rootAddress * PAGE_SIZE);
-            buffer.flip();
             int nodeType = buffer.getInt();
 
             if (nodeType == 0) {
@@ -105,17 +90,18 @@ public class BinaryIndexReader {
                                 int tupleId = buffer.getInt();
                                 rids.add(new RecordId(pageId, tupleId));
                             }
-                            buffer.clear();
                             entry.setRecordIds(rids);
 //                            LOG.debug(entry);
                             return entry;
                         }
                     }
 
-                    buffer.clear();
-                    channel.read(buffer, (++rootAddress) * PAGE_SIZE);
+                    POOL.unpin(buffer);
+                    buffer = POOL.pin(filename, ++rootAddress);
 //                    LOG.debug("SCANNING THE NEXT PAGE");
-                    buffer.flip();
+                    if (buffer == null) {
+                        return null;
+                    }
                     nodeType = buffer.getInt();
                     int numEntries = buffer.getInt();
                     if (numEntries == 0 || nodeType != 0) {
@@ -141,7 +127,6 @@ public class BinaryIndexReader {
                         pos = numKeys * 4 + (addr - 1) * 4;
                     }
                     int addrOfNextKey = buffer.getInt(buffer.position() + pos);
-                    buffer.clear();
                     return findKeyHelper(addrOfNextKey, key);
 
                 } else {
@@ -151,53 +136,46 @@ public class BinaryIndexReader {
             }
             int pos = addr * 4;
             int addrOfNextKey = buffer.getInt(buffer.position() + pos);
-            buffer.clear();
             return findKeyHelper(addrOfNextKey, key);
 
-        } catch (IOException e) {
-            LOG.fatal(e);
-            System.err.println("Failed to read index file: " + e.getMessage());
-            System.exit(1);
+        } finally {
+            if (buffer != null) {
+                POOL.unpin(buffer);
+            }
         }
-
-        return null;
     }
 
     /**
-     * Loads a tuple from data page in table tableName using rid as an identifier
+     * Loads a tuple from data page in table tableName using rid as an identifier.
+     * The page may be in any layout the relation was written in.
      *
      * @param rid RecordID used to look up tuple
      * @param tableName Name of table to look up tuple in
      * @return Tuple located at rid in tableName
      */
     public static Tuple loadTuple(RecordId rid, String tableName) {
-        try {
-            FileInputStream fileInputStream = new FileInputStream(DBCatalog.getInstance().getTable(tableName).getFileName());
-            FileChannel channel = fileInputStream.getChannel();
-            ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
-            channel.read(buffer, rid.getPageId() * PAGE_SIZE);
-            buffer.flip();
-            int numAttributes = buffer.getInt();
-            buffer.getInt();
-            buffer.position(8 + rid.getTupleId() * 4 * numAttributes);
-            String[] args = new String[numAttributes];
-            for (int i = 0; i < numAttributes; i++) {
-                args[i] = "" + buffer.getInt();
-            }
-            return new Tuple(args);
-
-
-        } catch (FileNotFoundException e) {
-            LOG.fatal(e);
-            System.err.println("Failed to load relation file: " + e.getMessage());
-            System.exit(1);
+        String fileName = DBCatalog.getInstance().getTable(tableName).getFileName();
+        ByteBuffer buffer = pinPage(fileName, rid.getPageId(), "relation");
+        Tuple t = DECODER.get().readTuple(buffer, 0, rid.getTupleId());
+        POOL.unpin(buffer);
+        return t;
+    }
 
-        } catch (IOException e) {
-            LOG.fatal(e);
-            System.err.println("Failed to read relation file: " + e.getMessage());
+    /**
+     * Pins a page that has to exist, exiting if it cannot be read
+     *
+     * @param fileName File to read the page from
+     * @param pageId Page number in the file
+     * @param kind Kind of file, for the error message
+     * @return The pinned page
+     */
+    private static ByteBuffer pinPage(String fileName, int pageId, String kind) {
+        ByteBuffer buffer = POOL.pin(fileName, pageId);
+        if (buffer == null) {
+            LOG.fatal("Failed to read page " + pageId + " of " + fileName);
+            System.err.println("Failed to read " + kind + " file: " + fileName);
             System.exit(1);
         }
-
-        return null;
+        return buffer;
     }
 }
@@ -47,6 +47,7 @@ public class Query {
      */
     public void invoke() {
         root.dump();
+        root.close();
     }
 
     /**
@@ -57,6 +58,7 @@ public class Query {
      */
     public void invoke(String filename) {
         root.dump(filename);
+        root.close();
     }
 
     public PhysicalOperator getRoot() {
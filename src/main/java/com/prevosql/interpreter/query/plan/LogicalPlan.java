@@ -11,6 +11,7 @@ import com.prevosql.util.disjointset.DisjointSetColumn;
 import com.prevosql.util.disjointset.Element;
 import com.prevosql.util.disjointset.DisjointSetExpressionVisitor;
 import com.prevosql.operator.logical.unary.DuplicateEliminationLogicalOperator;
+import com.prevosql.operator.logical.unary.LimitLogicalOperator;
 import com.prevosql.operator.logical.unary.ProjectLogicalOperator;
 import com.prevosql.operator.logical.unary.SortLogicalOperator;
 import net.sf.jsqlparser.JSQLParserException;
@@ -253,6 +254,22 @@ public class LogicalPlan {
             root = new DuplicateEliminationLogicalOperator(temp);
         }
 
+        if (ps.getLimit() != null || ps.getOffset() != null) {
+            long limit = -1;
+            long offset = 0;
+            if (ps.getLimit() != null) {
+                Limit l = ps.getLimit();
+                if (!l.isLimitAll() && !l.isLimitNull()) {
+                    limit = l.getRowCount();
+                }
+                offset = l.getOffset();
+            }
+            if (ps.getOffset() != null) {
+                offset = ps.getOffset().getOffset();
+            }
+            LogicalOperator temp = root;
+            root = new LimitLogicalOperator(temp, limit, offset);
+        }
     }
 
     /**
@@ -3,6 +3,7 @@ package com.prevosql.interpreter.query.plan.visitor;
 import com.prevosql.operator.logical.nary.JoinLogicalOperator;
 import com.prevosql.operator.logical.leaf.ScanLogicalOperator;
 import com.prevosql.operator.logical.unary.DuplicateEliminationLogicalOperator;
+import com.prevosql.operator.logical.unary.LimitLogicalOperator;
 import com.prevosql.operator.logical.unary.ProjectLogicalOperator;
 import com.prevosql.operator.logical.unary.SelectLogicalOperator;
 import com.prevosql.operator.logical.unary.SortLogicalOperator;
@@ -159,6 +160,20 @@ public class LogicalPlanPrinterVisitor implements LogicalPlanVisitor {
         });
     }
 
+    /**
+     * Prints a LimitLogicalOperator
+     *
+     * @param limitLogicalOperator input operator
+     */
+    @Override
+    public void visit(LimitLogicalOperator limitLogicalOperator) {
+        initializeLine();
+        builder.append("Limit[").append(limitLogicalOperator.getLimit())
+                .append(", offset ").append(limitLogicalOperator.getOffset()).append("]\n");
+        limitLogicalOperator.getChild().accept(this);
+        level--;
+    }
+
     /**
      * Initializes the line for printing
      */
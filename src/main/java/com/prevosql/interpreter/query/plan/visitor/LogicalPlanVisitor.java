@@ -3,6 +3,7 @@ package com.prevosql.interpreter.query.plan.visitor;
 import com.prevosql.operator.logical.nary.JoinLogicalOperator;
 import com.prevosql.operator.logical.leaf.ScanLogicalOperator;
 import com.prevosql.operator.logical.unary.DuplicateEliminationLogicalOperator;
+import com.prevosql.operator.logical.unary.LimitLogicalOperator;
 import com.prevosql.operator.logical.unary.ProjectLogicalOperator;
 import com.prevosql.operator.logical.unary.SelectLogicalOperator;
 import com.prevosql.operator.logical.unary.SortLogicalOperator;
@@ -19,4 +20,6 @@ public interface LogicalPlanVisitor {
     void visit(SortLogicalOperator sortLogicalOperator);
 
     void visit(JoinLogicalOperator joinLogicalOperator);
+
+    void visit(LimitLogicalOperator limitLogicalOperator);
 }
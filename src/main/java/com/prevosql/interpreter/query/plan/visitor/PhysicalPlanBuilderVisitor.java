@@ -2,6 +2,7 @@ package com.prevosql.interpreter.query.plan.visitor;
 
 import com.prevosql.config.Configuration;
 import com.prevosql.config.catalog.DBCatalog;
+import com.prevosql.config.catalog.Table;
 import com.prevosql.config.index.IndexInfo;
 import com.prevosql.config.operator.PhysicalConfigParser;
 import com.prevosql.config.statistics.AttributeStatistic;
@@ -13,16 +14,24 @@ import com.prevosql.operator.logical.LogicalOperator;
 import com.prevosql.operator.logical.nary.JoinLogicalOperator;
 import com.prevosql.operator.logical.leaf.ScanLogicalOperator;
 import com.prevosql.operator.logical.unary.DuplicateEliminationLogicalOperator;
+import com.prevosql.operator.logical.unary.LimitLogicalOperator;
 import com.prevosql.operator.logical.unary.ProjectLogicalOperator;
 import com.prevosql.operator.logical.unary.SelectLogicalOperator;
 import com.prevosql.operator.logical.unary.SortLogicalOperator;
 import com.prevosql.operator.physical.binary.join.BlockNestedLoopJoinPhysicalOperator;
+import com.prevosql.operator.physical.binary.join.HybridHashJoinPhysicalOperator;
+import com.prevosql.operator.physical.binary.join.IndexNestedLoopJoinPhysicalOperator;
 import com.prevosql.operator.physical.binary.join.SortMergeJoinPhysicalOperator;
 import com.prevosql.operator.physical.leaf.IndexScanPhysicalOperator;
+import com.prevosql.operator.physical.leaf.LeafPhysicalOperator;
 import com.prevosql.operator.physical.leaf.ScanPhysicalOperator;
+import com.prevosql.operator.physical.unary.LimitPhysicalOperator;
 import com.prevosql.operator.physical.unary.SelectPhysicalOperator;
+import com.prevosql.operator.physical.unary.UnaryPhysicalOperator;
 import com.prevosql.operator.physical.unary.sort.ExternalSortPhysicalOperator;
+import com.prevosql.operator.physical.unary.sort.InMemorySortPhysicalOperator;
 import com.prevosql.operator.physical.unary.sort.SortPhysicalOperator;
+import com.prevosql.operator.physical.unary.sort.TopNSortPhysicalOperator;
 import com.prevosql.operator.physical.unary.DuplicateEliminationPhysicalOperator;
 import com.prevosql.operator.physical.unary.ProjectPhysicalOperator;
 import com.prevosql.util.disjointset.DisjointSet;
@@ -31,6 +40,7 @@ import com.prevosql.util.disjointset.Element;
 import com.prevosql.util.disjointset.DisjointSetExpressionVisitor;
 import com.prevosql.util.expression.ExpressionUtils;
 import com.prevosql.operator.physical.PhysicalOperator;
+import com.prevosql.tuple.io.ZoneMap;
 import net.sf.jsqlparser.expression.BinaryExpression;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.LongValue;
@@ -40,6 +50,7 @@ import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.statement.select.OrderByElement;
 
 import java.util.*;
+import java.util.function.IntPredicate;
 
 /**
  * Visitor to build physical query plan from logical query plan and configuration file
@@ -84,6 +95,7 @@ public class PhysicalPlanBuilderVisitor implements LogicalPlanVisitor {
     public void visit(SelectLogicalOperator selectLogicalOperator) {
         // need to separate the useful index stuff from the not-useful stuff. maybe with a DJS
         LogicalOperator child = selectLogicalOperator.getChild();
+        IntPredicate pageFilter = null;
 
         if (child instanceof ScanLogicalOperator) {
             DisjointSetExpressionVisitor visitor = new DisjointSetExpressionVisitor();
@@ -96,6 +108,7 @@ public class PhysicalPlanBuilderVisitor implements LogicalPlanVisitor {
             int numTuples = stat.getNumTuples();
             int numAttributes = stat.getNumAttributes();
             int fullScanCost = (int) Math.ceil((numAttributes * 4.0 * numTuples) / PAGE_SIZE);
+            ZoneMap zoneMap = stat.getZoneMap();
 
             double minimumCost = (double) Integer.MAX_VALUE;
             IndexResult minimumResult = null;
@@ -172,6 +185,14 @@ public class PhysicalPlanBuilderVisitor implements LogicalPlanVisitor {
                         continue; // this should never happen
                     }
 
+                    // a full scan only has to read the pages whose bounds overlap the range
+                    Table table = DBCatalog.getInstance().getTable(tableName);
+                    Integer attributeIndex = table == null ? null : table.getIndexForColumn(attributeName);
+                    if (zoneMap != null && attributeIndex != null) {
+                        IntPredicate filter = zoneMap.pageFilter(attributeIndex, lowerBound, upperBound);
+                        pageFilter = pageFilter == null ? filter : pageFilter.and(filter);
+                    }
+
                     IndexInfo info;
                     if ((info = Configuration.getIndexConfig().getIndex(tableName, attributeName)) != null) {
                         int numPossibleValues = upperBound - lowerBound + 1;
@@ -222,6 +243,9 @@ public class PhysicalPlanBuilderVisitor implements LogicalPlanVisitor {
         PhysicalPlanBuilderVisitor v1 = new PhysicalPlanBuilderVisitor();
         child.accept(v1);
         PhysicalOperator scanPhysicalOperator = v1.getResult();
+        if (pageFilter != null && scanPhysicalOperator instanceof ScanPhysicalOperator) {
+            ((ScanPhysicalOperator) scanPhysicalOperator).setPageFilter(pageFilter);
+        }
         root = new SelectPhysicalOperator(scanPhysicalOperator, selectLogicalOperator.getSelectCondition());
     }
 
@@ -234,14 +258,13 @@ public class PhysicalPlanBuilderVisitor implements LogicalPlanVisitor {
     public void visit(ProjectLogicalOperator projectOperator) {
         PhysicalPlanBuilderVisitor v1 = new PhysicalPlanBuilderVisitor();
         projectOperator.getChild().accept(v1);
-        root = new ProjectPhysicalOperator(v1.getResult(), projectOperator.getSelectItems());
+        ProjectPhysicalOperator project = new ProjectPhysicalOperator(v1.getResult(), projectOperator.getSelectItems());
+        ProjectionPushdownVisitor.pushDown(project);
+        root = project;
     }
 
     /**
-     * Creates a SortPhysicalOperator. If the config file specifies
-     * that external sorting should be used, creates an ExternalSortPhysicalOperator.
-     * If the file specifies that in-memory sorting should be used, creates
-     * an InMemorySortPhysicalOperator
+     * Creates a SortPhysicalOperator
      *
      * @param sortOperator Input SortLogicalOperator
      */
@@ -249,7 +272,7 @@ public class PhysicalPlanBuilderVisitor implements LogicalPlanVisitor {
     public void visit(SortLogicalOperator sortOperator) {
         PhysicalPlanBuilderVisitor v1 = new PhysicalPlanBuilderVisitor();
         sortOperator.getChild().accept(v1);
-        root = new ExternalSortPhysicalOperator(v1.getResult(), sortOperator.getOrderByElementList(), 100, false);
+        root = buildSort(v1.getResult(), sortOperator.getOrderByElementList());
     }
 
     /**
@@ -272,14 +295,10 @@ public class PhysicalPlanBuilderVisitor implements LogicalPlanVisitor {
         }
 
         LogicalOperator leftChild = operator.getChildren().get(0);
-        LogicalOperator rightChild = operator.getChildren().get(1);
         PhysicalPlanBuilderVisitor v1 = new PhysicalPlanBuilderVisitor(true);
-        PhysicalPlanBuilderVisitor v2 = new PhysicalPlanBuilderVisitor(true);
         leftChild.accept(v1);
-        rightChild.accept(v2);
         PhysicalOperator leftPhysicalOperator = v1.getResult();
-        PhysicalOperator rightPhysicalOperator = v2.getResult();
-        setJoinRoot(operator, leftPhysicalOperator, rightPhysicalOperator);
+        setJoinRoot(operator, leftPhysicalOperator);
     }
 
     /**
@@ -295,24 +314,78 @@ public class PhysicalPlanBuilderVisitor implements LogicalPlanVisitor {
     }
 
     /**
-     * Picks SMJ or BNLJ depending on whether the join condition uses equijoins
-     * or other expressions, respectively.
+     * Creates a LimitPhysicalOperator. A limited sort only has to keep
+     * the first offset + limit tuples, so if they fit in the sort buffer
+     * it becomes a TopNSortPhysicalOperator instead of a full sort.
+     *
+     * @param limitOperator Input LimitLogicalOperator
+     */
+    @Override
+    public void visit(LimitLogicalOperator limitOperator) {
+        LogicalOperator child = limitOperator.getChild();
+        long numTuples = limitOperator.getLimit() + limitOperator.getOffset();
+        PhysicalOperator limited = null;
+
+        if (child instanceof SortLogicalOperator && limitOperator.getLimit() >= 0) {
+            PhysicalPlanBuilderVisitor v1 = new PhysicalPlanBuilderVisitor();
+            ((SortLogicalOperator) child).getChild().accept(v1);
+            PhysicalOperator sortChild = v1.getResult();
+            long budget = (long) Configuration.getPhysicalConfig().getNumSortBufferPages() * PAGE_SIZE;
+            if (numTuples * 4 * Math.max(sortChild.getNumAttributes(), 1) <= budget) {
+                limited = new TopNSortPhysicalOperator(sortChild,
+                        ((SortLogicalOperator) child).getOrderByElementList(), (int) numTuples);
+            } else {
+                limited = buildSort(sortChild, ((SortLogicalOperator) child).getOrderByElementList());
+            }
+        }
+        if (limited == null) {
+            PhysicalPlanBuilderVisitor v1 = new PhysicalPlanBuilderVisitor();
+            child.accept(v1);
+            limited = v1.getResult();
+        }
+        root = new LimitPhysicalOperator(limited, limitOperator.getLimit(), limitOperator.getOffset());
+    }
+
+    /**
+     * Picks a hash join or SMJ if the join condition only uses equijoins,
+     * and BNLJ otherwise. Equijoins hash the right relation when the
+     * statistics say it fits in the hash join buffer, so both relations
+     * are read once and neither is sorted. Larger or unknown right
+     * relations are sorted and merged instead. Either is replaced by an index nested loop join if the right relation
+     * has an index on a join attribute and probing it costs less, in which
+     * case the right relation is only read through the index and no plan
+     * is built for it.
      *
      * @param joinLogicalOperator Input JoinLogicalOperator
      * @param leftPhysicalOperator PhysicalOperator which will be left child
-     * @param rightPhysicalOperator PhysicalOperator which will be right child
      */
-    private void setJoinRoot(JoinLogicalOperator joinLogicalOperator,
-                             PhysicalOperator leftPhysicalOperator, PhysicalOperator rightPhysicalOperator) {
+    private void setJoinRoot(JoinLogicalOperator joinLogicalOperator, PhysicalOperator leftPhysicalOperator) {
 
         BinaryExpression joinCondition = (BinaryExpression) joinLogicalOperator.getJoinCondition();
         List<BinaryExpression> allExpressions = ExpressionUtils.getAllExpressions(joinCondition);
         boolean allEquals = allExpressions.stream().allMatch(e -> e instanceof EqualsTo);
         PhysicalConfigParser config = Configuration.getPhysicalConfig();
+        IndexInfo joinIndex = chooseJoinIndex(joinLogicalOperator, leftPhysicalOperator, allExpressions, allEquals);
+
+        if (joinIndex != null) {
+            LogicalOperator rightChild = joinLogicalOperator.getChildren().get(1);
+            Expression innerCondition = rightChild instanceof SelectLogicalOperator
+                    ? ((SelectLogicalOperator) rightChild).getSelectCondition() : null;
+            root = new IndexNestedLoopJoinPhysicalOperator(leftPhysicalOperator, joinCondition, innerCondition,
+                    joinIndex, config.getNumOuterRelationBufferPages());
+            return;
+        }
 
-        if (allEquals) {
+        PhysicalPlanBuilderVisitor v2 = new PhysicalPlanBuilderVisitor(true);
+        joinLogicalOperator.getChildren().get(1).accept(v2);
+        PhysicalOperator rightPhysicalOperator = v2.getResult();
+
+        if (allEquals && fits(rightPhysicalOperator, config.getNumHashJoinBufferPages())) {
+            root = new HybridHashJoinPhysicalOperator(leftPhysicalOperator, rightPhysicalOperator,
+                    joinCondition, config.getNumHashJoinBufferPages());
+
+        } else if (allEquals) {
             // use SMJ
-            int numBufferPages = config.getNumSortBufferPages();
             SortPhysicalOperator leftSort, rightSort;
 
             SortExpressionVisitor s1 = new SortExpressionVisitor(leftPhysicalOperator, rightPhysicalOperator);
@@ -320,10 +393,11 @@ public class PhysicalPlanBuilderVisitor implements LogicalPlanVisitor {
             List<OrderByElement> leftElements = s1.getLeftElements();
             List<OrderByElement> rightElements = s1.getRightElements();
 
-            leftSort = new ExternalSortPhysicalOperator(leftPhysicalOperator, leftElements, numBufferPages, false);
-            rightSort = new ExternalSortPhysicalOperator(rightPhysicalOperator, rightElements, numBufferPages, false);
+            leftSort = buildSort(leftPhysicalOperator, leftElements);
+            rightSort = buildSort(rightPhysicalOperator, rightElements);
 
-            root = new SortMergeJoinPhysicalOperator(leftSort, rightSort, joinCondition);
+            root = new SortMergeJoinPhysicalOperator(leftSort, rightSort, joinCondition,
+                    config.getNumMergeJoinBufferPages());
 
         } else {
             // use BNLJ
@@ -331,4 +405,217 @@ public class PhysicalPlanBuilderVisitor implements LogicalPlanVisitor {
                     joinCondition, config.getNumOuterRelationBufferPages());
         }
     }
+
+    /**
+     * Costs an index nested loop join against the join setJoinRoot would
+     * otherwise pick, in pages read. The right relation has to be a base
+     * relation, possibly with a selection on it. Every left tuple costs a
+     * root to leaf traversal plus the pages of its matches: one per match
+     * for an unclustered index, and the pages the matches fill for a
+     * clustered one. The hash join reads the right relation once if it fits in
+     * the buffer, and SMJ reads and writes it about three times to sort it
+     * otherwise; BNLJ reads it once per block of the left relation.
+     *
+     * @param joinLogicalOperator Join being built
+     * @param left Left child of the join
+     * @param expressions Parts of the join condition
+     * @param allEquals Whether or not the join is an equijoin
+     * @return Cheapest index to join through, or null if scanning the right relation is cheaper
+     */
+    private IndexInfo chooseJoinIndex(JoinLogicalOperator joinLogicalOperator, PhysicalOperator left,
+                                      List<BinaryExpression> expressions, boolean allEquals) {
+        LogicalOperator rightChild = joinLogicalOperator.getChildren().get(1);
+        LogicalOperator rightLeaf = rightChild instanceof SelectLogicalOperator
+                ? ((SelectLogicalOperator) rightChild).getChild() : rightChild;
+        if (!(rightLeaf instanceof ScanLogicalOperator)) {
+            return null;
+        }
+        String tableName = DBCatalog.getInstance().getTableName(rightChild.getTableName());
+        if (tableName == null) {
+            tableName = rightChild.getTableName();
+        }
+        RelationStatistic stat = Configuration.getInstance().getStatistics(tableName);
+        double numOuterTuples = estimateSelectedTuples(left);
+        if (stat == null || numOuterTuples < 0) {
+            return null;
+        }
+
+        PhysicalConfigParser config = Configuration.getPhysicalConfig();
+        long tupleSize = 4L * stat.getNumAttributes();
+        double innerPages = Math.ceil((double) stat.getNumTuples() * tupleSize / PAGE_SIZE);
+        double scanCost;
+        if (allEquals) {
+            boolean fits = stat.getNumTuples() * tupleSize <= (long) config.getNumHashJoinBufferPages() * PAGE_SIZE;
+            scanCost = fits ? innerPages : 3 * innerPages;
+        } else {
+            double outerBytes = numOuterTuples * 4 * Math.max(left.getNumAttributes(), 1);
+            scanCost = Math.max(Math.ceil(outerBytes / ((double) config.getNumOuterRelationBufferPages() * PAGE_SIZE)), 1) * innerPages;
+        }
+
+        IndexInfo best = null;
+        double minimumCost = scanCost;
+        for (BinaryExpression expression : expressions) {
+            if (!(expression instanceof EqualsTo)
+                    || !(expression.getLeftExpression() instanceof Column)
+                    || !(expression.getRightExpression() instanceof Column)) {
+                continue;
+            }
+            Column leftColumn = (Column) expression.getLeftExpression();
+            Column rightColumn = (Column) expression.getRightExpression();
+            boolean leftInner = isColumnOf(leftColumn, tableName);
+            boolean rightInner = isColumnOf(rightColumn, tableName);
+            if (leftInner == rightInner) {
+                continue;
+            }
+            Column inner = leftInner ? leftColumn : rightColumn;
+            IndexInfo info = Configuration.getIndexConfig().getIndex(tableName, inner.getColumnName());
+            AttributeStatistic attributeStatistic = stat.getAttributeStatistic(inner.getColumnName());
+            if (info == null || attributeStatistic == null) {
+                continue;
+            }
+
+            long numValues = (long) attributeStatistic.getMaxValue() - attributeStatistic.getMinValue() + 1;
+            double matchesPerKey = (double) stat.getNumTuples() / Math.max(Math.min(numValues, stat.getNumTuples()), 1);
+            double matchCost = info.isClustered() ? Math.ceil(matchesPerKey * tupleSize / PAGE_SIZE) : matchesPerKey;
+            double cost = numOuterTuples * (ROOT_TO_LEAF_COST + matchCost);
+            if (cost < minimumCost) {
+                minimumCost = cost;
+                best = info;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param column Column to check
+     * @param tableName Name of a table
+     * @return Whether or not the column is qualified by that table or an alias of it
+     */
+    private static boolean isColumnOf(Column column, String tableName) {
+        if (column.getTable() == null || column.getTable().getName() == null) {
+            return false;
+        }
+        String columnTable = DBCatalog.getInstance().getTableName(column.getTable().getName());
+        if (columnTable == null) {
+            columnTable = column.getTable().getName();
+        }
+        return columnTable.equalsIgnoreCase(tableName);
+    }
+
+    /**
+     * Estimates the number of tuples an operator outputs, assuming the
+     * values of every attribute are spread evenly between its minimum and
+     * maximum. Unlike estimateNumTuples this is not a bound, so it is only
+     * used to cost plans.
+     *
+     * @param operator Operator to estimate
+     * @return Expected number of tuples, or -1 if unknown
+     */
+    private static double estimateSelectedTuples(PhysicalOperator operator) {
+        List<Expression> conditions = new ArrayList<>();
+        while (operator instanceof UnaryPhysicalOperator) {
+            if (operator instanceof SelectPhysicalOperator) {
+                conditions.add(((SelectPhysicalOperator) operator).getSelectCondition());
+            }
+            operator = ((UnaryPhysicalOperator) operator).getChild();
+        }
+        if (!(operator instanceof LeafPhysicalOperator)) {
+            return -1;
+        }
+        RelationStatistic stat = Configuration.getInstance().getStatistics(operator.getTableName());
+        if (stat == null) {
+            return -1;
+        }
+
+        double factor = 1;
+        if (operator instanceof IndexScanPhysicalOperator) {
+            IndexScanPhysicalOperator indexScan = (IndexScanPhysicalOperator) operator;
+            AttributeStatistic attributeStatistic = stat.getAttributeStatistic(indexScan.getSearchKey());
+            if (attributeStatistic != null) {
+                factor *= rangeFactor(attributeStatistic, indexScan.getLowkey(), indexScan.getHighkey());
+            }
+        }
+        for (Expression condition : conditions) {
+            DisjointSetExpressionVisitor visitor = new DisjointSetExpressionVisitor();
+            condition.accept(visitor);
+            for (Iterator<Element> iter = visitor.getDisjointSet().getIterator(); iter.hasNext();) {
+                Element element = iter.next();
+                AttributeStatistic attributeStatistic = stat.getAttributeStatistic(element.getIterator().next().getColumnName());
+                if (attributeStatistic == null) {
+                    continue;
+                }
+                int lowerBound = attributeStatistic.getMinValue();
+                int upperBound = attributeStatistic.getMaxValue();
+                if (element.hasEqualityConstraint()) {
+                    lowerBound = upperBound = element.getEqualityConstraint();
+                }
+                if (element.hasLowerBound()) {
+                    lowerBound = Math.max(lowerBound, element.getLowerBound() + (element.lowerBoundExclusive() ? 1 : 0));
+                }
+                if (element.hasUpperBound()) {
+                    upperBound = Math.min(upperBound, element.getUpperBound() - (element.upperBoundExclusive() ? 1 : 0));
+                }
+                factor *= rangeFactor(attributeStatistic, lowerBound, upperBound);
+            }
+        }
+        return factor * stat.getNumTuples();
+    }
+
+    /**
+     * @param attributeStatistic Statistics of an attribute
+     * @param lowerBound Lowest value in the range, inclusive
+     * @param upperBound Highest value in the range, inclusive
+     * @return Fraction of the attribute's values in the range
+     */
+    private static double rangeFactor(AttributeStatistic attributeStatistic, int lowerBound, int upperBound) {
+        double numValues = (double) attributeStatistic.getMaxValue() - attributeStatistic.getMinValue() + 1;
+        return Math.min(Math.max((upperBound - (double) lowerBound + 1) / numValues, 0), 1);
+    }
+
+    /**
+     * Picks an in-memory sort if the statistics say the child's output
+     * fits in the sort buffer, and an external sort otherwise. The
+     * external sort still sorts in memory if the estimate was too high.
+     *
+     * @param child Operator to sort
+     * @param orderByElements Elements to sort on
+     * @return Sort of child
+     */
+    private SortPhysicalOperator buildSort(PhysicalOperator child, List<OrderByElement> orderByElements) {
+        int numBufferPages = Configuration.getPhysicalConfig().getNumSortBufferPages();
+        if (fits(child, numBufferPages)) {
+            return new InMemorySortPhysicalOperator(child, orderByElements);
+        }
+        return new ExternalSortPhysicalOperator(child, orderByElements, numBufferPages);
+    }
+
+    /**
+     * @param operator Operator to estimate
+     * @param numPages Number of buffer pages
+     * @return Whether or not the statistics bound the operator's output
+     * to numPages of tuples
+     */
+    private static boolean fits(PhysicalOperator operator, int numPages) {
+        long numTuples = estimateNumTuples(operator);
+        return numTuples >= 0 && numTuples * 4 * operator.getNumAttributes() <= (long) numPages * PAGE_SIZE;
+    }
+
+    /**
+     * Bounds the number of tuples an operator outputs by the size of the
+     * relation it reads. Unary operators never output more tuples than
+     * they read.
+     *
+     * @param operator Operator to estimate
+     * @return Upper bound on the number of tuples, or -1 if unknown
+     */
+    private static long estimateNumTuples(PhysicalOperator operator) {
+        while (operator instanceof UnaryPhysicalOperator) {
+            operator = ((UnaryPhysicalOperator) operator).getChild();
+        }
+        if (!(operator instanceof LeafPhysicalOperator)) {
+            return -1;
+        }
+        RelationStatistic stat = Configuration.getInstance().getStatistics(operator.getTableName());
+        return stat == null ? -1 : stat.getNumTuples();
+    }
 }
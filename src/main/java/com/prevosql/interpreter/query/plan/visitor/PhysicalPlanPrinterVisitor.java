@@ -1,11 +1,15 @@
 package com.prevosql.interpreter.query.plan.visitor;
 
 import com.prevosql.operator.physical.binary.join.JoinPhysicalOperator;
+import com.prevosql.operator.physical.leaf.IndexProbePhysicalOperator;
 import com.prevosql.operator.physical.leaf.IndexScanPhysicalOperator;
 import com.prevosql.operator.physical.leaf.ScanPhysicalOperator;
 import com.prevosql.operator.physical.unary.SelectPhysicalOperator;
+import com.prevosql.operator.physical.unary.sort.InMemorySortPhysicalOperator;
 import com.prevosql.operator.physical.unary.sort.SortPhysicalOperator;
+import com.prevosql.operator.physical.unary.sort.TopNSortPhysicalOperator;
 import com.prevosql.operator.physical.unary.DuplicateEliminationPhysicalOperator;
+import com.prevosql.operator.physical.unary.LimitPhysicalOperator;
 import com.prevosql.operator.physical.unary.ProjectPhysicalOperator;
 
 import java.util.stream.Collectors;
@@ -51,6 +55,13 @@ public class PhysicalPlanPrinterVisitor implements PhysicalPlanVisitor {
         builder.append("IndexScan[").append(indexScanPhysicalOperator.getInfo()).append("]\n");
     }
 
+    @Override
+    public void visit(IndexProbePhysicalOperator indexProbePhysicalOperator) {
+        initializeLine();
+        builder.append("IndexProbe[").append(indexProbePhysicalOperator.getTableName())
+                .append(",").append(indexProbePhysicalOperator.getIndex().getSearchKey()).append("]\n");
+    }
+
     @Override
     public void visit(ProjectPhysicalOperator projectPhysicalOperator) {
         initializeLine();
@@ -68,7 +79,15 @@ public class PhysicalPlanPrinterVisitor implements PhysicalPlanVisitor {
     @Override
     public void visit(SortPhysicalOperator sortPhysicalOperator) {
         initializeLine();
-        builder.append("ExternalSort[");
+        if (sortPhysicalOperator instanceof TopNSortPhysicalOperator) {
+            builder.append("TopNSort[")
+                    .append(((TopNSortPhysicalOperator) sortPhysicalOperator).getNumTuples())
+                    .append(", ");
+        } else if (sortPhysicalOperator instanceof InMemorySortPhysicalOperator) {
+            builder.append("InMemorySort[");
+        } else {
+            builder.append("ExternalSort[");
+        }
         String res = sortPhysicalOperator
                 .getOrderByElements()
                 .stream()
@@ -100,6 +119,15 @@ public class PhysicalPlanPrinterVisitor implements PhysicalPlanVisitor {
         level--;
     }
 
+    @Override
+    public void visit(LimitPhysicalOperator limitPhysicalOperator) {
+        initializeLine();
+        builder.append("Limit[").append(limitPhysicalOperator.getLimit())
+                .append(", offset ").append(limitPhysicalOperator.getOffset()).append("]\n");
+        limitPhysicalOperator.getChild().accept(this);
+        level--;
+    }
+
     private void initializeLine() {
         for (int i = 0; i < level; i++) {
             builder.append("-");
@@ -1,11 +1,13 @@
 package com.prevosql.interpreter.query.plan.visitor;
 
 import com.prevosql.operator.physical.binary.join.JoinPhysicalOperator;
+import com.prevosql.operator.physical.leaf.IndexProbePhysicalOperator;
 import com.prevosql.operator.physical.leaf.IndexScanPhysicalOperator;
 import com.prevosql.operator.physical.leaf.ScanPhysicalOperator;
 import com.prevosql.operator.physical.unary.SelectPhysicalOperator;
 import com.prevosql.operator.physical.unary.sort.SortPhysicalOperator;
 import com.prevosql.operator.physical.unary.DuplicateEliminationPhysicalOperator;
+import com.prevosql.operator.physical.unary.LimitPhysicalOperator;
 import com.prevosql.operator.physical.unary.ProjectPhysicalOperator;
 
 /**
@@ -18,6 +20,8 @@ public interface PhysicalPlanVisitor {
 
     void visit(IndexScanPhysicalOperator indexScanPhysicalOperator);
 
+    void visit(IndexProbePhysicalOperator indexProbePhysicalOperator);
+
     void visit(ProjectPhysicalOperator projectPhysicalOperator);
 
     void visit(SortPhysicalOperator sortPhysicalOperator);
@@ -25,4 +29,6 @@ public interface PhysicalPlanVisitor {
     void visit(JoinPhysicalOperator joinPhysicalOperator);
 
     void visit(DuplicateEliminationPhysicalOperator duplicateEliminationPhysicalOperator);
+
+    void visit(LimitPhysicalOperator limitPhysicalOperator);
 }
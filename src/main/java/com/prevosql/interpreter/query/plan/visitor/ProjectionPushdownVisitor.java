@@ -0,0 +1,164 @@
+package com.prevosql.interpreter.query.plan.visitor;
+
+import com.prevosql.config.catalog.DBCatalog;
+import com.prevosql.config.catalog.Table;
+import com.prevosql.operator.physical.binary.join.JoinPhysicalOperator;
+import com.prevosql.operator.physical.leaf.IndexProbePhysicalOperator;
+import com.prevosql.operator.physical.leaf.IndexScanPhysicalOperator;
+import com.prevosql.operator.physical.leaf.ScanPhysicalOperator;
+import com.prevosql.operator.physical.unary.DuplicateEliminationPhysicalOperator;
+import com.prevosql.operator.physical.unary.LimitPhysicalOperator;
+import com.prevosql.operator.physical.unary.ProjectPhysicalOperator;
+import com.prevosql.operator.physical.unary.SelectPhysicalOperator;
+import com.prevosql.operator.physical.unary.sort.SortPhysicalOperator;
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+import net.sf.jsqlparser.statement.select.SelectExpressionItem;
+import net.sf.jsqlparser.statement.select.SelectItem;
+
+import java.util.*;
+
+/**
+ * Visitor that pushes projections down to the table scans of a
+ * physical query plan. Collects every column used by the plan and tells
+ * each scan which of its attributes are needed, so that PAX and
+ * compressed pages only decode those. Does nothing if the plan uses an
+ * expression it cannot see into.
+ */
+public class ProjectionPushdownVisitor implements PhysicalPlanVisitor {
+    private final List<Column> columns = new ArrayList<>();
+    private final List<ScanPhysicalOperator> scans = new ArrayList<>();
+    private boolean unknownExpression = false;
+
+    /**
+     * Pushes the columns used by a plan down to its scans
+     *
+     * @param projectPhysicalOperator Root of the plan
+     */
+    public static void pushDown(ProjectPhysicalOperator projectPhysicalOperator) {
+        ProjectionPushdownVisitor visitor = new ProjectionPushdownVisitor();
+        projectPhysicalOperator.accept(visitor);
+        visitor.setScanColumns();
+    }
+
+    @Override
+    public void visit(ScanPhysicalOperator scanPhysicalOperator) {
+        scans.add(scanPhysicalOperator);
+    }
+
+    @Override
+    public void visit(SelectPhysicalOperator selectPhysicalOperator) {
+        addColumns(selectPhysicalOperator.getSelectCondition());
+        selectPhysicalOperator.getChild().accept(this);
+    }
+
+    @Override
+    public void visit(IndexScanPhysicalOperator indexScanPhysicalOperator) {
+        // index scans read whole tuples through the index
+    }
+
+    @Override
+    public void visit(IndexProbePhysicalOperator indexProbePhysicalOperator) {
+        // probes read whole tuples through the index
+    }
+
+    @Override
+    public void visit(ProjectPhysicalOperator projectPhysicalOperator) {
+        for (SelectItem item : projectPhysicalOperator.getSelectItems()) {
+            if (item instanceof SelectExpressionItem) {
+                addColumns(((SelectExpressionItem) item).getExpression());
+            } else {
+                unknownExpression = true;
+            }
+        }
+        projectPhysicalOperator.getChild().accept(this);
+    }
+
+    @Override
+    public void visit(SortPhysicalOperator sortPhysicalOperator) {
+        for (OrderByElement element : sortPhysicalOperator.getOrderByElements()) {
+            addColumns(element.getExpression());
+        }
+        sortPhysicalOperator.getChild().accept(this);
+    }
+
+    @Override
+    public void visit(JoinPhysicalOperator joinPhysicalOperator) {
+        addColumns(joinPhysicalOperator.getJoinCondition());
+        joinPhysicalOperator.getLeftChild().accept(this);
+        joinPhysicalOperator.getRightChild().accept(this);
+    }
+
+    @Override
+    public void visit(DuplicateEliminationPhysicalOperator duplicateEliminationPhysicalOperator) {
+        duplicateEliminationPhysicalOperator.getChild().accept(this);
+    }
+
+    @Override
+    public void visit(LimitPhysicalOperator limitPhysicalOperator) {
+        limitPhysicalOperator.getChild().accept(this);
+    }
+
+    /**
+     * Collects the columns of an expression
+     *
+     * @param expression Expression to collect columns from, may be null
+     */
+    private void addColumns(Expression expression) {
+        if (expression == null || expression instanceof LongValue) {
+            return;
+        }
+        if (expression instanceof Column) {
+            columns.add((Column) expression);
+        } else if (expression instanceof BinaryExpression) {
+            addColumns(((BinaryExpression) expression).getLeftExpression());
+            addColumns(((BinaryExpression) expression).getRightExpression());
+        } else {
+            unknownExpression = true;
+        }
+    }
+
+    /**
+     * Sets the attributes every scan has to read. Columns that are
+     * not qualified by a table are read from every scan that has them.
+     */
+    private void setScanColumns() {
+        if (unknownExpression) {
+            return;
+        }
+        DBCatalog catalog = DBCatalog.getInstance();
+        for (ScanPhysicalOperator scan : scans) {
+            Table table = catalog.getTable(scan.getTableName());
+            if (table == null) {
+                continue;
+            }
+            Set<Integer> needed = new TreeSet<>();
+            boolean resolved = true;
+            for (Column column : columns) {
+                boolean qualified = column.getTable() != null && column.getTable().getName() != null;
+                if (qualified) {
+                    String tableName = catalog.getTableName(column.getTable().getName());
+                    if (tableName == null) {
+                        tableName = column.getTable().getName();
+                    }
+                    if (!tableName.equalsIgnoreCase(scan.getTableName())) {
+                        continue;
+                    }
+                }
+                Integer index = table.getIndexForColumn(column.getColumnName());
+                if (index != null) {
+                    needed.add(index);
+                } else if (qualified) {
+                    // can't tell which attribute this is, so read them all
+                    resolved = false;
+                }
+            }
+            if (resolved) {
+                scan.setColumns(needed.stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.prevosql.operator.logical.unary;
+
+import com.prevosql.interpreter.query.plan.visitor.LogicalPlanVisitor;
+import com.prevosql.operator.logical.LogicalOperator;
+
+/**
+ * Models a limit operator, which skips the first tuples of its child
+ * and then passes on at most a fixed number of them
+ */
+public class LimitLogicalOperator extends UnaryLogicalOperator {
+    private final long limit;
+    private final long offset;
+
+    /**
+     * Constructs a limit operator
+     *
+     * @param child Child operator to limit
+     * @param limit Maximum number of tuples to pass on, or -1 for no maximum
+     * @param offset Number of tuples to skip first
+     */
+    public LimitLogicalOperator(LogicalOperator child, long limit, long offset) {
+        super(child);
+        this.limit = limit;
+        this.offset = offset;
+    }
+
+    @Override
+    public void accept(LogicalPlanVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    /**
+     * @return Maximum number of tuples to pass on, or -1 for no maximum
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return Number of tuples to skip first
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public boolean equals(LogicalOperator other) {
+        return other instanceof LimitLogicalOperator
+                && getChild().equals(((LimitLogicalOperator) other).getChild())
+                && limit == ((LimitLogicalOperator) other).limit
+                && offset == ((LimitLogicalOperator) other).offset;
+    }
+}
@@ -1,7 +1,9 @@
 package com.prevosql.operator.physical;
 
+import com.prevosql.config.Configuration;
 import com.prevosql.interpreter.query.plan.visitor.PhysicalPlanVisitor;
 import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
 import com.prevosql.tuple.io.writer.TupleWriter;
 import com.prevosql.tuple.io.writer.TupleWriterFactory;
 import org.apache.log4j.Logger;
@@ -12,6 +14,7 @@ import org.apache.log4j.Logger;
 public abstract class PhysicalOperator {
     private String tableName;
     protected int numAttributes;
+    private TupleBatch rowBatch;
 
     protected static Logger LOG;
 
@@ -36,11 +39,52 @@ public abstract class PhysicalOperator {
      */
     public abstract Tuple getNextTuple();
 
+    /**
+     * Returns the next batch of valid tuples. The returned batch is only
+     * valid until the next call, since operators reuse their batches.
+     * Operators that do not process batches natively get this row adapter,
+     * which fills a batch by calling getNextTuple().
+     *
+     * @return Next batch with at least one selected tuple, or null if
+     * there are no tuples left
+     */
+    public TupleBatch getNextBatch() {
+        Tuple t = getNextTuple();
+        if (t == null) {
+            return null;
+        }
+        if (rowBatch == null || rowBatch.getNumAttributes() != t.length()) {
+            rowBatch = new TupleBatch(t.length(), getBatchSize());
+        }
+        rowBatch.clear();
+        rowBatch.add(t);
+        while (!rowBatch.isFull() && (t = getNextTuple()) != null) {
+            rowBatch.add(t);
+        }
+        return rowBatch;
+    }
+
     /**
      * Resets tuple output stream
      */
     public abstract void reset();
 
+    /**
+     * Releases the files, pages and threads held by this operator
+     * and its children. The operator must not be used afterwards.
+     */
+    public void close() {
+    }
+
+    /**
+     * Tells the operator that its parent needs no more tuples until
+     * it resets the operator. Operators stop reading their children and
+     * release the pages and buffers they can get back on a reset; the
+     * parent must not read from the operator before resetting it.
+     */
+    public void stop() {
+    }
+
     /**
      * Visits this operator in a PhysicalPlanVisitor
      *
@@ -53,10 +97,12 @@ public abstract class PhysicalOperator {
      */
     public void dump() {
         LOG.info("Dumping all available valid tuples");
-        Tuple t;
+        TupleBatch batch;
         long initialTime = System.nanoTime();
-        while ((t = getNextTuple()) != null) {
-            LOG.info(t);
+        while ((batch = getNextBatch()) != null) {
+            for (int i = 0; i < batch.getNumSelected(); i++) {
+                LOG.info(batch.getTuple(i));
+            }
         }
         long endingTime = System.nanoTime();
         LOG.info(String.format("SQL query took %f seconds", (endingTime - initialTime) / 1000000000.0));
@@ -69,23 +115,22 @@ public abstract class PhysicalOperator {
      */
     public void dump(String filename) {
         LOG.info("Dumping all available valid tuples to file " + filename);
-        Tuple t = getNextTuple();
+        TupleBatch batch = getNextBatch();
         TupleWriter tw;
-        if (t == null) {
+        if (batch == null) {
             LOG.info("No tuples returned from query");
             tw = TupleWriterFactory.getWriter(filename, 0);
-            tw.flush();
+            tw.close();
             return;
         }
-        tw = TupleWriterFactory.getWriter(filename, t.length());
-//        tw = TupleWriterFactory.getWriter(filename, 0);
+        tw = TupleWriterFactory.getWriter(filename, batch.getNumAttributes(),
+                Configuration.getPhysicalConfig().getRelationPageLayout());
         long initialTime = System.nanoTime();
-        while (t != null) {
-//            LOG.info(t);
-            tw.writeTuple(t);
-            t = getNextTuple();
+        while (batch != null) {
+            tw.writeBatch(batch);
+            batch = getNextBatch();
         }
-        tw.flush();
+        tw.close();
         long endingTime = System.nanoTime();
         LOG.info(String.format("SQL query took %f seconds", (endingTime - initialTime) / 1000000000.0));
     }
@@ -113,4 +158,11 @@ public abstract class PhysicalOperator {
     protected void setNumAttributes(int numAttributes) {
         this.numAttributes = numAttributes;
     }
+
+    /**
+     * @return Number of tuples to put in each batch
+     */
+    protected int getBatchSize() {
+        return Configuration.getPhysicalConfig().getBatchSize();
+    }
 }
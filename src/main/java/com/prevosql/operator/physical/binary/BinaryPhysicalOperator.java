@@ -22,6 +22,18 @@ public abstract class BinaryPhysicalOperator extends PhysicalOperator {
         this.setNumAttributes(leftChild.getNumAttributes() + rightChild.getNumAttributes());
     }
 
+    @Override
+    public void close() {
+        leftChild.close();
+        rightChild.close();
+    }
+
+    @Override
+    public void stop() {
+        leftChild.stop();
+        rightChild.stop();
+    }
+
     /**
      * @return Left child operator
      */
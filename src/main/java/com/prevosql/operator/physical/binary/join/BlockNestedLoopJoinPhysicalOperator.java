@@ -3,10 +3,14 @@ package com.prevosql.operator.physical.binary.join;
 import com.prevosql.config.operator.JoinOperator;
 import com.prevosql.interpreter.query.plan.visitor.PhysicalPlanVisitor;
 import com.prevosql.operator.physical.PhysicalOperator;
+import com.prevosql.operator.visitor.BatchExpressionVisitor;
 import com.prevosql.operator.visitor.PhysicalOperatorExpressionVisitor;
 import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
 import net.sf.jsqlparser.expression.Expression;
 
+import java.util.Arrays;
+
 /**
  * Implements the block-nested loop join algorithm
  */
@@ -18,6 +22,22 @@ public class BlockNestedLoopJoinPhysicalOperator extends JoinPhysicalOperator {
     private int index = 0;
     private Tuple saved;
 
+    // state for batch execution
+    private BatchExpressionVisitor batchCondition;
+    private TupleBatch outerBlock;
+    private TupleBatch leftBatch;
+    private int leftPos = 0;
+    private boolean leftExhausted = false;
+    private TupleBatch innerBatch;
+    private int innerPos = 0;
+    private int innerRow;
+    private int[] matches;
+    private int numMatches = 0;
+    private int matchPos = 0;
+    private TupleBatch output;
+    private boolean batchesFinished = false;
+    private boolean stopped = false;
+
     /**
      * Constructs a block-nested loop join operator with condition
      * joinCondition, using numPages pages as internal buffer pages
@@ -39,6 +59,9 @@ public class BlockNestedLoopJoinPhysicalOperator extends JoinPhysicalOperator {
 
     @Override
     public Tuple getNextTuple() {
+        if (stopped) {
+            return null;
+        }
         if (!joinedTableCreated) {
             createJoinedTable();
         }
@@ -111,6 +134,107 @@ public class BlockNestedLoopJoinPhysicalOperator extends JoinPhysicalOperator {
         return null;
     }
 
+    /**
+     * Joins a block of the outer relation against one inner row at a
+     * time, evaluating the join condition over the whole block with
+     * a BatchExpressionVisitor
+     *
+     * @return Next batch of joined tuples, or null
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        if (!joinedTableCreated) {
+            createJoinedTable();
+        }
+        if (batchesFinished || stopped) {
+            return null;
+        }
+        if (outerBlock == null) {
+            if (joinCondition != null) {
+                batchCondition = new BatchExpressionVisitor(joinCondition, catalog);
+            }
+            if (!readOuterBlockBatch()) {
+                batchesFinished = true;
+                return null;
+            }
+        }
+        if (output != null) {
+            output.clear();
+        }
+
+        while (true) {
+            if (matchPos < numMatches) {
+                if (output == null) {
+                    output = new TupleBatch(outerBlock.getNumAttributes() + innerBatch.getNumAttributes(), getBatchSize());
+                }
+                if (output.isFull()) {
+                    return output;
+                }
+                output.add(outerBlock, matches[matchPos++], innerBatch, innerRow);
+                continue;
+            }
+
+            if (innerBatch != null && innerPos < innerBatch.getNumSelected()) {
+                innerRow = innerBatch.getSelection()[innerPos++];
+                matchPos = 0;
+                if (batchCondition == null) {
+                    numMatches = outerBlock.getNumSelected();
+                    System.arraycopy(outerBlock.getSelection(), 0, matches, 0, numMatches);
+                } else {
+                    numMatches = batchCondition.filter(outerBlock, innerBatch, innerRow, matches);
+                }
+                continue;
+            }
+
+            innerBatch = rightChild.getNextBatch();
+            innerPos = 0;
+            if (innerBatch == null) {
+                if (!readOuterBlockBatch()) {
+                    batchesFinished = true;
+                    break;
+                }
+                rightChild.reset();
+            }
+        }
+
+        if (output == null || output.getNumSelected() == 0) {
+            return null;
+        }
+        return output;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        stopped = false;
+        index = 0;
+        isFinished = true;
+        outerBlock = null;
+        leftBatch = null;
+        leftPos = 0;
+        leftExhausted = false;
+        innerBatch = null;
+        innerPos = 0;
+        numMatches = 0;
+        matchPos = 0;
+        batchesFinished = false;
+    }
+
+    /**
+     * Drops the outer block instead of reading the rest of the outer
+     * relation
+     */
+    @Override
+    public void stop() {
+        stopped = true;
+        Arrays.fill(buffer, null);
+        outerBlock = null;
+        leftBatch = null;
+        innerBatch = null;
+        output = null;
+        super.stop();
+    }
+
     @Override
     public void accept(PhysicalPlanVisitor visitor) {
         visitor.visit(this);
@@ -140,4 +264,38 @@ public class BlockNestedLoopJoinPhysicalOperator extends JoinPhysicalOperator {
         numOuterBlocks++;
         return 1;
     }
+
+    /**
+     * Reads a block of numBufferPages size of the outer relation
+     * into memory, one child batch at a time
+     *
+     * @return Whether or not any tuples were read
+     */
+    private boolean readOuterBlockBatch() {
+        if (outerBlock != null) {
+            outerBlock.clear();
+        }
+        while (!leftExhausted && (outerBlock == null || !outerBlock.isFull())) {
+            if (leftBatch == null || leftPos == leftBatch.getNumSelected()) {
+                leftBatch = leftChild.getNextBatch();
+                leftPos = 0;
+                if (leftBatch == null) {
+                    leftExhausted = true;
+                    break;
+                }
+            }
+            if (outerBlock == null) {
+                outerBlock = new TupleBatch(leftBatch.getNumAttributes(), numTuples);
+                matches = new int[numTuples];
+            }
+            outerBlock.add(leftBatch, leftBatch.getSelection()[leftPos++]);
+        }
+
+        if (outerBlock == null || outerBlock.getNumSelected() == 0) {
+            return false;
+        }
+        LOG.info("Block " + numOuterBlocks + " of outer relation " + leftTableName + " read into buffer");
+        numOuterBlocks++;
+        return true;
+    }
 }
@@ -0,0 +1,719 @@
+package com.prevosql.operator.physical.binary.join;
+
+import com.prevosql.buffer.BufferPool;
+import com.prevosql.config.Configuration;
+import com.prevosql.config.operator.JoinOperator;
+import com.prevosql.interpreter.query.plan.visitor.PhysicalPlanVisitor;
+import com.prevosql.operator.physical.PhysicalOperator;
+import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.io.PageLayout;
+import com.prevosql.tuple.io.reader.TupleReader;
+import com.prevosql.tuple.io.reader.TupleReaderFactory;
+import com.prevosql.tuple.io.writer.TupleWriter;
+import com.prevosql.tuple.io.writer.TupleWriterFactory;
+import net.sf.jsqlparser.expression.Expression;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Implements the hybrid hash join algorithm for performing an equijoin
+ * on two relations. The right relation is hashed into partitions, and as
+ * many of them are kept in memory as fit in the buffer. The rest are
+ * written to temp files along with the left tuples that hash to them,
+ * and are joined partition by partition once the left relation has been
+ * read.
+ *
+ * With several threads and a right relation that fits in the buffer,
+ * both relations are instead hashed into one partition per thread. Each
+ * worker builds the hash table of its partition and probes it with the
+ * left tuples routed to it, and the joined tuples are passed to the
+ * parent through a bounded queue.
+ */
+public class HybridHashJoinPhysicalOperator extends JoinPhysicalOperator {
+    private final int maxTuples;
+    private final int numPartitions;
+    private final PageLayout spillLayout;
+    private final int numThreads;
+    private boolean built = false;
+    private boolean stopped = false;
+
+    // in-memory hash table of each partition, or null if it was spilled
+    private List<Map<Key, List<Tuple>>> tables;
+    private int[] sizes;
+    private int numInMemory = 0;
+    private TupleWriter[] buildWriters;
+    private TupleWriter[] probeWriters;
+    private String tempDirPath;
+
+    private Tuple probe;
+    private List<Tuple> matches;
+    private int matchIndex = 0;
+
+    // state for joining the spilled partitions, -1 while the left relation is read
+    private int partition = -1;
+    private TupleReader buildReader;
+    private TupleReader probeReader;
+    private Map<Key, List<Tuple>> spilledTable;
+    private boolean buildExhausted;
+
+    // state for joining on several threads, the partitions are null otherwise
+    private List<List<Tuple>> workerPartitions;
+    private List<Map<Key, List<Tuple>>> workerTables;
+    private List<BlockingQueue<List<Tuple>>> inputs;
+    private BlockingQueue<List<Tuple>> output;
+    private List<Thread> workers;
+    private Thread partitioner;
+    private volatile boolean cancelled = false;
+    private volatile RuntimeException failure;
+    private List<Tuple> outputBatch;
+    private int outputIndex = 0;
+    private int numFinished = 0;
+
+    private static final int PAGE_SIZE = 4096;
+    // every spilled partition has its own writer and write buffers
+    private static final int MAX_PARTITIONS = 16;
+    private static final List<Tuple> END = Collections.emptyList();
+
+    /**
+     * Constructs a hybrid hash join operator with condition joinCondition.
+     * The right relation is built into a hash table of at most numPages
+     * pages when the operator is first read.
+     *
+     * @param leftChild Left relation, probes the hash table
+     * @param rightChild Right relation, builds the hash table
+     * @param joinCondition Condition to join on
+     * @param numPages Number of buffer pages to use for the hash table
+     */
+    public HybridHashJoinPhysicalOperator(PhysicalOperator leftChild,
+                                          PhysicalOperator rightChild,
+                                          Expression joinCondition,
+                                          int numPages) {
+        this(leftChild, rightChild, joinCondition, numPages, Configuration.getPhysicalConfig().getNumJoinThreads());
+    }
+
+    /**
+     * Constructs a hybrid hash join operator that joins on numThreads
+     * threads when the right relation fits in the buffer
+     *
+     * @param leftChild Left relation, probes the hash table
+     * @param rightChild Right relation, builds the hash table
+     * @param joinCondition Condition to join on
+     * @param numPages Number of buffer pages to use for the hash table
+     * @param numThreads Number of threads to join with
+     */
+    public HybridHashJoinPhysicalOperator(PhysicalOperator leftChild,
+                                          PhysicalOperator rightChild,
+                                          Expression joinCondition,
+                                          int numPages,
+                                          int numThreads) {
+        super(leftChild, rightChild, joinCondition);
+        this.maxTuples = Math.max((numPages * PAGE_SIZE) / (4 * Math.max(rightChild.getNumAttributes(), 1)), 1);
+        this.numPartitions = Math.max(Math.min(numPages - 1, MAX_PARTITIONS), 2);
+        this.spillLayout = Configuration.getPhysicalConfig().useCompressedSpillFiles() ? PageLayout.COMPRESSED : PageLayout.ROW;
+        this.numThreads = Math.max(numThreads, 1);
+        setJoinType(JoinOperator.HYBRID_HASH);
+    }
+
+    /**
+     * Returns the next tuple in the joined relations
+     *
+     * @return The next tuple in the joined relations
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (stopped) {
+            return null;
+        }
+        build();
+        if (workerPartitions != null) {
+            return nextWorkerTuple();
+        }
+
+        while (true) {
+            while (matches != null && matchIndex < matches.size()) {
+                Tuple newTuple = new Tuple(probe, matches.get(matchIndex++));
+                if (satisfiesCondition(newTuple)) {
+                    return newTuple;
+                }
+            }
+            if (!nextProbe()) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Reads the left relation again. The hash tables of the partitions
+     * kept in memory and the spilled right partitions are reused; the
+     * left partitions are written again.
+     */
+    @Override
+    public void reset() {
+        stopWorkers();
+        leftChild.reset();
+        closeReaders();
+        if (probeWriters != null) {
+            for (int p = 0; p < numPartitions; p++) {
+                if (probeWriters[p] != null) {
+                    probeWriters[p].close();
+                    BufferPool.getInstance().invalidate(getTempFilePath("probe" + p));
+                    probeWriters[p] = null;
+                }
+            }
+        }
+        probe = null;
+        matches = null;
+        partition = -1;
+        outputBatch = null;
+        numFinished = 0;
+        stopped = false;
+    }
+
+    /**
+     * Stops both children and unpins the pages of the spilled partitions
+     */
+    @Override
+    public void stop() {
+        stopped = true;
+        stopWorkers();
+        closeReaders();
+        super.stop();
+    }
+
+    /**
+     * Drops the hash tables and deletes the temp files of this join
+     * along with the children
+     */
+    @Override
+    public void close() {
+        stopWorkers();
+        closeReaders();
+        if (tempDirPath != null) {
+            for (int p = 0; p < numPartitions; p++) {
+                if (buildWriters[p] != null) {
+                    buildWriters[p].close();
+                    BufferPool.getInstance().invalidate(getTempFilePath("build" + p));
+                }
+                if (probeWriters[p] != null) {
+                    probeWriters[p].close();
+                    BufferPool.getInstance().invalidate(getTempFilePath("probe" + p));
+                }
+            }
+            try {
+                FileUtils.deleteDirectory(new File(tempDirPath));
+            } catch (IOException e) {
+                LOG.warn("Failed to delete temp files of hash join", e);
+            }
+            tempDirPath = null;
+        }
+        tables = null;
+        spilledTable = null;
+        workerTables = null;
+        super.close();
+    }
+
+    @Override
+    public void accept(PhysicalPlanVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    /**
+     * Hashes the right relation into its partitions. Whenever the tuples
+     * in memory no longer fit in the buffer, the largest partition still
+     * in memory is written to a temp file, and so are the tuples that
+     * hash to it from then on. With several threads, the right relation is
+     * only partitioned between the workers, as long as it fits in the
+     * buffer. Does nothing if that has already been done.
+     */
+    private void build() {
+        if (built) {
+            return;
+        }
+        built = true;
+        createJoinedTable();
+        resolveJoinKeys();
+        LOG.info("Building hash table on relation " + rightChild.getTableName());
+
+        Tuple t;
+        List<Tuple> buffered = new ArrayList<>();
+        if (numThreads > 1) {
+            while (buffered.size() <= maxTuples && (t = rightChild.getNextTuple()) != null) {
+                buffered.add(t);
+            }
+            if (buffered.size() <= maxTuples) {
+                workerPartitions = new ArrayList<>();
+                workerTables = new ArrayList<>();
+                for (int w = 0; w < numThreads; w++) {
+                    workerPartitions.add(new ArrayList<>());
+                    workerTables.add(null);
+                }
+                for (Tuple b : buffered) {
+                    workerPartitions.get(partitionOf(new Key(b, rightKeys), numThreads)).add(b);
+                }
+                return;
+            }
+            LOG.info("Hash table on " + rightChild.getTableName() + " does not fit in memory, joining on one thread");
+        }
+
+        tables = new ArrayList<>();
+        for (int p = 0; p < numPartitions; p++) {
+            tables.add(new HashMap<>());
+        }
+        sizes = new int[numPartitions];
+        buildWriters = new TupleWriter[numPartitions];
+        probeWriters = new TupleWriter[numPartitions];
+
+        for (Tuple b : buffered) {
+            addBuildTuple(b);
+        }
+        while ((t = rightChild.getNextTuple()) != null) {
+            addBuildTuple(t);
+        }
+
+        for (TupleWriter tw : buildWriters) {
+            if (tw != null) {
+                tw.close();
+            }
+        }
+    }
+
+    /**
+     * Adds a right tuple to the hash table of its partition, or to its
+     * temp file if the partition was spilled
+     *
+     * @param t Right tuple to add
+     */
+    private void addBuildTuple(Tuple t) {
+        Key key = new Key(t, rightKeys);
+        int p = partitionOf(key, numPartitions);
+        Map<Key, List<Tuple>> table = tables.get(p);
+        if (table == null) {
+            buildWriters[p].writeTuple(t);
+            return;
+        }
+        table.computeIfAbsent(key, k -> new ArrayList<>()).add(t);
+        sizes[p]++;
+        if (++numInMemory > maxTuples) {
+            spillLargestPartition();
+        }
+    }
+
+    /**
+     * Writes the largest partition still in memory to a temp file and
+     * drops its hash table
+     */
+    private void spillLargestPartition() {
+        int largest = -1;
+        for (int p = 0; p < numPartitions; p++) {
+            if (tables.get(p) != null && (largest < 0 || sizes[p] > sizes[largest])) {
+                largest = p;
+            }
+        }
+        if (tempDirPath == null) {
+            createTempDir();
+        }
+        LOG.info("Hash table on " + rightChild.getTableName() + " does not fit in memory, spilling partition " + largest);
+
+        TupleWriter tw = TupleWriterFactory.getWriter(getTempFilePath("build" + largest), rightChild.getNumAttributes(), spillLayout);
+        for (List<Tuple> group : tables.get(largest).values()) {
+            for (Tuple t : group) {
+                tw.writeTuple(t);
+            }
+        }
+        buildWriters[largest] = tw;
+        tables.set(largest, null);
+        numInMemory -= sizes[largest];
+    }
+
+    /**
+     * Moves to the next left tuple that can have matches, and looks up
+     * the right tuples with its key. Left tuples of spilled partitions
+     * are written to the partition's temp file on the way. Once the left
+     * relation is used up, goes through the spilled partitions.
+     *
+     * @return Whether or not there is a next left tuple
+     */
+    private boolean nextProbe() {
+        if (partition < 0) {
+            Tuple t;
+            while ((t = leftChild.getNextTuple()) != null) {
+                Key key = new Key(t, leftKeys);
+                int p = partitionOf(key, numPartitions);
+                Map<Key, List<Tuple>> table = tables.get(p);
+                if (table != null) {
+                    setProbe(t, table.get(key));
+                    return true;
+                }
+                if (probeWriters[p] == null) {
+                    probeWriters[p] = TupleWriterFactory.getWriter(getTempFilePath("probe" + p), leftChild.getNumAttributes(), spillLayout);
+                }
+                probeWriters[p].writeTuple(t);
+            }
+            for (TupleWriter tw : probeWriters) {
+                if (tw != null) {
+                    tw.close();
+                }
+            }
+        }
+
+        while (partition < numPartitions) {
+            if (probeReader != null) {
+                Tuple t = probeReader.readNextTuple();
+                if (t != null) {
+                    setProbe(t, spilledTable.get(new Key(t, leftKeys)));
+                    return true;
+                }
+                if (!buildExhausted) {
+                    loadBuildChunk();
+                    probeReader.reset();
+                    continue;
+                }
+                closeReaders();
+            }
+            partition++;
+            if (partition < numPartitions && buildWriters[partition] != null && probeWriters[partition] != null) {
+                LOG.info("Joining spilled partition " + partition);
+                buildReader = TupleReaderFactory.getBinaryReader(getTempFilePath("build" + partition), false);
+                probeReader = TupleReaderFactory.getBinaryReader(getTempFilePath("probe" + partition), false);
+                loadBuildChunk();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds a hash table on as many tuples of the current spilled right
+     * partition as fit in the buffer. A partition that is larger than the
+     * buffer is joined one chunk at a time, reading its left partition
+     * once per chunk.
+     */
+    private void loadBuildChunk() {
+        spilledTable = new HashMap<>();
+        int n = 0;
+        Tuple t;
+        while ((t = buildReader.readNextTuple()) != null) {
+            spilledTable.computeIfAbsent(new Key(t, rightKeys), k -> new ArrayList<>()).add(t);
+            if (++n == maxTuples) {
+                LOG.info("Spilled partition " + partition + " does not fit in memory, joining it in chunks");
+                break;
+            }
+        }
+        buildExhausted = t == null;
+    }
+
+    /**
+     * Takes the next joined tuple from the output queue, starting the
+     * workers if they are not running yet
+     *
+     * @return The next tuple in the joined relations, or null once all
+     * workers have finished
+     * @throws IllegalStateException If a worker or the partitioning
+     * thread failed; the other threads are stopped first
+     */
+    private Tuple nextWorkerTuple() {
+        if (workers == null && numFinished == 0) {
+            startWorkers();
+        }
+        while (outputBatch == null || outputIndex == outputBatch.size()) {
+            if (numFinished == numThreads) {
+                workers = null;
+                partitioner = null;
+                return null;
+            }
+            List<Tuple> next;
+            try {
+                next = output.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            if (failure != null) {
+                RuntimeException e = failure;
+                stopWorkers();
+                throw new IllegalStateException("Hash join on " + rightChild.getTableName() + " failed", e);
+            }
+            if (next == END) {
+                numFinished++;
+            } else {
+                outputBatch = next;
+                outputIndex = 0;
+            }
+        }
+        return outputBatch.get(outputIndex++);
+    }
+
+    /**
+     * Starts one worker per partition, and a thread that reads the left
+     * relation and routes its tuples to the workers in batches
+     */
+    private void startWorkers() {
+        cancelled = false;
+        failure = null;
+        inputs = new ArrayList<>();
+        output = new ArrayBlockingQueue<>(2 * numThreads);
+        workers = new ArrayList<>();
+        for (int w = 0; w < numThreads; w++) {
+            inputs.add(new ArrayBlockingQueue<>(2));
+            int worker = w;
+            workers.add(new Thread(() -> probeWorkerPartition(worker), "hash-join-" + w));
+        }
+        partitioner = new Thread(this::partitionProbeSide, "hash-join-partitioner");
+        for (Thread thread : workers) {
+            thread.setDaemon(true);
+            thread.start();
+        }
+        partitioner.setDaemon(true);
+        partitioner.start();
+    }
+
+    /**
+     * Stops the workers and the partitioning thread, and throws away
+     * the tuples they had queued
+     */
+    private void stopWorkers() {
+        if (workers == null) {
+            return;
+        }
+        cancelled = true;
+        // the partitioner is not interrupted, since that would close the channels it reads from
+        for (Thread thread : workers) {
+            thread.interrupt();
+        }
+        List<Thread> threads = new ArrayList<>(workers);
+        threads.add(partitioner);
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                // make room so that a blocked thread can notice it was stopped
+                drainQueues();
+                try {
+                    thread.join(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        drainQueues();
+        workers = null;
+        partitioner = null;
+    }
+
+    /**
+     * Records the first failure of a worker or the partitioning thread
+     * and cancels the others. The failing thread still queues END so the
+     * parent wakes up and sees the failure.
+     *
+     * @param e Exception the thread failed with
+     */
+    private synchronized void fail(RuntimeException e) {
+        if (failure == null) {
+            failure = e;
+        }
+        cancelled = true;
+    }
+
+    private void drainQueues() {
+        output.clear();
+        for (BlockingQueue<List<Tuple>> input : inputs) {
+            input.clear();
+        }
+    }
+
+    /**
+     * Body of the partitioning thread. Reads the left relation and
+     * hands its tuples to the worker of their partition, a batch at a
+     * time, until the relation is used up or the join is stopped.
+     */
+    private void partitionProbeSide() {
+        int batchSize = getBatchSize();
+        List<List<Tuple>> batches = new ArrayList<>();
+        for (int w = 0; w < numThreads; w++) {
+            batches.add(new ArrayList<>(batchSize));
+        }
+        try {
+            Tuple t;
+            while (!cancelled && (t = leftChild.getNextTuple()) != null) {
+                int w = partitionOf(new Key(t, leftKeys), numThreads);
+                List<Tuple> batch = batches.get(w);
+                batch.add(t);
+                if (batch.size() == batchSize) {
+                    inputs.get(w).put(batch);
+                    batches.set(w, new ArrayList<>(batchSize));
+                }
+            }
+            for (int w = 0; w < numThreads && !cancelled; w++) {
+                if (!batches.get(w).isEmpty()) {
+                    inputs.get(w).put(batches.get(w));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            fail(e);
+            try {
+                output.put(END);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            for (int w = 0; w < numThreads && !cancelled; w++) {
+                try {
+                    inputs.get(w).put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Body of a worker. Builds the hash table of its partition of the
+     * right relation the first time it runs, then probes it with the
+     * left tuples routed to it and queues the joined tuples in batches.
+     *
+     * @param w Partition of the worker
+     */
+    private void probeWorkerPartition(int w) {
+        int batchSize = getBatchSize();
+        try {
+            Map<Key, List<Tuple>> table = workerTables.get(w);
+            if (table == null) {
+                table = new HashMap<>();
+                for (Tuple t : workerPartitions.get(w)) {
+                    table.computeIfAbsent(new Key(t, rightKeys), k -> new ArrayList<>()).add(t);
+                }
+                workerTables.set(w, table);
+                workerPartitions.set(w, Collections.emptyList());
+            }
+
+            List<Tuple> joined = new ArrayList<>(batchSize);
+            List<Tuple> batch;
+            while ((batch = inputs.get(w).take()) != END) {
+                for (Tuple l : batch) {
+                    List<Tuple> group = table.get(new Key(l, leftKeys));
+                    if (group == null) {
+                        continue;
+                    }
+                    for (Tuple r : group) {
+                        Tuple newTuple = new Tuple(l, r);
+                        if (!satisfiesCondition(newTuple)) {
+                            continue;
+                        }
+                        joined.add(newTuple);
+                        if (joined.size() == batchSize) {
+                            output.put(joined);
+                            joined = new ArrayList<>(batchSize);
+                        }
+                    }
+                }
+            }
+            if (!joined.isEmpty()) {
+                output.put(joined);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            fail(e);
+        } finally {
+            if (!cancelled || failure != null) {
+                try {
+                    output.put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param t Left tuple to join next
+     * @param group Right tuples with the same key as t, or null
+     */
+    private void setProbe(Tuple t, List<Tuple> group) {
+        probe = t;
+        matches = group;
+        matchIndex = 0;
+    }
+
+    /**
+     * Closes the readers of the spilled partition being joined
+     */
+    private void closeReaders() {
+        if (buildReader != null) {
+            buildReader.close();
+            buildReader = null;
+        }
+        if (probeReader != null) {
+            probeReader.close();
+            probeReader = null;
+        }
+        spilledTable = null;
+    }
+
+    /**
+     * @param key Join key of a tuple
+     * @param n Number of partitions
+     * @return Partition the tuple hashes to
+     */
+    private static int partitionOf(Key key, int n) {
+        // the hash tables use the low bits of the hash, so partition on the high ones
+        int h = key.hashCode() * 0x9E3779B9;
+        return Math.floorMod(h >>> 16, n);
+    }
+
+    private void createTempDir() {
+        try {
+            tempDirPath = Files.createTempDirectory(Paths.get(Configuration.getInstance().getTempDirPath()),
+                    leftChild.getTableName() + "-" + rightChild.getTableName()).toString();
+        } catch (IOException e) {
+            LOG.fatal(e);
+            System.err.println("Failed to create temporary directory for hash join: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param filename Name of a temp file of this join
+     * @return Absolute path to the temp file
+     */
+    private String getTempFilePath(String filename) {
+        return Paths.get(tempDirPath, filename).toAbsolutePath().toString();
+    }
+
+    /**
+     * Join key of a tuple, the values of its key attributes
+     */
+    private static final class Key {
+        private final int[] values;
+        private final int hash;
+
+        Key(Tuple t, int[] columns) {
+            values = new int[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                values[i] = t.get(columns[i]);
+            }
+            hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(values, ((Key) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
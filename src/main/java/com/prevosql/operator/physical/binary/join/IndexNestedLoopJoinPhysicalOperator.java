@@ -0,0 +1,252 @@
+package com.prevosql.operator.physical.binary.join;
+
+import com.prevosql.config.catalog.DBCatalog;
+import com.prevosql.config.index.IndexInfo;
+import com.prevosql.config.operator.JoinOperator;
+import com.prevosql.interpreter.query.plan.visitor.PhysicalPlanVisitor;
+import com.prevosql.operator.physical.PhysicalOperator;
+import com.prevosql.operator.physical.leaf.IndexProbePhysicalOperator;
+import com.prevosql.operator.visitor.SortMergeJoinExpressionVisitor;
+import com.prevosql.tuple.Tuple;
+import com.prevosql.util.expression.ExpressionUtils;
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Implements the index nested loop join algorithm for an equijoin whose
+ * right relation has a B+-tree index on its join attribute. The left
+ * relation is read a block at a time, and the distinct join keys of
+ * each block are looked up in the index in sorted order, so every key
+ * is probed once per block and the probes walk the index in order. The
+ * right child probes the index instead of scanning the right relation,
+ * so a selection on it is checked on the joined tuples instead.
+ */
+public class IndexNestedLoopJoinPhysicalOperator extends JoinPhysicalOperator {
+    private final int numTuples;
+    private final IndexInfo index;
+    private final IndexProbePhysicalOperator probe;
+    private final Expression condition;
+    private int leftKey = -1;
+    private boolean stopped = false;
+
+    private Iterator<Map.Entry<Integer, List<Tuple>>> keys;
+    private List<Tuple> outer;
+    private List<Tuple> inner;
+    private int outerIndex = 0;
+    private int innerIndex = 0;
+
+    private static final int PAGE_SIZE = 4096;
+
+    /**
+     * Constructs an index nested loop join operator with condition
+     * joinCondition, using numPages pages for blocks of the left relation.
+     * The right child probes the index for the keys of the left tuples.
+     *
+     * @param leftChild Left relation, probes the index
+     * @param joinCondition Condition to join on, equating a left attribute with the search key
+     * @param innerCondition Selection on the right relation, or null
+     * @param index Index on the right relation
+     * @param numPages Number of buffer pages to use for blocks of the left relation
+     * @throws IllegalArgumentException If the join condition does not
+     * equate a left attribute with the search key
+     */
+    public IndexNestedLoopJoinPhysicalOperator(PhysicalOperator leftChild,
+                                               Expression joinCondition,
+                                               Expression innerCondition,
+                                               IndexInfo index,
+                                               int numPages) {
+        super(leftChild, new IndexProbePhysicalOperator(index), joinCondition);
+        this.numTuples = Math.max((numPages * PAGE_SIZE) / (4 * Math.max(leftChild.getNumAttributes(), 1)), 1);
+        this.index = index;
+        this.probe = (IndexProbePhysicalOperator) rightChild;
+        this.condition = innerCondition == null ? joinCondition : new AndExpression(joinCondition, innerCondition);
+        setJoinType(JoinOperator.INDEX_NESTED_LOOP);
+        createJoinedTable();
+        resolveKeys();
+    }
+
+    /**
+     * Returns the next tuple in the joined relations
+     *
+     * @return The next tuple in the joined relations
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (stopped) {
+            return null;
+        }
+
+        while (true) {
+            while (outer != null && outerIndex < outer.size()) {
+                if (innerIndex == inner.size()) {
+                    innerIndex = 0;
+                    outerIndex++;
+                    continue;
+                }
+                Tuple newTuple = new Tuple(outer.get(outerIndex), inner.get(innerIndex++));
+                if (satisfiesCondition(newTuple)) {
+                    return newTuple;
+                }
+            }
+            if (!nextKey()) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Reads the left relation again. The right child is probed anew for
+     * every key, so it is not reset.
+     */
+    @Override
+    public void reset() {
+        leftChild.reset();
+        keys = null;
+        outer = null;
+        inner = null;
+        stopped = false;
+    }
+
+    /**
+     * Stops both children and drops the current block
+     */
+    @Override
+    public void stop() {
+        stopped = true;
+        keys = null;
+        outer = null;
+        inner = null;
+        super.stop();
+    }
+
+    @Override
+    public void accept(PhysicalPlanVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    /**
+     * @return Join condition along with the selection on the right
+     * relation, which has no operator of its own in this plan
+     */
+    @Override
+    public Expression getJoinCondition() {
+        return condition;
+    }
+
+    /**
+     * @return Index on the right relation
+     */
+    public IndexInfo getIndex() {
+        return index;
+    }
+
+    /**
+     * Moves to the next key of the current block that has matches in
+     * the index, reading the next block of the left relation when the
+     * current one is done
+     *
+     * @return Whether or not there is a next key
+     */
+    private boolean nextKey() {
+        while (true) {
+            if (keys == null || !keys.hasNext()) {
+                if (!readOuterBlock()) {
+                    return false;
+                }
+                continue;
+            }
+            Map.Entry<Integer, List<Tuple>> entry = keys.next();
+            List<Tuple> matches = probe(entry.getKey());
+            if (!matches.isEmpty()) {
+                outer = entry.getValue();
+                inner = matches;
+                outerIndex = 0;
+                innerIndex = 0;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reads a block of the left relation and groups its tuples by their
+     * join key, in key order
+     *
+     * @return Whether or not any tuples were read
+     */
+    private boolean readOuterBlock() {
+        outer = null;
+        keys = null;
+        TreeMap<Integer, List<Tuple>> block = new TreeMap<>();
+        int read = 0;
+        Tuple t;
+        while (read < numTuples && (t = leftChild.getNextTuple()) != null) {
+            block.computeIfAbsent(t.get(leftKey), k -> new ArrayList<>()).add(t);
+            read++;
+        }
+        if (read == 0) {
+            return false;
+        }
+        keys = block.entrySet().iterator();
+        return true;
+    }
+
+    /**
+     * Looks up the right tuples with a given search key
+     *
+     * @param key Value of the search key
+     * @return Right tuples with that value, possibly none
+     */
+    private List<Tuple> probe(int key) {
+        probe.probe(key);
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple t;
+        while ((t = probe.getNextTuple()) != null) {
+            tuples.add(t);
+        }
+        return tuples;
+    }
+
+    /**
+     * Finds the left attribute the join condition equates with the
+     * search key. The rest of the condition is checked on every joined
+     * tuple.
+     *
+     * @throws IllegalArgumentException If the join condition does not
+     * equate a left attribute with the search key
+     */
+    private void resolveKeys() {
+        int numLeft = leftChild.getNumAttributes();
+        Integer searchKey = DBCatalog.getInstance().getTable(index.getTableName()).getIndexForColumn(index.getSearchKey());
+
+        SortMergeJoinExpressionVisitor smj = new SortMergeJoinExpressionVisitor();
+        joinCondition.accept(smj);
+        for (BinaryExpression exp : smj.getExpressions()) {
+            int a = resolveColumn((Column) exp.getLeftExpression());
+            int b = resolveColumn((Column) exp.getRightExpression());
+            if (a > b) {
+                int tmp = a;
+                a = b;
+                b = tmp;
+            }
+            if (a >= 0 && a < numLeft && searchKey != null && b - numLeft == searchKey) {
+                leftKey = a;
+                break;
+            }
+        }
+        if (leftKey < 0) {
+            throw new IllegalArgumentException("Join condition " + joinCondition + " does not use the index on "
+                    + index.getTableName() + "." + index.getSearchKey());
+        }
+
+        checkCondition = !(condition instanceof BinaryExpression)
+                || ExpressionUtils.getAllExpressions((BinaryExpression) condition).size() > 1;
+    }
+}
@@ -2,10 +2,15 @@ package com.prevosql.operator.physical.binary.join;
 
 import com.prevosql.config.catalog.DBCatalog;
 import com.prevosql.config.catalog.JoinCatalog;
+import com.prevosql.config.catalog.Table;
 import com.prevosql.config.operator.JoinOperator;
 import com.prevosql.operator.physical.PhysicalOperator;
 import com.prevosql.operator.physical.binary.BinaryPhysicalOperator;
 import com.prevosql.operator.physical.unary.sort.SortPhysicalOperator;
+import com.prevosql.operator.visitor.PhysicalOperatorExpressionVisitor;
+import com.prevosql.operator.visitor.SortMergeJoinExpressionVisitor;
+import com.prevosql.tuple.Tuple;
+import com.prevosql.util.expression.ExpressionUtils;
 import net.sf.jsqlparser.expression.BinaryExpression;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
@@ -24,6 +29,9 @@ public abstract class JoinPhysicalOperator extends BinaryPhysicalOperator {
     boolean joinedTableCreated = false;
     boolean isFinished = true;
     JoinCatalog catalog;
+    int[] leftKeys;
+    int[] rightKeys;
+    boolean checkCondition;
 
     JoinPhysicalOperator(PhysicalOperator leftChild, PhysicalOperator rightChild, Expression joinCondition) {
         super(leftChild, rightChild);
@@ -47,6 +55,10 @@ public abstract class JoinPhysicalOperator extends BinaryPhysicalOperator {
     public String getJoinType() {
         if (joinType == JoinOperator.SORT_MERGE) {
             return "SMJ";
+        } else if (joinType == JoinOperator.HYBRID_HASH) {
+            return "HHJ";
+        } else if (joinType == JoinOperator.INDEX_NESTED_LOOP) {
+            return "INLJ";
         } else {
             return "BNLJ";
         }
@@ -145,12 +157,91 @@ public abstract class JoinPhysicalOperator extends BinaryPhysicalOperator {
     /**
      * Sets the type of this join operator
      *
-     * @param joinType A JoinOperator, either SORT_MERGE or BLOCK_NESTED_LOOP
+     * @param joinType A JoinOperator
      */
     void setJoinType(JoinOperator joinType) {
         this.joinType = joinType;
     }
 
+    /**
+     * Finds the index of a column in the tuples of this join. Must be
+     * called after the joined table has been created.
+     *
+     * @param col Input column
+     * @return The tuple index for the column, or -1 if it is not in the joined table
+     */
+    int resolveColumn(Column col) {
+        if (col.getTable() == null || col.getTable().getName() == null) {
+            return -1;
+        }
+        String tableName = col.getTable().getName();
+        String fullName;
+        if ((fullName = DBCatalog.getInstance().getTableName(tableName)) == null) {
+            fullName = tableName;
+        }
+        Table table = catalog.getTable(fullName);
+        if (table == null) {
+            return -1;
+        }
+        Integer index = table.getIndexForColumn(col.getColumnName());
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Finds the attributes of both relations that the join condition
+     * equates, as offsets into the left and right tuples, so that keys
+     * can be read without going through the catalog. checkCondition is
+     * set if any other part of the condition has to be checked on every
+     * joined tuple. Must be called after the joined table has been
+     * created.
+     */
+    void resolveJoinKeys() {
+        List<Integer> left = new ArrayList<>();
+        List<Integer> right = new ArrayList<>();
+        int numLeft = leftChild.getNumAttributes();
+        int numExpressions = 0;
+
+        if (joinCondition != null) {
+            SortMergeJoinExpressionVisitor smj = new SortMergeJoinExpressionVisitor();
+            joinCondition.accept(smj);
+            for (BinaryExpression exp : smj.getExpressions()) {
+                int a = resolveColumn((Column) exp.getLeftExpression());
+                int b = resolveColumn((Column) exp.getRightExpression());
+                if (a > b) {
+                    int tmp = a;
+                    a = b;
+                    b = tmp;
+                }
+                if (a >= 0 && a < numLeft && b >= numLeft) {
+                    left.add(a);
+                    right.add(b - numLeft);
+                }
+            }
+            numExpressions = joinCondition instanceof BinaryExpression
+                    ? ExpressionUtils.getAllExpressions((BinaryExpression) joinCondition).size()
+                    : Integer.MAX_VALUE;
+        }
+
+        leftKeys = left.stream().mapToInt(Integer::intValue).toArray();
+        rightKeys = right.stream().mapToInt(Integer::intValue).toArray();
+        checkCondition = leftKeys.length < numExpressions;
+    }
+
+    /**
+     * @param newTuple Joined tuple
+     * @return Whether or not the joined tuple satisfies the parts of
+     * the join condition that are not join keys, always true if
+     * checkCondition is not set
+     */
+    boolean satisfiesCondition(Tuple newTuple) {
+        if (!checkCondition) {
+            return true;
+        }
+        PhysicalOperatorExpressionVisitor ov = new PhysicalOperatorExpressionVisitor(newTuple, catalog);
+        getJoinCondition().accept(ov);
+        return ov.getResult();
+    }
+
     /**
      * @return The condition we are joining on
      */
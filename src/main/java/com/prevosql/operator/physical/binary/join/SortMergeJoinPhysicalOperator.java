@@ -1,29 +1,42 @@
 package com.prevosql.operator.physical.binary.join;
 
-import com.prevosql.config.catalog.DBCatalog;
 import com.prevosql.config.operator.JoinOperator;
 import com.prevosql.interpreter.query.plan.visitor.PhysicalPlanVisitor;
 import com.prevosql.operator.physical.unary.sort.SortPhysicalOperator;
-import com.prevosql.operator.visitor.PhysicalOperatorExpressionVisitor;
-import com.prevosql.operator.visitor.SortMergeJoinExpressionVisitor;
 import com.prevosql.tuple.Tuple;
-import net.sf.jsqlparser.expression.BinaryExpression;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.select.OrderByElement;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Implements the sort-merge join algorithm for performing an
- * equijoin on two relations
+ * equijoin on two relations. The right tuples that share a join key
+ * are buffered in memory while the left tuples with that key are
+ * joined with them, so each group is read from the right relation
+ * once. Groups too large for the buffer are read again from the sorted
+ * right relation for every left tuple instead.
  */
 public class SortMergeJoinPhysicalOperator extends JoinPhysicalOperator {
-    private final List<BinaryExpression> expressions;
-    private int rightIndex = 0;
-    private int origRightIndex = -1;
     private final SortPhysicalOperator leftChild;
     private final SortPhysicalOperator rightChild;
-    private Tuple savedLeft;
+    private final int maxGroupTuples;
+
+    private Tuple left;
+    private Tuple right;
+    private int nextRightIndex = 0;
+    private boolean started = false;
+
+    private final List<Tuple> group = new ArrayList<>();
+    private Tuple groupFirst;
+    private int groupStart = -1;
+    private int groupIndex = 0;
+    private boolean groupSpilled = false;
+
+    private static final int PAGE_SIZE = 4096;
 
     /**
      * Constructs a SMJ physical operator
@@ -31,14 +44,14 @@ public class SortMergeJoinPhysicalOperator extends JoinPhysicalOperator {
      * @param leftChild Left relation, sorted
      * @param rightChild Right relation, sorted
      * @param joinCondition Condition to join relations on
+     * @param numPages Number of buffer pages to keep a group of right tuples in
      */
-    public SortMergeJoinPhysicalOperator(SortPhysicalOperator leftChild, SortPhysicalOperator rightChild, Expression joinCondition) {
+    public SortMergeJoinPhysicalOperator(SortPhysicalOperator leftChild, SortPhysicalOperator rightChild,
+                                         Expression joinCondition, int numPages) {
         super(leftChild, rightChild, joinCondition);
         this.leftChild = leftChild;
         this.rightChild = rightChild;
-        SortMergeJoinExpressionVisitor smj = new SortMergeJoinExpressionVisitor();
-        joinCondition.accept(smj);
-        expressions = smj.getExpressions();
+        this.maxGroupTuples = Math.max((numPages * PAGE_SIZE) / (4 * Math.max(rightChild.getNumAttributes(), 1)), 1);
         setJoinType(JoinOperator.SORT_MERGE);
     }
 
@@ -49,165 +62,195 @@ public class SortMergeJoinPhysicalOperator extends JoinPhysicalOperator {
      */
     @Override
     public Tuple getNextTuple() {
-        Tuple l;
-        if (isFinished) {
-            isFinished = false;
-            l = leftChild.getNextTuple();
-        } else {
-            l = savedLeft;
-        }
-
-        Tuple r = rightChild.getNextTuple();
-
-        if (!joinedTableCreated) {
+        if (leftKeys == null) {
             createJoinedTable();
+            resolveSortKeys();
         }
-
-        if (r == null && l != null) {
-            rightChild.reset(origRightIndex);
-            r = rightChild.getNextTuple();
-            rightIndex = origRightIndex;
-            origRightIndex = -1;
-            l = leftChild.getNextTuple();
+        if (!started) {
+            started = true;
+            left = leftChild.getNextTuple();
+            right = nextRight();
         }
 
-        while (l != null && r != null) {
-            while (compareTuples(l, r) < 0) {
-                if (origRightIndex >= 0) {
-                    rightChild.reset(origRightIndex);
-                    r = rightChild.getNextTuple();
-                    rightIndex = origRightIndex;
-                    origRightIndex = -1;
-                    l = leftChild.getNextTuple();
-                    break;
-                }
-                l = leftChild.getNextTuple();
-            }
-
-            while (compareTuples(l, r) > 0) {
-                r = rightChild.getNextTuple();
-                rightIndex++;
-            }
-
-            while (compareTuples(l, r) == 0) {
-                if (l == null && r == null) {
-                    break;
-                }
-                if (origRightIndex < 0) {
-                    origRightIndex = rightIndex;
-                }
-                Tuple newTuple = new Tuple(l, r);
-                if (joinCondition == null) {
-                    rightIndex++;
-                    savedLeft = l;
+        while (left != null) {
+            Tuple r = nextGroupTuple();
+            if (r != null) {
+                Tuple newTuple = new Tuple(left, r);
+                if (satisfiesCondition(newTuple)) {
                     return newTuple;
                 }
+                continue;
+            }
 
-                PhysicalOperatorExpressionVisitor ov = new PhysicalOperatorExpressionVisitor(newTuple, catalog);
-                joinCondition.accept(ov);
-                if (ov.getResult()) {
-                    rightIndex++;
-                    savedLeft = l;
-                    return newTuple;
+            if (groupStart >= 0) {
+                // this left tuple has seen the whole group, move on to the next one
+                left = leftChild.getNextTuple();
+                if (left != null && compareTuples(left, groupFirst) == 0) {
+                    restartGroup();
+                } else {
+                    clearGroup();
                 }
-                r = rightChild.getNextTuple();
+                continue;
             }
 
-            if (origRightIndex >= 0) {
-                rightIndex = origRightIndex;
-                rightChild.reset(origRightIndex);
-                r = rightChild.getNextTuple();
-                l = leftChild.getNextTuple();
-                origRightIndex = -1;
+            if (right == null) {
+                break;
+            }
+            int val = compareTuples(left, right);
+            if (val < 0) {
+                left = leftChild.getNextTuple();
+            } else if (val > 0) {
+                right = nextRight();
+            } else {
+                readGroup();
             }
         }
 
-        isFinished = true;
         return null;
     }
 
+    /**
+     * Starts the join over from the first tuples of both relations
+     */
     @Override
-    public void accept(PhysicalPlanVisitor visitor) {
-        visitor.visit(this);
+    public void reset() {
+        super.reset();
+        started = false;
+        left = null;
+        right = null;
+        nextRightIndex = 0;
+        clearGroup();
     }
 
     /**
-     * Compares two tuples for use in sorting and merging based on
-     * join condition
-     *
-     * @param o1 First tuple to compare
-     * @param o2 Second tuple to compare
-     * @return 1 if o1 comes after o2, -1 if o2 comes after o1, 0 if o1 == o2 on join condition
+     * @return The next tuple of the sorted right relation, or null
      */
-    private int compareTuples(Tuple o1, Tuple o2) {
-        if (o1 == null && o2 == null) {
-            return 0;
-        } else if (o1 == null) {
-            return 1;
-        } else if (o2 == null) {
-            return -1;
+    private Tuple nextRight() {
+        Tuple t = rightChild.getNextTuple();
+        if (t != null) {
+            nextRightIndex++;
         }
+        return t;
+    }
 
-        if (o1.equals(o2)) {
-            return 0;
+    /**
+     * Reads the right tuples that join with the current left tuple into
+     * the group buffer, leaving right at the first tuple after them. If
+     * they do not fit, goes back to the start of the group so that it
+     * can be read from the right relation instead.
+     */
+    private void readGroup() {
+        groupStart = nextRightIndex - 1;
+        groupFirst = right;
+        groupSpilled = false;
+        group.clear();
+        while (right != null && compareTuples(left, right) == 0) {
+            if (group.size() == maxGroupTuples) {
+                LOG.info("Group of " + rightChild.getTableName() + " does not fit in "
+                        + maxGroupTuples + " tuples, reading it again for every match");
+                groupSpilled = true;
+                group.clear();
+                break;
+            }
+            group.add(right);
+            right = nextRight();
         }
+        restartGroup();
+    }
 
-        BinaryExpression exp = expressions.get(0);
-        Column leftColumn = (Column) exp.getLeftExpression();
-        Column rightColumn = (Column) exp.getRightExpression();
-
-        String leftColumnTable = leftColumn.getTable().getName();
-        String rightColumnTable = rightColumn.getTable().getName();
-
-        Tuple combined = new Tuple(o1, o2);
+    /**
+     * Goes back to the first tuple of the group for the next left tuple
+     */
+    private void restartGroup() {
+        groupIndex = 0;
+        if (groupSpilled) {
+            rightChild.reset(groupStart);
+            nextRightIndex = groupStart;
+            right = nextRight();
+        }
+    }
 
-        int val;
-        if (leftColumnTable.equalsIgnoreCase(leftTableName) && rightColumnTable.equalsIgnoreCase(rightTableName)) {
-            int indLeft = getIndex(leftColumn);
-            int indRight = getIndex(rightColumn);
-            val = Integer.parseInt(combined.get(indLeft)) - Integer.parseInt(combined.get(indRight));
+    /**
+     * Drops the group once no more left tuples join with it
+     */
+    private void clearGroup() {
+        group.clear();
+        groupFirst = null;
+        groupStart = -1;
+        groupIndex = 0;
+        groupSpilled = false;
+    }
 
-        } else {
-            int indLeft = getIndex(rightColumn);
-            int indRight = getIndex(leftColumn);
-            val = Integer.parseInt(combined.get(indLeft)) - Integer.parseInt(combined.get(indRight));
+    /**
+     * @return The next tuple of the group for the current left tuple, or
+     * null if it has seen all of them
+     */
+    private Tuple nextGroupTuple() {
+        if (groupStart < 0) {
+            return null;
         }
+        if (!groupSpilled) {
+            return groupIndex < group.size() ? group.get(groupIndex++) : null;
+        }
+        if (right != null && compareTuples(left, right) == 0) {
+            Tuple r = right;
+            right = nextRight();
+            return r;
+        }
+        return null;
+    }
 
-        if (val == 0) {
-            for (int i = 1; i < expressions.size(); i++) {
-                if (leftColumnTable.equalsIgnoreCase(leftTableName) && rightColumnTable.equalsIgnoreCase(rightTableName)) {
-                    int indLeft = getIndex(leftColumn);
-                    int indRight = getIndex(rightColumn);
-                    val = Integer.parseInt(combined.get(indLeft)) - Integer.parseInt(combined.get(indRight));
+    @Override
+    public void accept(PhysicalPlanVisitor visitor) {
+        visitor.visit(this);
+    }
 
-                } else {
-                    int indLeft = getIndex(rightColumn);
-                    int indRight = getIndex(leftColumn);
-                    val = Integer.parseInt(combined.get(indLeft)) - Integer.parseInt(combined.get(indRight));
-                }
+    /**
+     * Resolves the join keys once, in the order the children are sorted
+     * on, so that tuples can be compared without going through the
+     * catalog. Keys the children are not sorted on are left to the
+     * join condition.
+     */
+    private void resolveSortKeys() {
+        resolveJoinKeys();
+        List<OrderByElement> leftElements = leftChild.getOrderByElements();
+        List<OrderByElement> rightElements = rightChild.getOrderByElements();
+        int numLeft = leftChild.getNumAttributes();
+        int numKeys = Math.min(leftElements.size(), rightElements.size());
 
-                if (val != 0) {
-                    return val;
-                }
+        int[] left = new int[numKeys];
+        int[] right = new int[numKeys];
+        int n = 0;
+        for (int i = 0; i < numKeys; i++) {
+            int a = resolveColumn((Column) leftElements.get(i).getExpression());
+            int b = resolveColumn((Column) rightElements.get(i).getExpression());
+            if (a >= 0 && a < numLeft && b >= numLeft) {
+                left[n] = a;
+                right[n] = b - numLeft;
+                n++;
             }
         }
-
-        return val;
+        if (n < leftKeys.length) {
+            checkCondition = true;
+        }
+        leftKeys = Arrays.copyOf(left, n);
+        rightKeys = Arrays.copyOf(right, n);
     }
 
     /**
-     * Finds the tuple index of a column in a table
+     * Compares a left tuple with a right tuple on their join keys
      *
-     * @param col Input column
-     * @return The tuple index for the column
+     * @param l Left tuple to compare
+     * @param r Right tuple to compare
+     * @return 1 if l comes after r, -1 if r comes after l, 0 if they are equal on the join keys
      */
-    private int getIndex(Column col) {
-        String tableName = col.getTable().getName();
-        String columnName = col.getColumnName();
-        String fullName;
-        if ((fullName = DBCatalog.getInstance().getTableName(tableName)) != null) {
-            return catalog.getTable(fullName).getIndexForColumn(columnName);
+    private int compareTuples(Tuple l, Tuple r) {
+        for (int i = 0; i < leftKeys.length; i++) {
+            int val = Integer.compare(l.get(leftKeys[i]), r.get(rightKeys[i]));
+            if (val != 0) {
+                return val;
+            }
         }
-        return catalog.getTable(tableName).getIndexForColumn(columnName);
+        return 0;
     }
 }
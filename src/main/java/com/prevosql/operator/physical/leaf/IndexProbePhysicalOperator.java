@@ -0,0 +1,92 @@
+package com.prevosql.operator.physical.leaf;
+
+import com.prevosql.config.Configuration;
+import com.prevosql.config.catalog.DBCatalog;
+import com.prevosql.config.index.IndexInfo;
+import com.prevosql.index.entry.DataEntry;
+import com.prevosql.index.io.reader.BinaryIndexReader;
+import com.prevosql.interpreter.query.plan.visitor.PhysicalPlanVisitor;
+import com.prevosql.tuple.Tuple;
+
+import java.nio.file.Paths;
+
+/**
+ * Operator that looks up the tuples of a relation with one value of
+ * the search key at a time, for the parent to set with probe(). Used
+ * as the inner relation of index nested loop joins.
+ */
+public class IndexProbePhysicalOperator extends LeafPhysicalOperator {
+    private final IndexInfo index;
+    private final BinaryIndexReader indexReader;
+    private DataEntry entry;
+    private int recordIdIndex = 0;
+
+    /**
+     * Constructs an IndexProbePhysicalOperator. Returns no tuples until
+     * the first probe.
+     *
+     * @param index Index to look keys up in
+     */
+    public IndexProbePhysicalOperator(IndexInfo index) {
+        super(index.getTableName());
+        this.index = index;
+        this.numAttributes = DBCatalog.getInstance().getTable(index.getTableName()).getAttributeList().size();
+
+        String indexPath = Paths.get(Configuration.getInstance().getInputDirPath(), "db", "indexes",
+                index.getTableName() + "." + index.getSearchKey()).toString();
+        this.indexReader = new BinaryIndexReader(indexPath);
+    }
+
+    /**
+     * Looks up a value of the search key. The tuples with that value are
+     * returned by getNextTuple from now on.
+     *
+     * @param key Value of the search key
+     */
+    public void probe(int key) {
+        entry = indexReader.findKey(key);
+        if (entry != null && entry.getSearchKey() != key) {
+            entry = null;
+        }
+        recordIdIndex = 0;
+    }
+
+    /**
+     * @return Next tuple with the probed key, or null if there are no more
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (entry == null || recordIdIndex >= entry.getRecordIds().size()) {
+            return null;
+        }
+        return BinaryIndexReader.loadTuple(entry.getRecordIds().get(recordIdIndex++), getTableName());
+    }
+
+    /**
+     * Returns the tuples with the probed key again
+     */
+    @Override
+    public void reset() {
+        recordIdIndex = 0;
+    }
+
+    /**
+     * Forgets the probed key until the next probe
+     */
+    @Override
+    public void stop() {
+        entry = null;
+    }
+
+    @Override
+    public void accept(PhysicalPlanVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    /**
+     * @return Index the keys are looked up in
+     */
+    public IndexInfo getIndex() {
+        return index;
+    }
+}
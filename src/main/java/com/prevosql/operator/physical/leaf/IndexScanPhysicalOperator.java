@@ -29,6 +29,7 @@ public class IndexScanPhysicalOperator extends LeafPhysicalOperator {
     private boolean initializedClusteredIndex = false;
     private DataEntry prevEntry;
     private int prevKey;
+    private boolean stopped = false;
 
     /**
      * Constructs an IndexScanPhysicalOperator
@@ -42,6 +43,7 @@ public class IndexScanPhysicalOperator extends LeafPhysicalOperator {
     public IndexScanPhysicalOperator(String tableName, String searchKey, int lowkey, int highkey, boolean isClustered) {
         super(tableName);
         this.column = DBCatalog.getInstance().getTable(tableName).getIndexForColumn(searchKey);
+        this.numAttributes = DBCatalog.getInstance().getTable(tableName).getAttributeList().size();
         this.lowkey = lowkey;
         this.highkey = highkey;
         this.isClustered = isClustered;
@@ -50,19 +52,20 @@ public class IndexScanPhysicalOperator extends LeafPhysicalOperator {
 
         String indexPath = Paths.get(Configuration.getInstance().getInputDirPath(), "db", "indexes", tableName + "." + searchKey).toString();
         this.indexReader = new BinaryIndexReader(indexPath);
-
-        if (isClustered) {
-            tupleReader = TupleReaderFactory.getReader(DBCatalog.getInstance().getTable(tableName).getFileName());
-        }
     }
 
     @Override
     public Tuple getNextTuple() {
-        if (currKey > highkey) {
+        if (stopped || currKey > highkey) {
             return null;
         }
 
         if (isClustered) {
+            if (tupleReader == null) {
+                // opened lazily so the scan can be read again after close()
+                tupleReader = TupleReaderFactory.getReader(DBCatalog.getInstance().getTable(getTableName()).getFileName());
+                initializedClusteredIndex = false;
+            }
             if (!initializedClusteredIndex) {
                 DataEntry entry = indexReader.findKey(lowkey);
                 RecordId firstRecord = entry.getRecordIds().get(0);
@@ -75,7 +78,7 @@ public class IndexScanPhysicalOperator extends LeafPhysicalOperator {
             if (t == null) {
                 return null;
             }
-            if (Integer.parseInt(t.get(column)) <= highkey) {
+            if (t.get(column) <= highkey) {
                 return t;
             }
 
@@ -111,7 +114,7 @@ public class IndexScanPhysicalOperator extends LeafPhysicalOperator {
 
             Tuple t = BinaryIndexReader.loadTuple(rid, getTableName());
             if (t != null) {
-                if (Integer.parseInt(t.get(column)) <= highkey) {
+                if (t.get(column) <= highkey) {
                     return t;
                 }
             }
@@ -123,8 +126,28 @@ public class IndexScanPhysicalOperator extends LeafPhysicalOperator {
     @Override
     public void reset() {
         currKey = lowkey;
-        if (isClustered) {
-            tupleReader.reset();
+        recordIdIndex = 0;
+        prevEntry = null;
+        prevKey = 0;
+        stopped = false;
+        // the clustered scan starts at the first tuple of lowkey again
+        initializedClusteredIndex = false;
+    }
+
+    /**
+     * Unpins the page of the relation the clustered scan is on
+     */
+    @Override
+    public void stop() {
+        stopped = true;
+        close();
+    }
+
+    @Override
+    public void close() {
+        if (tupleReader != null) {
+            tupleReader.close();
+            tupleReader = null;
         }
     }
 
@@ -133,6 +156,27 @@ public class IndexScanPhysicalOperator extends LeafPhysicalOperator {
         visitor.visit(this);
     }
 
+    /**
+     * @return Attribute we are scanning
+     */
+    public String getSearchKey() {
+        return searchKey;
+    }
+
+    /**
+     * @return Lower bound of search range
+     */
+    public int getLowkey() {
+        return lowkey;
+    }
+
+    /**
+     * @return Upper bound of search range
+     */
+    public int getHighkey() {
+        return highkey;
+    }
+
     public String getInfo() {
         return getTableName() + "," + searchKey + "," + lowkey + "," + highkey;
     }
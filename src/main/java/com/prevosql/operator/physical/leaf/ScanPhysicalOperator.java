@@ -4,16 +4,23 @@ import com.prevosql.config.catalog.DBCatalog;
 import com.prevosql.config.catalog.Table;
 import com.prevosql.interpreter.query.plan.visitor.PhysicalPlanVisitor;
 import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
 import com.prevosql.tuple.io.reader.TupleReader;
 import com.prevosql.tuple.io.reader.TupleReaderFactory;
 
+import java.util.function.IntPredicate;
+
 /**
  * Handles select operators, most basic operator and leaf node for
  * all operator trees
  */
 public class ScanPhysicalOperator extends LeafPhysicalOperator {
     private TupleReader tupleReader;
+    private TupleBatch batch;
+    private int[] columns;
+    private IntPredicate pageFilter;
     private boolean binary = true; // use binary i/o by default
+    private boolean stopped = false;
 
     /**
      * Initializes ScanOperator
@@ -40,7 +47,11 @@ public class ScanPhysicalOperator extends LeafPhysicalOperator {
         String fileName;
         try {
             fileName = table.getFileName();
-            tupleReader = TupleReaderFactory.getReader(fileName, binary);
+            tupleReader = TupleReaderFactory.getSequentialReader(fileName, binary);
+            tupleReader.setProjection(columns);
+            if (pageFilter != null) {
+                tupleReader.setPageFilter(pageFilter);
+            }
             this.numAttributes = tupleReader.getNumAttributes();
 
         } catch (NullPointerException e) {
@@ -49,6 +60,32 @@ public class ScanPhysicalOperator extends LeafPhysicalOperator {
         }
     }
 
+    /**
+     * Limits the attributes read from the file to those the plan
+     * above this scan uses. The others read as 0.
+     *
+     * @param columns Indices of the attributes to read, or null for all of them
+     */
+    public void setColumns(int[] columns) {
+        this.columns = columns;
+        if (tupleReader != null) {
+            tupleReader.setProjection(columns);
+        }
+    }
+
+    /**
+     * Skips the pages of the file that cannot hold a tuple the plan
+     * above this scan wants (see ZoneMap)
+     *
+     * @param pageFilter Predicate on page numbers, or null to read every page
+     */
+    public void setPageFilter(IntPredicate pageFilter) {
+        this.pageFilter = pageFilter;
+        if (tupleReader != null) {
+            tupleReader.setPageFilter(pageFilter);
+        }
+    }
+
     /**
      * Gets next available tuple in the file
      *
@@ -56,12 +93,39 @@ public class ScanPhysicalOperator extends LeafPhysicalOperator {
      */
     @Override
     public Tuple getNextTuple() {
+        if (stopped) {
+            return null;
+        }
         if (tupleReader == null) {
             setTable(this.getTableName());
         }
         return tupleReader.readNextTuple();
     }
 
+    /**
+     * Reads the next batch of tuples directly from the file
+     *
+     * @return Next batch of tuples, or null if the file is exhausted
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        if (stopped) {
+            return null;
+        }
+        if (tupleReader == null) {
+            setTable(this.getTableName());
+        }
+        if (tupleReader.getNumAttributes() == 0) {
+            // plain readers don't know their width up front
+            return super.getNextBatch();
+        }
+        if (batch == null) {
+            batch = new TupleBatch(tupleReader.getNumAttributes(), getBatchSize());
+        }
+        batch.clear();
+        return tupleReader.readNextBatch(batch) ? batch : null;
+    }
+
     /**
      * Resets file location so as to return first tuple
      * upon next call to getNextTuple()
@@ -69,11 +133,29 @@ public class ScanPhysicalOperator extends LeafPhysicalOperator {
     @Override
     public void reset() {
 //        LOG.debug("Resetting scan of " + tableName);
+        stopped = false;
         if (tupleReader != null) {
             tupleReader.reset();
         }
     }
 
+    @Override
+    public void close() {
+        if (tupleReader != null) {
+            tupleReader.close();
+            tupleReader = null;
+        }
+    }
+
+    /**
+     * Closes the file; it is opened again on the next reset
+     */
+    @Override
+    public void stop() {
+        stopped = true;
+        close();
+    }
+
     @Override
     public void accept(PhysicalPlanVisitor visitor) {
         visitor.visit(this);
@@ -6,36 +6,37 @@ import com.prevosql.operator.physical.PhysicalOperator;
 import com.prevosql.operator.physical.unary.sort.ExternalSortPhysicalOperator;
 import com.prevosql.operator.physical.unary.sort.SortPhysicalOperator;
 import com.prevosql.tuple.Tuple;
-import net.sf.jsqlparser.statement.select.OrderByElement;
-
-import java.util.List;
 
 /**
- * Handles distinct elements
+ * Handles distinct elements. Duplicates are found next to each other
+ * in the sorted child; external sorts drop most of them before they
+ * ever reach this operator.
  */
 public class DuplicateEliminationPhysicalOperator extends UnaryPhysicalOperator {
     private final SortPhysicalOperator sortedChild;
     private Tuple lastSeenTuple;
 
     /**
-     * Builds a DuplicateEliminationOperator
+     * Builds a DuplicateEliminationOperator. Sorts break ties on all
+     * attributes, so a sorted child already has its duplicates next to
+     * each other and is used as it is. Other children are sorted first.
      *
      * @param child Input operator
      */
     public DuplicateEliminationPhysicalOperator(PhysicalOperator child) {
         super(child);
 
-        int numSortBufferPages = Configuration.getPhysicalConfig().getNumSortBufferPages();
         if (child instanceof SortPhysicalOperator) {
-            List<OrderByElement> orderByElements = ((SortPhysicalOperator) child).getOrderByElements();
-            this.sortedChild = new ExternalSortPhysicalOperator(
-                    child, orderByElements, numSortBufferPages
-            );
+            this.sortedChild = (SortPhysicalOperator) child;
         } else {
+            int numSortBufferPages = Configuration.getPhysicalConfig().getNumSortBufferPages();
             this.sortedChild = new ExternalSortPhysicalOperator(
                     child, null, numSortBufferPages
             );
         }
+        if (sortedChild instanceof ExternalSortPhysicalOperator) {
+            ((ExternalSortPhysicalOperator) sortedChild).setDistinct(true);
+        }
     }
 
     /**
@@ -45,21 +46,14 @@ public class DuplicateEliminationPhysicalOperator extends UnaryPhysicalOperator
      */
     @Override
     public Tuple getNextTuple() {
-        Tuple t = sortedChild.getNextTuple();
-        if (t == null) {
-            return null;
-        }
-        if (lastSeenTuple == null) {
-            lastSeenTuple = t;
-            return t;
-        } else {
-            if (lastSeenTuple.equals(t)) {
-                return getNextTuple();
-            } else {
+        Tuple t;
+        while ((t = sortedChild.getNextTuple()) != null) {
+            if (lastSeenTuple == null || !lastSeenTuple.equals(t)) {
                 lastSeenTuple = t;
                 return t;
             }
         }
+        return null;
     }
 
     /**
@@ -68,6 +62,17 @@ public class DuplicateEliminationPhysicalOperator extends UnaryPhysicalOperator
     @Override
     public void reset() {
         sortedChild.reset();
+        lastSeenTuple = null;
+    }
+
+    @Override
+    public void close() {
+        sortedChild.close();
+    }
+
+    @Override
+    public void stop() {
+        sortedChild.stop();
     }
 
     @Override
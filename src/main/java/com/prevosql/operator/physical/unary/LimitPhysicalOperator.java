@@ -0,0 +1,133 @@
+package com.prevosql.operator.physical.unary;
+
+import com.prevosql.interpreter.query.plan.visitor.PhysicalPlanVisitor;
+import com.prevosql.operator.physical.PhysicalOperator;
+import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
+
+/**
+ * Handles LIMIT and OFFSET. Skips the first tuples of the child and
+ * then passes on at most a fixed number of them. Once the limit is
+ * reached the child is stopped, so the plan below does not read any
+ * further than it has to.
+ */
+public class LimitPhysicalOperator extends UnaryPhysicalOperator {
+    private final PhysicalOperator child;
+    private final long limit;
+    private final long offset;
+    private long numReturned = 0;
+    private long numSkipped = 0;
+    private boolean stopped = false;
+
+    /**
+     * Constructs a LimitPhysicalOperator
+     *
+     * @param child Child operator to limit
+     * @param limit Maximum number of tuples to return, or -1 for no maximum
+     * @param offset Number of tuples to skip first
+     */
+    public LimitPhysicalOperator(PhysicalOperator child, long limit, long offset) {
+        super(child);
+        this.child = child;
+        this.limit = limit;
+        this.offset = offset;
+    }
+
+    /**
+     * Gets the next tuple of the child, until the limit is reached
+     *
+     * @return Next tuple, or null
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (limitReached()) {
+            return null;
+        }
+        Tuple t;
+        while ((t = child.getNextTuple()) != null && numSkipped < offset) {
+            numSkipped++;
+        }
+        if (t != null) {
+            numReturned++;
+        }
+        return t;
+    }
+
+    /**
+     * Gets the next batch of the child, with the skipped tuples and
+     * those past the limit taken out of its selection vector
+     *
+     * @return Next batch, or null
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        while (!limitReached()) {
+            TupleBatch batch = child.getNextBatch();
+            if (batch == null) {
+                return null;
+            }
+            int[] selection = batch.getSelection();
+            int numSelected = batch.getNumSelected();
+            int skip = (int) Math.min(offset - numSkipped, numSelected);
+            numSkipped += skip;
+            numSelected -= skip;
+            if (numSelected == 0) {
+                continue;
+            }
+            System.arraycopy(selection, skip, selection, 0, numSelected);
+            if (limit >= 0) {
+                numSelected = (int) Math.min(numSelected, limit - numReturned);
+            }
+            batch.setNumSelected(numSelected);
+            numReturned += numSelected;
+            return batch;
+        }
+        return null;
+    }
+
+    /**
+     * Resets the child and the number of tuples returned
+     */
+    @Override
+    public void reset() {
+        child.reset();
+        numReturned = 0;
+        numSkipped = 0;
+        stopped = false;
+    }
+
+    /**
+     * @return Whether or not all tuples have been returned. Stops
+     * the child the first time the limit is reached.
+     */
+    private boolean limitReached() {
+        if (limit < 0 || numReturned < limit) {
+            return false;
+        }
+        if (!stopped) {
+            stopped = true;
+            LOG.info("Limit of " + limit + " tuples reached, stopping " + child.getTableName());
+            child.stop();
+        }
+        return true;
+    }
+
+    @Override
+    public void accept(PhysicalPlanVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    /**
+     * @return Maximum number of tuples to return, or -1 for no maximum
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return Number of tuples to skip first
+     */
+    public long getOffset() {
+        return offset;
+    }
+}
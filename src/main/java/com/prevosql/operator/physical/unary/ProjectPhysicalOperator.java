@@ -8,6 +8,7 @@ import com.prevosql.operator.physical.PhysicalOperator;
 import com.prevosql.operator.physical.binary.join.JoinPhysicalOperator;
 import com.prevosql.operator.physical.unary.sort.SortPhysicalOperator;
 import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.statement.select.AllColumns;
 import net.sf.jsqlparser.statement.select.SelectExpressionItem;
@@ -22,6 +23,8 @@ public class ProjectPhysicalOperator extends UnaryPhysicalOperator {
     private final PhysicalOperator child;
     private final List<SelectItem> selectItems;
     private Catalog catalog;
+    private int[] columnIndices;
+    private boolean allColumns = false;
 
     /**
      * Initializes a ProjectOperator
@@ -43,30 +46,38 @@ public class ProjectPhysicalOperator extends UnaryPhysicalOperator {
      */
     @Override
     public Tuple getNextTuple() {
-        setCatalog();
+        resolveColumnIndices();
         Tuple t = child.getNextTuple();
         if (t == null) {
             return null;
         }
-
-        int columns = selectItems.size();
-        String[] res = new String[columns];
-        int index = 0;
-        for (SelectItem item : selectItems) {
-            if (item instanceof AllColumns) {
-                return t;
-            }
-            SelectExpressionItem exp = (SelectExpressionItem) item;
-            Column column = (Column) exp.getExpression();
-            String name = column.getColumnName();
-            Table table = catalog.getTable(child.getTableName());
-            int columnIndex = table.getIndexForColumn(name);
-            res[index++] = t.get(columnIndex);
+        if (allColumns) {
+            return t;
         }
 
+        int[] res = new int[columnIndices.length];
+        for (int i = 0; i < columnIndices.length; i++) {
+            res[i] = t.get(columnIndices[i]);
+        }
         return new Tuple(res);
     }
 
+    /**
+     * Gets the next batch of the child with only the selected columns.
+     * The projected batch shares its column arrays with the child's batch.
+     *
+     * @return Next projected batch, or null
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        resolveColumnIndices();
+        TupleBatch batch = child.getNextBatch();
+        if (batch == null || allColumns) {
+            return batch;
+        }
+        return batch.project(columnIndices);
+    }
+
     /**
      * Resets child output
      */
@@ -84,6 +95,31 @@ public class ProjectPhysicalOperator extends UnaryPhysicalOperator {
         return selectItems;
     }
 
+    /**
+     * Looks up the tuple index of every projected column in the
+     * child's catalog. Only done once per operator.
+     */
+    private void resolveColumnIndices() {
+        if (columnIndices != null) {
+            return;
+        }
+        setCatalog();
+        int[] indices = new int[selectItems.size()];
+        int index = 0;
+        for (SelectItem item : selectItems) {
+            if (item instanceof AllColumns) {
+                allColumns = true;
+                break;
+            }
+            SelectExpressionItem exp = (SelectExpressionItem) item;
+            Column column = (Column) exp.getExpression();
+            String name = column.getColumnName();
+            Table table = catalog.getTable(child.getTableName());
+            indices[index++] = table.getIndexForColumn(name);
+        }
+        columnIndices = indices;
+    }
+
     private void setCatalog() {
         if (child instanceof JoinPhysicalOperator) {
             ((JoinPhysicalOperator) child).createJoinedTable();
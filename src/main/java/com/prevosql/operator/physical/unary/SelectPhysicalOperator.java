@@ -2,8 +2,10 @@ package com.prevosql.operator.physical.unary;
 
 import com.prevosql.interpreter.query.plan.visitor.PhysicalPlanVisitor;
 import com.prevosql.operator.physical.PhysicalOperator;
+import com.prevosql.operator.visitor.BatchExpressionVisitor;
 import com.prevosql.operator.visitor.PhysicalOperatorExpressionVisitor;
 import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
 import net.sf.jsqlparser.expression.Expression;
 
 /**
@@ -12,6 +14,7 @@ import net.sf.jsqlparser.expression.Expression;
 public class SelectPhysicalOperator extends UnaryPhysicalOperator {
     private final PhysicalOperator child;
     private final Expression expression;
+    private BatchExpressionVisitor batchPredicate;
 
     /**
      * Initializes a SelectOperator
@@ -47,6 +50,31 @@ public class SelectPhysicalOperator extends UnaryPhysicalOperator {
         }
     }
 
+    /**
+     * Gets the next batch of the child and removes the tuples that
+     * do not satisfy the select condition from its selection vector
+     *
+     * @return Next batch with at least one valid tuple, or null
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        if (expression == null) {
+            return child.getNextBatch();
+        }
+        if (batchPredicate == null) {
+            batchPredicate = new BatchExpressionVisitor(expression);
+        }
+
+        TupleBatch batch;
+        while ((batch = child.getNextBatch()) != null) {
+            batchPredicate.filter(batch);
+            if (batch.getNumSelected() > 0) {
+                return batch;
+            }
+        }
+        return null;
+    }
+
     /**
      * Resets child operator
      */
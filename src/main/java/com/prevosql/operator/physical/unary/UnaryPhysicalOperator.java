@@ -19,6 +19,16 @@ public abstract class UnaryPhysicalOperator extends PhysicalOperator {
         this.child = child;
     }
 
+    @Override
+    public void close() {
+        child.close();
+    }
+
+    @Override
+    public void stop() {
+        child.stop();
+    }
+
     /**
      * @return Child operator
      */
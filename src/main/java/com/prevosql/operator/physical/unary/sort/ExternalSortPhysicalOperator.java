@@ -1,43 +1,65 @@
 package com.prevosql.operator.physical.unary.sort;
 
-import com.prevosql.config.catalog.DBCatalog;
+import com.prevosql.buffer.BufferPool;
 import com.prevosql.config.Configuration;
 import com.prevosql.interpreter.query.plan.visitor.PhysicalPlanVisitor;
 import com.prevosql.operator.physical.PhysicalOperator;
-import com.prevosql.operator.physical.binary.join.JoinPhysicalOperator;
 import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
+import com.prevosql.tuple.io.PageLayout;
 import com.prevosql.tuple.io.reader.TupleReader;
 import com.prevosql.tuple.io.reader.TupleReaderFactory;
 import com.prevosql.tuple.io.writer.TupleWriter;
 import com.prevosql.tuple.io.writer.TupleWriterFactory;
-import net.sf.jsqlparser.schema.Column;
+import com.prevosql.tuple.util.TupleKeySorter;
 import net.sf.jsqlparser.statement.select.OrderByElement;
+import org.apache.commons.io.FileUtils;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
 
 /**
- * Performs an external sort of the child operator
+ * Performs an external sort of the child operator. Inputs that fit in
+ * the sort buffer are sorted in memory without touching the disk.
  */
 public class ExternalSortPhysicalOperator extends SortPhysicalOperator {
     private final int numTuples;
-    private Tuple[] buffer;
+    private final int fanIn;
+    private final int numThreads;
+    private int numMerges = 0;
     private String tempDirPath;
     private int attributes = 0;
     private final boolean binary;
+    private final PageLayout spillLayout;
+    private boolean sorted = false;
+    private boolean distinct = false;
+    private TupleKeySorter sorter;
+    private Tuple[] memory;
+    private int memoryIndex = 0;
+    private List<String> finalRuns;
+    private RunMerger merger;
     private TupleReader reader;
     private Path finalFilePath;
+    private TupleBatch batch;
 
     private static final int PAGE_SIZE = 4096;
+    private static final int MIN_SLICE_SIZE = 1024;
 
     /**
-     * Constructs an ExternalSortPhysicalOperator. Will read in tuples into
-     * numPages-sized blocks in memory, sort them, and then write them to temp
-     * files to be merged.
+     * Constructs an ExternalSortPhysicalOperator. When first read, will read
+     * the child's tuples into numPages of memory. If they do not all fit,
+     * they are written to sorted temp files, which are merged numPages - 1
+     * at a time.
      *
      * @param child Child operator to sort
      * @param orderByElements Elements we are sorting on
@@ -45,31 +67,30 @@ public class ExternalSortPhysicalOperator extends SortPhysicalOperator {
      * @param binary Whether or not we are writing the temp files in binary format or ASCII format
      */
     public ExternalSortPhysicalOperator(PhysicalOperator child, List<OrderByElement> orderByElements, int numPages, boolean binary) {
+        this(child, orderByElements, numPages, binary, Configuration.getPhysicalConfig().getNumSortThreads());
+    }
+
+    /**
+     * Constructs an ExternalSortPhysicalOperator that generates and merges
+     * its runs on numThreads threads
+     *
+     * @param child Child operator to sort
+     * @param orderByElements Elements we are sorting on
+     * @param numPages Number of internal buffer pages to use
+     * @param binary Whether or not we are writing the temp files in binary format or ASCII format
+     * @param numThreads Number of threads to sort with
+     */
+    public ExternalSortPhysicalOperator(PhysicalOperator child, List<OrderByElement> orderByElements, int numPages, boolean binary, int numThreads) {
         super(child, orderByElements);
-        this.numTuples = (numPages * PAGE_SIZE) / (4 * child.getNumAttributes());
-        this.buffer = new Tuple[numTuples];
+        this.numTuples = Math.max((numPages * PAGE_SIZE) / (4 * child.getNumAttributes()), 1);
+        // one input page per run, and one page for the output
+        this.fanIn = Math.max(numPages - 1, 2);
+        this.numThreads = Math.max(numThreads, 1);
         this.binary = binary;
+        this.spillLayout = Configuration.getPhysicalConfig().useCompressedSpillFiles() ? PageLayout.COMPRESSED : PageLayout.ROW;
         if (binary) {
             attributes = child.getNumAttributes();
         }
-
-        String globalTempDir = Configuration.getInstance().getTempDirPath();
-        try {
-            Path tempDir = Files.createTempDirectory(Paths.get(globalTempDir), child.getTableName());
-            tempDirPath = tempDir.toString();
-        } catch (IOException e) {
-            LOG.fatal(e);
-            System.err.println("Failed to create temporary directory for sorting: " + e.getMessage());
-        }
-
-        if (child instanceof JoinPhysicalOperator) {
-            ((JoinPhysicalOperator) child).createJoinedTable();
-            catalog = ((JoinPhysicalOperator) child).getCatalog();
-        } else {
-            catalog = DBCatalog.getInstance();
-        }
-
-        sortFile();
     }
 
     /**
@@ -83,17 +104,99 @@ public class ExternalSortPhysicalOperator extends SortPhysicalOperator {
         this(child, elements, numPages, true);
     }
 
+    /**
+     * Makes the sort drop duplicate tuples. Duplicates are removed from
+     * every run as it is written and from every merge, so spill files
+     * only hold distinct tuples. Must be called before the operator is
+     * first read.
+     *
+     * @param distinct Whether or not to drop duplicate tuples
+     */
+    public void setDistinct(boolean distinct) {
+        this.distinct = distinct;
+    }
+
     /**
      * @return A sorted tuple of the child operator
      */
     @Override
     public Tuple getNextTuple() {
+        sortFile();
+        if (memory != null) {
+            return memoryIndex < memory.length ? memory[memoryIndex++] : null;
+        }
+        if (finalFilePath == null) {
+            return merger.next();
+        }
         return reader.readNextTuple();
     }
 
+    /**
+     * @return The next batch of sorted tuples, read directly from the
+     * sorted file once it has been materialized
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        sortFile();
+        if (!binary || finalFilePath == null) {
+            return super.getNextBatch();
+        }
+        if (batch == null) {
+            batch = new TupleBatch(reader.getNumAttributes(), getBatchSize());
+        }
+        batch.clear();
+        return reader.readNextBatch(batch) ? batch : null;
+    }
+
+    /**
+     * Restarts the final merge, or the sorted file if it has been
+     * materialized. Resets the child if nothing has been sorted yet.
+     */
     @Override
     public void reset() {
-        reader.reset();
+        if (!sorted) {
+            child.reset();
+            return;
+        }
+        if (memory != null) {
+            memoryIndex = 0;
+        } else if (finalFilePath == null) {
+            merger.close();
+            merger = new RunMerger(finalRuns);
+        } else {
+            openReader();
+            reader.reset();
+        }
+    }
+
+    /**
+     * Closes the sorted runs and deletes the temp files of this sort
+     * along with the child
+     */
+    @Override
+    public void close() {
+        if (!sorted || memory != null) {
+            memory = null;
+            super.close();
+            return;
+        }
+        if (finalFilePath == null) {
+            merger.close();
+        } else {
+            if (reader != null) {
+                reader.close();
+            }
+            BufferPool.getInstance().invalidate(finalFilePath.toString());
+        }
+        for (String run : finalRuns) {
+            BufferPool.getInstance().invalidate(getTempFilePath(run));
+        }
+        try {
+            FileUtils.deleteDirectory(new File(tempDirPath));
+        } catch (IOException e) {
+            LOG.warn("Failed to delete temp files of sort", e);
+        }
+        super.close();
     }
 
     @Override
@@ -101,267 +204,452 @@ public class ExternalSortPhysicalOperator extends SortPhysicalOperator {
         visitor.visit(this);
     }
 
+    /**
+     * Unpins the pages of the sorted runs until the next reset, which
+     * reopens them. Stops the child instead if nothing has been sorted yet.
+     */
+    @Override
+    public void stop() {
+        if (!sorted) {
+            child.stop();
+            return;
+        }
+        if (merger != null) {
+            merger.close();
+        }
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+    }
+
+    /**
+     * Moves to the index-th sorted tuple. The final merge is streamed
+     * to the parent, so if the sort spilled, the first call writes the
+     * sorted relation to a file that later calls can seek in.
+     *
+     * @param index Tuple index to reset to
+     */
     @Override
     public void reset(int index) {
+        sortFile();
+        if (memory != null) {
+            memoryIndex = index;
+            return;
+        }
+        if (finalFilePath == null) {
+            materialize();
+        }
+        openReader();
         reader.reset(index);
     }
 
     /**
-     * Reads tuples into numPages-sized blocks in memory, sorts them,
-     * and writes to temp files which are then merged into one sorted file.
+     * Reads the child's tuples into the sort buffer and sorts them there
+     * if they all fit. Otherwise writes them to sorted runs and merges
+     * those until few enough are left to be merged on the fly as the
+     * parent reads. Sorting is deferred until the operator is first read,
+     * so building and printing plans does not run any sorts.
      */
     private void sortFile() {
+        if (sorted) {
+            return;
+        }
+        sorted = true;
         LOG.info("Sorting relation " + child.getTableName());
-        boolean lastPass = false;
-        int fileNumber = 0;
+        sorter = new TupleKeySorter(getSortColumns());
 
-        while (!lastPass) {
-            for (int i = 0; i < numTuples; i++) {
-                Tuple t = child.getNextTuple();
-                if (t == null) {
-                    lastPass = true;
-                    break;
-                }
-                buffer[i] = t;
+        List<Tuple> buffered = new ArrayList<>();
+        Tuple t;
+        while ((t = child.getNextTuple()) != null && buffered.size() < numTuples) {
+            buffered.add(t);
+        }
+        if (t == null) {
+            memory = buffered.toArray(new Tuple[0]);
+            sorter.sort(memory, 0, memory.length);
+            if (distinct) {
+                memory = Arrays.copyOf(memory, removeDuplicates(memory, memory.length));
             }
+            return;
+        }
+        buffered.add(t);
 
-            Arrays.sort(buffer, this::compareTuplesExact);
+        LOG.info("Relation " + child.getTableName() + " does not fit in the sort buffer, spilling runs to disk");
+        String globalTempDir = Configuration.getInstance().getTempDirPath();
+        try {
+            Path tempDir = Files.createTempDirectory(Paths.get(globalTempDir), child.getTableName());
+            tempDirPath = tempDir.toString();
+        } catch (IOException e) {
+            LOG.fatal(e);
+            System.err.println("Failed to create temporary directory for sorting: " + e.getMessage());
+        }
 
-            String tempFilePath = Paths.get(tempDirPath, "tmp" + fileNumber).toAbsolutePath().toString();
-            TupleWriter tw = TupleWriterFactory.getWriter(tempFilePath, attributes);
-            for (Tuple t : buffer) {
-                if (t == null) {
-                    break;
-                }
-                tw.writeTuple(t);
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            // replacement selection turns presorted input into a single run
+            int numRuns = numThreads > 1 && !isSorted(buffered)
+                    ? generateRunsInParallel(pool, buffered)
+                    : generateRuns(buffered);
+
+            String[] runs = new String[numRuns];
+            for (int i = 0; i < runs.length; i++) {
+                runs[i] = "tmp" + i;
             }
-            tw.flush();
-            fileNumber++;
 
-            buffer = new Tuple[numTuples];
-            LOG.info("Reading a new block of tuples into memory: " + fileNumber);
+            finalRuns = mergeRuns(runs, pool);
+        } finally {
+            pool.shutdown();
         }
+        merger = new RunMerger(finalRuns);
+    }
 
-        String[] arr = new String[fileNumber];
-        for (int i = 0; i < arr.length; i++) {
-            arr[i] = "tmp" + i;
+    /**
+     * Merges the remaining runs into the final sorted file and reads
+     * from it from now on
+     */
+    private void materialize() {
+        LOG.info("Materializing sorted relation " + child.getTableName() + " for random access");
+        merger.close();
+        merger = null;
+        String finalPath = finalRuns.get(0);
+        if (finalRuns.size() > 1) {
+            finalPath = "merge" + numMerges++;
+            mergeFiles(finalRuns, finalPath);
         }
-
-        String finalPath = (mergeRuns(arr))[0];
-
+        finalRuns = new ArrayList<>();
         finalFilePath = Paths.get(tempDirPath, finalPath).toAbsolutePath();
-        reader = TupleReaderFactory.getReader(finalFilePath.toString(), binary);
+        openReader();
+    }
 
-        lastPass = false;
-        fileNumber = 0;
+    /**
+     * Opens the sorted file unless it is already open. A stopped sort
+     * has closed it, and closed readers can not be reset.
+     */
+    private void openReader() {
+        if (reader == null) {
+            reader = TupleReaderFactory.getReader(finalFilePath.toString(), binary);
+        }
+    }
 
-        while (!lastPass) {
-            for (int i = 0; i < numTuples; i++) {
-                Tuple t = reader.readNextTuple();
+    /**
+     * Generates sorted runs with replacement selection. The smallest
+     * tuple in memory is written to the current run and replaced by the
+     * next input tuple; input tuples that sort before the last written
+     * one are held back for the next run. Runs come out about twice as
+     * long as the memory holds, and presorted input makes a single run.
+     *
+     * @param buffered Tuples already read from the child
+     * @return Number of runs written, at least 1
+     */
+    private int generateRuns(List<Tuple> buffered) {
+        PriorityQueue<Tuple> current = new PriorityQueue<>(buffered.size(), sorter);
+        current.addAll(buffered);
+        buffered.clear();
+        List<Tuple> next = new ArrayList<>();
+        boolean exhausted = false;
+
+        int numRuns = 0;
+        do {
+            TupleWriter tw = TupleWriterFactory.getWriter(getTempFilePath("tmp" + numRuns), attributes, spillLayout);
+            Tuple last = null;
+            while (!current.isEmpty()) {
+                Tuple smallest = current.poll();
+                if (!distinct || last == null || !last.equals(smallest)) {
+                    tw.writeTuple(smallest);
+                    last = smallest;
+                }
+                Tuple t = exhausted ? null : child.getNextTuple();
                 if (t == null) {
-                    lastPass = true;
-                    break;
+                    exhausted = true;
+                } else if (distinct && t.equals(smallest)) {
+                    // already written to this run
+                } else if (sorter.compare(t, smallest) >= 0) {
+                    current.add(t);
+                } else {
+                    next.add(t);
                 }
-                buffer[i] = t;
             }
+            tw.close();
+            numRuns++;
+            LOG.info("Wrote sorted run " + numRuns);
+
+            current.addAll(next);
+            next.clear();
+        } while (!current.isEmpty());
+
+        return numRuns;
+    }
 
-            Arrays.sort(buffer, this::compareTuples);
+    /**
+     * @param tuples Tuples to check
+     * @return Whether or not the tuples are already in sorted order
+     */
+    private boolean isSorted(List<Tuple> tuples) {
+        for (int i = 1; i < tuples.size(); i++) {
+            if (sorter.compare(tuples.get(i - 1), tuples.get(i)) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-            String tempFilePath = Paths.get(tempDirPath, "tmp" + fileNumber).toAbsolutePath().toString();
-            TupleWriter tw = TupleWriterFactory.getWriter(tempFilePath, attributes);
-            for (Tuple t : buffer) {
+    /**
+     * Generates sorted runs a full sort buffer at a time. Each block is
+     * split into one slice per thread, the slices are sorted in parallel
+     * and merged as the run is written, so runs are as long as the
+     * buffer and only one block is held in memory at a time.
+     *
+     * @param pool Pool to sort the slices in
+     * @param buffered Tuples already read from the child
+     * @return Number of runs written, at least 1
+     */
+    private int generateRunsInParallel(ForkJoinPool pool, List<Tuple> buffered) {
+        Tuple[] block = new Tuple[numTuples];
+        int numRuns = 0;
+        int numBuffered = 0;
+        boolean exhausted = false;
+        while (!exhausted) {
+            int size = 0;
+            while (size < numTuples && numBuffered < buffered.size()) {
+                block[size++] = buffered.get(numBuffered++);
+            }
+            if (numBuffered == buffered.size()) {
+                buffered.clear();
+                numBuffered = 0;
+            }
+            while (size < numTuples) {
+                Tuple t = child.getNextTuple();
                 if (t == null) {
+                    exhausted = true;
                     break;
                 }
-                tw.writeTuple(t);
+                block[size++] = t;
             }
-            tw.flush();
-            fileNumber++;
-
-            buffer = new Tuple[numTuples];
-            LOG.info("Reading a new block of tuples into memory: " + fileNumber);
-        }
-
-        arr = new String[fileNumber];
-        for (int i = 0; i < arr.length; i++) {
-            arr[i] = "tmp" + i;
+            if (size == 0) {
+                break;
+            }
+            writeRun(pool, block, size, "tmp" + numRuns++);
         }
-
-        finalPath = (mergeRuns(arr))[0];
-
-        finalFilePath = Paths.get(tempDirPath, finalPath).toAbsolutePath();
-        reader = TupleReaderFactory.getReader(finalFilePath.toString(), binary);
+        return numRuns;
     }
 
     /**
-     * Compares two tuples for sorting
+     * Sorts a block of tuples in slices on the pool and writes it to a
+     * run, merging the sorted slices on the way
      *
-     * @param o1 First tuple to compare
-     * @param o2 Second tuple to compare
-     * @return 0 if equal on order by elements, 1 if o1 comes after o2, -1 if o1 comes before o2
+     * @param pool Pool to sort the slices in
+     * @param block Tuples to sort
+     * @param size Number of tuples in the block
+     * @param run Filename of the run
      */
-    private int compareTuples(Tuple o1, Tuple o2) {
-        if (o1 == null && o2 == null) {
-            return 0;
-        } else if (o1 == null) {
-            return 1;
-        } else if (o2 == null) {
-            return -1;
+    private void writeRun(ForkJoinPool pool, Tuple[] block, int size, String run) {
+        int numSlices = Math.max(Math.min(numThreads, size / MIN_SLICE_SIZE), 1);
+        int[] bounds = new int[numSlices + 1];
+        for (int i = 0; i <= numSlices; i++) {
+            bounds[i] = (int) ((long) size * i / numSlices);
         }
-
-        if (o1.equals(o2)) {
-            return 0;
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < numSlices; i++) {
+            int from = bounds[i];
+            int to = bounds[i + 1];
+            tasks.add(pool.submit(() -> sorter.sort(block, from, to)));
         }
-
-        if (orderByElements == null) {
-            return compareTuplesExact(o1, o2);
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
         }
 
-        OrderByElement e0 = orderByElements.get(0);
-        int ind0 = getIndex(e0);
-        int val = Integer.parseInt(o1.get(ind0)) - Integer.parseInt(o2.get(ind0));
-        if (val == 0) {
-            for (int i = 1; i < orderByElements.size(); i++) {
-                int index = getIndex(orderByElements.get(i));
-                int value = Integer.parseInt(o1.get(index)) - Integer.parseInt(o2.get(index));
-
-                if (value != 0) {
-                    return value;
-                }
+        int[] positions = Arrays.copyOf(bounds, numSlices);
+        PriorityQueue<Integer> heap = new PriorityQueue<>(numSlices, (a, b) -> {
+            int compared = sorter.compare(block[positions[a]], block[positions[b]]);
+            return compared != 0 ? compared : Integer.compare(a, b);
+        });
+        for (int i = 0; i < numSlices; i++) {
+            if (positions[i] < bounds[i + 1]) {
+                heap.add(i);
             }
         }
-        return val;
-    }
-
-    private int compareTuplesExact(Tuple o1, Tuple o2) {
-        if (o1 == null && o2 == null) {
-            return 0;
-        } else if (o1 == null) {
-            return 1;
-        } else if (o2 == null) {
-            return -1;
-        }
-
-        if (o1.equals(o2)) {
-            return 0;
-        }
 
-        for (int i = 0; i < o1.length(); i++) {
-            int val = Integer.parseInt(o1.get(i)) - Integer.parseInt(o2.get(i));
-            if (val != 0) {
-                return val;
+        TupleWriter tw = TupleWriterFactory.getWriter(getTempFilePath(run), attributes, spillLayout);
+        Tuple last = null;
+        Integer slice;
+        while ((slice = heap.poll()) != null) {
+            Tuple t = block[positions[slice]++];
+            if (positions[slice] < bounds[slice + 1]) {
+                heap.add(slice);
+            }
+            if (!distinct || last == null || !last.equals(t)) {
+                tw.writeTuple(t);
+                last = t;
             }
         }
-
-        return 0;
+        tw.close();
+        Arrays.fill(block, 0, size, null);
+        LOG.info("Wrote sorted run " + run);
     }
 
     /**
-     * Returns tuple index of column
+     * Moves the first of every group of equal tuples in a sorted
+     * array to the front of the array
      *
-     * @param e Element to find index of
-     * @return Tuple index of column
+     * @param tuples Sorted tuples
+     * @param size Number of tuples in the array
+     * @return Number of distinct tuples
      */
-    private int getIndex(OrderByElement e) {
-        Column col = (Column) e.getExpression();
-        String tableName = col.getTable().getName();
-        String columnName = col.getColumnName();
-        return catalog.getTable(tableName).getIndexForColumn(columnName);
+    private static int removeDuplicates(Tuple[] tuples, int size) {
+        int numDistinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (numDistinct == 0 || !tuples[numDistinct - 1].equals(tuples[i])) {
+                tuples[numDistinct++] = tuples[i];
+            }
+        }
+        return numDistinct;
     }
 
     /**
-     * Merges files whose names are stored in runs
-     * into one sorted file
+     * Merges the runs fanIn at a time, pass after pass, until
+     * no more than fanIn runs are left. The groups of a pass are
+     * merged in parallel as long as their input and output pages
+     * together fit in the sort buffer, so a full group runs alone.
      *
      * @param runs Array of filenames to merge
-     * @return A single-element array containing the filename
-     * with the sorted file
+     * @param pool Pool to merge the groups in
+     * @return Filenames of the remaining runs
      */
-    private String[] mergeRuns(String[] runs) {
-        if (runs.length == 1) {
-            return runs;
-        }
-
-        if (runs.length == 2) {
-            mergeFiles(runs[0], runs[1]);
-            return new String[]{ runs[1] };
+    private List<String> mergeRuns(String[] runs, ForkJoinPool pool) {
+        List<String> remaining = Arrays.asList(runs);
+        Semaphore pages = new Semaphore(fanIn + 1);
+        while (remaining.size() > fanIn) {
+            List<String> merged = new ArrayList<>();
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < remaining.size(); i += fanIn) {
+                List<String> group = remaining.subList(i, Math.min(i + fanIn, remaining.size()));
+                if (group.size() == 1) {
+                    merged.add(group.get(0));
+                    continue;
+                }
+                String output = "merge" + numMerges++;
+                merged.add(output);
+                int numPages = group.size() + 1;
+                pages.acquireUninterruptibly(numPages);
+                tasks.add(pool.submit(() -> {
+                    try {
+                        mergeFiles(group, output);
+                    } finally {
+                        pages.release(numPages);
+                    }
+                }));
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+            remaining = merged;
         }
-
-        int mid = runs.length / 2;
-        int rightLength = runs.length - mid;
-        String[] left = new String[mid];
-        String[] right = new String[rightLength];
-        System.arraycopy(runs, 0, left, 0, mid);
-        System.arraycopy(runs, mid, right, 0, rightLength);
-
-        String[] mergedLeft = mergeRuns(left);
-        String[] mergedRight = mergeRuns(right);
-        mergeFiles(mergedLeft[0], mergedRight[0]);
-        return new String[] { mergedRight[0] };
+        return remaining;
     }
 
     /**
-     * Merges two files into one sorted file
+     * Merges sorted files into one sorted file and deletes them
      *
-     * @param file1 First file to merge
-     * @param file2 Second file to merge
+     * @param files Files to merge
+     * @param output Filename of the merged file
      */
-    private void mergeFiles(String file1, String file2) {
-        LOG.info("Merging temp files " + file1 + " and " + file2);
-        try {
-            Path f1 = Paths.get(tempDirPath, file1 + "-merging").toAbsolutePath();
-            Path f2 = Paths.get(tempDirPath, file2 + "-merging").toAbsolutePath();
-            Path output = Paths.get(tempDirPath, file2).toAbsolutePath();
-
-            Files.move(Paths.get(tempDirPath, file1).toAbsolutePath(), f1);
-            Files.move(output, f2);
-
-            TupleReader t1 = TupleReaderFactory.getReader(f1.toString(), binary);
-            TupleReader t2 = TupleReaderFactory.getReader(f2.toString(), binary);
-            TupleWriter tw = TupleWriterFactory.getWriter(output.toString(), attributes);
-            Tuple left = t1.readNextTuple();
-            Tuple right = t2.readNextTuple();
-
-            while (left != null && right != null) {
-                int compared = compareTuples(left, right);
-                if (compared > 0) {
-                    tw.writeTuple(right);
-                    right = t2.readNextTuple();
+    private void mergeFiles(List<String> files, String output) {
+        LOG.info("Merging temp files " + files + " into " + output);
+
+        RunMerger runs = new RunMerger(files);
+        TupleWriter tw = TupleWriterFactory.getWriter(getTempFilePath(output), attributes, spillLayout);
+        Tuple t;
+        while ((t = runs.next()) != null) {
+            tw.writeTuple(t);
+        }
+        tw.close();
+        runs.close();
 
-                } else if (compared < 0) {
-                    tw.writeTuple(left);
-                    left = t1.readNextTuple();
+        try {
+            for (String file : files) {
+                BufferPool.getInstance().invalidate(getTempFilePath(file));
+                Files.delete(Paths.get(getTempFilePath(file)));
+            }
+        } catch (IOException e) {
+            LOG.fatal(e);
+        }
+        LOG.info("Successfully merged files " + files);
+    }
 
-                } else {
-                    tw.writeTuple(left);
-                    tw.writeTuple(right);
-                    left = t1.readNextTuple();
-                    right = t2.readNextTuple();
+    /**
+     * Merges sorted runs on the fly. The next tuple of each run is
+     * kept in a heap; ties go to the run that comes first, so equal
+     * tuples keep the order of the runs. Equal tuples from different
+     * runs are only returned once if the sort is distinct.
+     */
+    private class RunMerger {
+        private final TupleReader[] readers;
+        private final Tuple[] heads;
+        private final PriorityQueue<Integer> heap;
+        private Tuple last;
+
+        /**
+         * Opens the runs and reads the first tuple of each
+         *
+         * @param files Runs to merge
+         */
+        RunMerger(List<String> files) {
+            int k = files.size();
+            readers = new TupleReader[k];
+            heads = new Tuple[k];
+            heap = new PriorityQueue<>(Math.max(k, 1), (a, b) -> {
+                int compared = sorter.compare(heads[a], heads[b]);
+                return compared != 0 ? compared : Integer.compare(a, b);
+            });
+            for (int i = 0; i < k; i++) {
+                // a single pinned page per run; read-ahead threads for every run would not scale with the fan-in
+                readers[i] = binary
+                        ? TupleReaderFactory.getBinaryReader(getTempFilePath(files.get(i)), false)
+                        : TupleReaderFactory.getReader(getTempFilePath(files.get(i)), false);
+                heads[i] = readers[i].readNextTuple();
+                if (heads[i] != null) {
+                    heap.add(i);
                 }
             }
+        }
 
-            while (left != null) {
-                tw.writeTuple(left);
-                left = t1.readNextTuple();
+        /**
+         * @return Smallest tuple left in the runs, or null if they are exhausted
+         */
+        Tuple next() {
+            Integer run;
+            while ((run = heap.poll()) != null) {
+                Tuple t = heads[run];
+                heads[run] = readers[run].readNextTuple();
+                if (heads[run] != null) {
+                    heap.add(run);
+                }
+                if (!distinct || last == null || !last.equals(t)) {
+                    last = t;
+                    return t;
+                }
             }
+            return null;
+        }
 
-            while (right != null) {
-                tw.writeTuple(right);
-                right = t2.readNextTuple();
+        void close() {
+            for (TupleReader r : readers) {
+                r.close();
             }
-
-            tw.flush();
-            Files.delete(f1);
-            Files.delete(f2);
-            LOG.info("Successfully merged files " + file1 + " and " + file2);
-
-        } catch (IOException e) {
-            LOG.fatal(e);
         }
     }
 
     /**
-     * @return Path to sorted output file
+     * @param filename Name of a temp file of this sort
+     * @return Absolute path to the temp file
+     */
+    private String getTempFilePath(String filename) {
+        return Paths.get(tempDirPath, filename).toAbsolutePath().toString();
+    }
+
+    /**
+     * @return Path to sorted output file, or null if the final merge
+     * has not been written to a file
      */
     public Path getFinalFilePath() {
         return finalFilePath;
@@ -1,10 +1,10 @@
 package com.prevosql.operator.physical.unary.sort;
 
-import com.prevosql.config.catalog.DBCatalog;
 import com.prevosql.interpreter.query.plan.visitor.PhysicalPlanVisitor;
 import com.prevosql.operator.physical.PhysicalOperator;
 import com.prevosql.tuple.Tuple;
-import net.sf.jsqlparser.schema.Column;
+import com.prevosql.tuple.TupleBatch;
+import com.prevosql.tuple.util.TupleKeySorter;
 import net.sf.jsqlparser.statement.select.OrderByElement;
 
 import java.util.ArrayList;
@@ -15,17 +15,29 @@ import java.util.List;
  */
 public class InMemorySortPhysicalOperator extends SortPhysicalOperator {
     private int index;
-    private final List<Tuple> tuples;
+    private List<Tuple> tuples;
+    private TupleBatch batch;
 
     /**
-     * Initializes SortOperator. Collects all tuples from output
-     * and sorts them based on input elements
+     * Initializes SortOperator. All tuples from the child are
+     * collected and sorted based on input elements when the
+     * operator is first read.
      *
      * @param child Child operator
      * @param orderByElements List of elements to order by
      */
     public InMemorySortPhysicalOperator(PhysicalOperator child, List<OrderByElement> orderByElements) {
         super(child, orderByElements);
+    }
+
+    /**
+     * Collects all tuples from the child and sorts them, unless
+     * that has already been done
+     */
+    private void sortTuples() {
+        if (tuples != null) {
+            return;
+        }
         tuples = new ArrayList<>();
 
         Tuple t = child.getNextTuple();
@@ -34,27 +46,7 @@ public class InMemorySortPhysicalOperator extends SortPhysicalOperator {
             t = child.getNextTuple();
         }
 
-        tuples.sort((Tuple o1, Tuple o2) -> {
-            if (orderByElements == null) {
-                return o1.toString().compareTo(o2.toString());
-            }
-
-            OrderByElement e0 = orderByElements.get(0);
-            int ind0 = getIndex(e0);
-            int val = Integer.parseInt(o1.get(ind0)) - Integer.parseInt(o2.get(ind0));
-            if (val == 0) {
-                for (int i = 1; i < orderByElements.size(); i++) {
-                    int index = getIndex(orderByElements.get(i));
-                    int value = Integer.parseInt(o1.get(index)) - Integer.parseInt(o2.get(index));
-
-                    if (value != 0) {
-                        return value;
-                    }
-                }
-            }
-            return val;
-        });
-
+        new TupleKeySorter(getSortColumns()).sort(tuples);
         index = 0;
     }
 
@@ -65,6 +57,7 @@ public class InMemorySortPhysicalOperator extends SortPhysicalOperator {
      */
     @Override
     public Tuple getNextTuple() {
+        sortTuples();
         if (index == tuples.size()) {
             return null;
         }
@@ -72,33 +65,57 @@ public class InMemorySortPhysicalOperator extends SortPhysicalOperator {
     }
 
     /**
-     * Resets child operator
+     * Gets next batch of sorted tuples in output
+     *
+     * @return Next batch of sorted tuples, or null
      */
     @Override
-    public void reset() {
-        child.reset();
+    public TupleBatch getNextBatch() {
+        sortTuples();
+        if (index == tuples.size()) {
+            return null;
+        }
+        if (batch == null) {
+            batch = new TupleBatch(tuples.get(0).length(), getBatchSize());
+        }
+        batch.clear();
+        while (!batch.isFull() && index < tuples.size()) {
+            batch.add(tuples.get(index++));
+        }
+        return batch;
     }
 
+    /**
+     * Moves back to the first sorted tuple, or resets the child if
+     * nothing has been sorted yet
+     */
     @Override
-    public void accept(PhysicalPlanVisitor visitor) {
-        visitor.visit(this);
+    public void reset() {
+        if (tuples == null) {
+            child.reset();
+        }
+        index = 0;
     }
 
     /**
-     * Gets column index in tuple based on input order by element
-     *
-     * @param e Input order by element
-     * @return Column index in tuples
+     * Stops the child if it has not been read yet. Sorted tuples
+     * are kept for the next reset.
      */
-    private int getIndex(OrderByElement e) {
-        Column col = (Column) e.getExpression();
-        String tableName = col.getTable().getName();
-        String columnName = col.getColumnName();
-        return DBCatalog.getInstance().getTable(tableName).getIndexForColumn(columnName);
+    @Override
+    public void stop() {
+        if (tuples == null) {
+            child.stop();
+        }
+    }
+
+    @Override
+    public void accept(PhysicalPlanVisitor visitor) {
+        visitor.visit(this);
     }
 
     @Override
     public void reset(int index) {
+        sortTuples();
         this.index = index;
     }
 }
@@ -1,8 +1,11 @@
 package com.prevosql.operator.physical.unary.sort;
 
 import com.prevosql.config.catalog.Catalog;
+import com.prevosql.config.catalog.DBCatalog;
 import com.prevosql.operator.physical.PhysicalOperator;
+import com.prevosql.operator.physical.binary.join.JoinPhysicalOperator;
 import com.prevosql.operator.physical.unary.UnaryPhysicalOperator;
+import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.statement.select.OrderByElement;
 
 import java.util.List;
@@ -25,6 +28,13 @@ public abstract class SortPhysicalOperator extends UnaryPhysicalOperator {
         super(child);
         this.child = child;
         this.orderByElements = orderByElements;
+
+        if (child instanceof JoinPhysicalOperator) {
+            ((JoinPhysicalOperator) child).createJoinedTable();
+            catalog = ((JoinPhysicalOperator) child).getCatalog();
+        } else {
+            catalog = DBCatalog.getInstance();
+        }
     }
 
     /**
@@ -34,6 +44,34 @@ public abstract class SortPhysicalOperator extends UnaryPhysicalOperator {
      */
     public abstract void reset(int index);
 
+    /**
+     * @return Tuple index of each order by element, or null if there
+     * are none and tuples are sorted on all of their attributes
+     */
+    int[] getSortColumns() {
+        if (orderByElements == null) {
+            return null;
+        }
+        int[] columns = new int[orderByElements.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = getIndex(orderByElements.get(i));
+        }
+        return columns;
+    }
+
+    /**
+     * Returns tuple index of column
+     *
+     * @param e Element to find index of
+     * @return Tuple index of column
+     */
+    private int getIndex(OrderByElement e) {
+        Column col = (Column) e.getExpression();
+        String tableName = col.getTable().getName();
+        String columnName = col.getColumnName();
+        return catalog.getTable(tableName).getIndexForColumn(columnName);
+    }
+
     /**
      * @return Elements to sort by
      */
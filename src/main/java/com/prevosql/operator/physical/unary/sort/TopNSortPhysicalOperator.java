@@ -0,0 +1,143 @@
+package com.prevosql.operator.physical.unary.sort;
+
+import com.prevosql.interpreter.query.plan.visitor.PhysicalPlanVisitor;
+import com.prevosql.operator.physical.PhysicalOperator;
+import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
+import com.prevosql.tuple.util.TupleKeySorter;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts only the first tuples of the child's sorted order. The child is
+ * read once through a heap that holds the smallest tuples seen so far,
+ * so memory is bounded by the number of tuples kept and nothing is
+ * written to disk.
+ */
+public class TopNSortPhysicalOperator extends SortPhysicalOperator {
+    private final int numTuples;
+    private Tuple[] tuples;
+    private int index = 0;
+    private TupleBatch batch;
+
+    /**
+     * Constructs a TopNSortPhysicalOperator. The child is read when the
+     * operator is first read.
+     *
+     * @param child Child operator to sort
+     * @param orderByElements Elements to sort on
+     * @param numTuples Number of tuples to keep
+     */
+    public TopNSortPhysicalOperator(PhysicalOperator child, List<OrderByElement> orderByElements, int numTuples) {
+        super(child, orderByElements);
+        this.numTuples = numTuples;
+    }
+
+    /**
+     * Keeps the numTuples smallest tuples of the child in a heap whose
+     * head is the largest of them, and sorts them once the child is used
+     * up. Does nothing if that has already been done.
+     */
+    private void sortTuples() {
+        if (tuples != null) {
+            return;
+        }
+        TupleKeySorter sorter = new TupleKeySorter(getSortColumns());
+        if (numTuples <= 0) {
+            tuples = new Tuple[0];
+            return;
+        }
+
+        PriorityQueue<Tuple> heap = new PriorityQueue<>(numTuples, sorter.reversed());
+        Tuple t;
+        while ((t = child.getNextTuple()) != null) {
+            if (heap.size() < numTuples) {
+                heap.add(t);
+            } else if (sorter.compare(t, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(t);
+            }
+        }
+
+        tuples = heap.toArray(new Tuple[0]);
+        sorter.sort(tuples, 0, tuples.length);
+        index = 0;
+    }
+
+    /**
+     * @return Next sorted tuple, or null
+     */
+    @Override
+    public Tuple getNextTuple() {
+        sortTuples();
+        return index < tuples.length ? tuples[index++] : null;
+    }
+
+    /**
+     * @return Next batch of sorted tuples, or null
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        sortTuples();
+        if (index >= tuples.length) {
+            return null;
+        }
+        if (batch == null) {
+            batch = new TupleBatch(tuples[0].length(), getBatchSize());
+        }
+        batch.clear();
+        while (!batch.isFull() && index < tuples.length) {
+            batch.add(tuples[index++]);
+        }
+        return batch;
+    }
+
+    /**
+     * Moves back to the first sorted tuple, or resets the child if
+     * nothing has been sorted yet
+     */
+    @Override
+    public void reset() {
+        if (tuples == null) {
+            child.reset();
+        }
+        index = 0;
+    }
+
+    /**
+     * Stops the child if it has not been read yet. Sorted tuples
+     * are kept for the next reset.
+     */
+    @Override
+    public void stop() {
+        if (tuples == null) {
+            child.stop();
+        }
+    }
+
+    @Override
+    public void reset(int index) {
+        sortTuples();
+        this.index = index;
+    }
+
+    @Override
+    public void close() {
+        tuples = null;
+        super.close();
+    }
+
+    @Override
+    public void accept(PhysicalPlanVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    /**
+     * @return Number of tuples kept
+     */
+    public int getNumTuples() {
+        return numTuples;
+    }
+}
@@ -0,0 +1,445 @@
+package com.prevosql.operator.visitor;
+
+import com.prevosql.config.catalog.Catalog;
+import com.prevosql.config.catalog.DBCatalog;
+import com.prevosql.config.catalog.Table;
+import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
+import net.sf.jsqlparser.expression.*;
+import net.sf.jsqlparser.expression.operators.arithmetic.*;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
+import net.sf.jsqlparser.expression.operators.relational.*;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.select.SubSelect;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Visitor that compiles a conjunction of comparisons into a predicate
+ * that is evaluated over whole tuple batches. Column indices are resolved
+ * once, and each comparison then refines the selection vector in a tight
+ * loop over a column array. Expressions that cannot be compiled fall back
+ * to a PhysicalOperatorExpressionVisitor per row.
+ */
+public class BatchExpressionVisitor implements ExpressionVisitor {
+    private static final int EQUALS = 0;
+    private static final int NOT_EQUALS = 1;
+    private static final int MINOR_THAN = 2;
+    private static final int MINOR_THAN_EQUALS = 3;
+    private static final int GREATER_THAN = 4;
+    private static final int GREATER_THAN_EQUALS = 5;
+
+    private static final int CONSTANT = -1;
+    private static final int UNRESOLVED = -2;
+
+    private final Expression expression;
+    private final Catalog catalog;
+    private final List<Comparison> comparisons;
+    private boolean supported = true;
+    private boolean unsatisfiable = false;
+
+    /**
+     * Compiles an expression for batch evaluation
+     *
+     * @param expression Expression to compile
+     * @param catalog Catalog used to resolve column indices
+     */
+    public BatchExpressionVisitor(Expression expression, Catalog catalog) {
+        this.expression = expression;
+        this.catalog = catalog;
+        this.comparisons = new ArrayList<>();
+        expression.accept(this);
+    }
+
+    /**
+     * Compiles an expression using the global DBCatalog
+     *
+     * @param expression Expression to compile
+     */
+    public BatchExpressionVisitor(Expression expression) {
+        this(expression, DBCatalog.getInstance());
+    }
+
+    /**
+     * Removes the rows of the batch that do not satisfy the expression
+     * from its selection vector
+     *
+     * @param batch Batch to filter in place
+     */
+    public void filter(TupleBatch batch) {
+        int[] rows = batch.getSelection();
+        int n = batch.getNumSelected();
+        if (!supported) {
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                if (evaluateRow(batch.getTuple(i))) {
+                    rows[k++] = rows[i];
+                }
+            }
+            batch.setNumSelected(k);
+            return;
+        }
+
+        n = filterRows(batch, null, -1, rows, n, rows);
+        batch.setNumSelected(n);
+    }
+
+    /**
+     * Finds the rows of an outer batch that satisfy the expression when
+     * concatenated with one row of an inner batch
+     *
+     * @param outer Outer (left) batch
+     * @param inner Inner (right) batch
+     * @param innerRow Position of the inner row
+     * @param out Array receiving the matching outer row positions
+     * @return Number of matching outer rows
+     */
+    public int filter(TupleBatch outer, TupleBatch inner, int innerRow, int[] out) {
+        int n = outer.getNumSelected();
+        int[] rows = outer.getSelection();
+        if (!supported) {
+            int k = 0;
+            int offset = outer.getNumAttributes();
+            int[] values = new int[offset + inner.getNumAttributes()];
+            for (int i = 0; i < n; i++) {
+                int row = rows[i];
+                for (int j = 0; j < offset; j++) {
+                    values[j] = outer.get(j, row);
+                }
+                for (int j = offset; j < values.length; j++) {
+                    values[j] = inner.get(j - offset, innerRow);
+                }
+                if (evaluateRow(new Tuple(values))) {
+                    out[k++] = row;
+                }
+            }
+            return k;
+        }
+
+        return filterRows(outer, inner, innerRow, rows, n, out);
+    }
+
+    /**
+     * Applies every compiled comparison in turn
+     *
+     * @return Number of rows left in out
+     */
+    private int filterRows(TupleBatch outer, TupleBatch inner, int innerRow, int[] rows, int n, int[] out) {
+        if (unsatisfiable) {
+            return 0;
+        }
+        if (rows != out) {
+            System.arraycopy(rows, 0, out, 0, n);
+        }
+        for (Comparison c : comparisons) {
+            if (n == 0) {
+                break;
+            }
+            n = c.filter(outer, inner, innerRow, out, n);
+        }
+        return n;
+    }
+
+    private boolean evaluateRow(Tuple t) {
+        PhysicalOperatorExpressionVisitor ov = new PhysicalOperatorExpressionVisitor(t, catalog);
+        expression.accept(ov);
+        return ov.getResult();
+    }
+
+    public void visit(AndExpression andExpression) {
+        andExpression.getLeftExpression().accept(this);
+        andExpression.getRightExpression().accept(this);
+    }
+
+    public void visit(EqualsTo equalsTo) {
+        addComparison(equalsTo, EQUALS);
+    }
+
+    public void visit(NotEqualsTo notEqualsTo) {
+        addComparison(notEqualsTo, NOT_EQUALS);
+    }
+
+    public void visit(MinorThan minorThan) {
+        addComparison(minorThan, MINOR_THAN);
+    }
+
+    public void visit(MinorThanEquals minorThanEquals) {
+        addComparison(minorThanEquals, MINOR_THAN_EQUALS);
+    }
+
+    public void visit(GreaterThan greaterThan) {
+        addComparison(greaterThan, GREATER_THAN);
+    }
+
+    public void visit(GreaterThanEquals greaterThanEquals) {
+        addComparison(greaterThanEquals, GREATER_THAN_EQUALS);
+    }
+
+    public void visit(LongValue longValue) { supported = false; }
+    public void visit(Column tableColumn) { supported = false; }
+
+    /**
+     * Resolves both sides of a comparison and adds it to the predicate
+     *
+     * @param e Comparison expression
+     * @param operator Comparison operator
+     */
+    private void addComparison(BinaryExpression e, int operator) {
+        Comparison c = new Comparison();
+        c.operator = operator;
+        c.leftIndex = resolve(e.getLeftExpression());
+        c.rightIndex = resolve(e.getRightExpression());
+        if (c.leftIndex == UNRESOLVED || c.rightIndex == UNRESOLVED) {
+            unsatisfiable = true;
+            return;
+        }
+        if (!supported) {
+            // operands other than columns and literals are evaluated per row
+            return;
+        }
+        if (c.leftIndex == CONSTANT) {
+            c.leftConstant = ((LongValue) e.getLeftExpression()).getValue();
+        }
+        if (c.rightIndex == CONSTANT) {
+            c.rightConstant = ((LongValue) e.getRightExpression()).getValue();
+        }
+        comparisons.add(c);
+    }
+
+    /**
+     * Resolves an operand to a tuple index
+     *
+     * @param e Operand
+     * @return Tuple index of the column, CONSTANT for literals, or UNRESOLVED
+     */
+    private int resolve(Expression e) {
+        if (e instanceof LongValue) {
+            return CONSTANT;
+        }
+        if (!(e instanceof Column)) {
+            supported = false;
+            return CONSTANT;
+        }
+
+        Column column = (Column) e;
+        if (column.getTable() == null || column.getTable().getName() == null) {
+            return UNRESOLVED;
+        }
+        String tableName = column.getTable().getName();
+        String fullName;
+        if ((fullName = DBCatalog.getInstance().getTableName(tableName)) == null) {
+            fullName = tableName;
+        }
+        Table table = catalog.getTable(fullName);
+        if (table == null) {
+            return UNRESOLVED;
+        }
+        Integer index = table.getIndexForColumn(column.getColumnName());
+        return index == null ? UNRESOLVED : index;
+    }
+
+    /**
+     * A single compiled comparison between two operands, each of which
+     * is either a constant or a tuple index
+     */
+    private static class Comparison {
+        int operator;
+        int leftIndex;
+        int rightIndex;
+        long leftConstant;
+        long rightConstant;
+
+        /**
+         * Keeps the rows in out[0, n) that satisfy this comparison. Indices
+         * past the outer batch's attributes refer to the inner row, which is
+         * constant for the duration of the call.
+         *
+         * @return Number of rows kept
+         */
+        int filter(TupleBatch outer, TupleBatch inner, int innerRow, int[] out, int n) {
+            int outerAttributes = outer.getNumAttributes();
+            int[] leftColumn = null;
+            int[] rightColumn = null;
+            long left = leftConstant;
+            long right = rightConstant;
+
+            if (leftIndex >= outerAttributes) {
+                if (inner == null) {
+                    return 0;
+                }
+                left = inner.get(leftIndex - outerAttributes, innerRow);
+            } else if (leftIndex != CONSTANT) {
+                leftColumn = outer.getColumn(leftIndex);
+            }
+
+            if (rightIndex >= outerAttributes) {
+                if (inner == null) {
+                    return 0;
+                }
+                right = inner.get(rightIndex - outerAttributes, innerRow);
+            } else if (rightIndex != CONSTANT) {
+                rightColumn = outer.getColumn(rightIndex);
+            }
+
+            if (leftColumn != null && rightColumn != null) {
+                return filterColumns(leftColumn, operator, rightColumn, out, n);
+            } else if (leftColumn != null) {
+                return filterConstant(leftColumn, operator, right, out, n);
+            } else if (rightColumn != null) {
+                return filterConstant(rightColumn, flip(operator), left, out, n);
+            } else {
+                return compare(left, operator, right) ? n : 0;
+            }
+        }
+    }
+
+    private static int flip(int operator) {
+        switch (operator) {
+            case MINOR_THAN:
+                return GREATER_THAN;
+            case MINOR_THAN_EQUALS:
+                return GREATER_THAN_EQUALS;
+            case GREATER_THAN:
+                return MINOR_THAN;
+            case GREATER_THAN_EQUALS:
+                return MINOR_THAN_EQUALS;
+            default:
+                return operator;
+        }
+    }
+
+    private static boolean compare(long left, int operator, long right) {
+        switch (operator) {
+            case EQUALS:
+                return left == right;
+            case NOT_EQUALS:
+                return left != right;
+            case MINOR_THAN:
+                return left < right;
+            case MINOR_THAN_EQUALS:
+                return left <= right;
+            case GREATER_THAN:
+                return left > right;
+            default:
+                return left >= right;
+        }
+    }
+
+    /**
+     * Keeps the rows whose column value compares true against a constant
+     */
+    private static int filterConstant(int[] column, int operator, long constant, int[] rows, int n) {
+        int k = 0;
+        switch (operator) {
+            case EQUALS:
+                for (int i = 0; i < n; i++) {
+                    int row = rows[i];
+                    rows[k] = row;
+                    k += column[row] == constant ? 1 : 0;
+                }
+                break;
+            case NOT_EQUALS:
+                for (int i = 0; i < n; i++) {
+                    int row = rows[i];
+                    rows[k] = row;
+                    k += column[row] != constant ? 1 : 0;
+                }
+                break;
+            case MINOR_THAN:
+                for (int i = 0; i < n; i++) {
+                    int row = rows[i];
+                    rows[k] = row;
+                    k += column[row] < constant ? 1 : 0;
+                }
+                break;
+            case MINOR_THAN_EQUALS:
+                for (int i = 0; i < n; i++) {
+                    int row = rows[i];
+                    rows[k] = row;
+                    k += column[row] <= constant ? 1 : 0;
+                }
+                break;
+            case GREATER_THAN:
+                for (int i = 0; i < n; i++) {
+                    int row = rows[i];
+                    rows[k] = row;
+                    k += column[row] > constant ? 1 : 0;
+                }
+                break;
+            default:
+                for (int i = 0; i < n; i++) {
+                    int row = rows[i];
+                    rows[k] = row;
+                    k += column[row] >= constant ? 1 : 0;
+                }
+                break;
+        }
+        return k;
+    }
+
+    /**
+     * Keeps the rows whose values in two columns compare true
+     */
+    private static int filterColumns(int[] left, int operator, int[] right, int[] rows, int n) {
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            int row = rows[i];
+            rows[k] = row;
+            k += compare(left[row], operator, right[row]) ? 1 : 0;
+        }
+        return k;
+    }
+
+    //----------------------------------------------
+
+    public void visit(NullValue nullValue) { supported = false; }
+    public void visit(Function function) { supported = false; }
+    public void visit(SignedExpression signedExpression) { supported = false; }
+    public void visit(JdbcParameter jdbcParameter) { supported = false; }
+    public void visit(JdbcNamedParameter jdbcNamedParameter) { supported = false; }
+    public void visit(DoubleValue doubleValue) { supported = false; }
+    public void visit(HexValue hexValue) { supported = false; }
+    public void visit(DateValue dateValue) { supported = false; }
+    public void visit(TimeValue timeValue) { supported = false; }
+    public void visit(TimestampValue timestampValue) { supported = false; }
+    public void visit(Parenthesis parenthesis) { supported = false; }
+    public void visit(StringValue stringValue) { supported = false; }
+    public void visit(Addition addition) { supported = false; }
+    public void visit(Division division) { supported = false; }
+    public void visit(Multiplication multiplication) { supported = false; }
+    public void visit(Subtraction subtraction) { supported = false; }
+    public void visit(OrExpression orExpression) { supported = false; }
+    public void visit(Between between) { supported = false; }
+    public void visit(InExpression inExpression) { supported = false; }
+    public void visit(IsNullExpression isNullExpression) { supported = false; }
+    public void visit(LikeExpression likeExpression) { supported = false; }
+    public void visit(SubSelect subSelect) { supported = false; }
+    public void visit(CaseExpression caseExpression) { supported = false; }
+    public void visit(WhenClause whenClause) { supported = false; }
+    public void visit(ExistsExpression existsExpression) { supported = false; }
+    public void visit(AllComparisonExpression allComparisonExpression) { supported = false; }
+    public void visit(AnyComparisonExpression anyComparisonExpression) { supported = false; }
+    public void visit(Concat concat) { supported = false; }
+    public void visit(Matches matches) { supported = false; }
+    public void visit(BitwiseAnd bitwiseAnd) { supported = false; }
+    public void visit(BitwiseOr bitwiseOr) { supported = false; }
+    public void visit(BitwiseXor bitwiseXor) { supported = false; }
+    public void visit(CastExpression cast) { supported = false; }
+    public void visit(Modulo modulo) { supported = false; }
+    public void visit(AnalyticExpression aexpr) { supported = false; }
+    public void visit(WithinGroupExpression wgexpr) { supported = false; }
+    public void visit(ExtractExpression eexpr) { supported = false; }
+    public void visit(IntervalExpression iexpr) { supported = false; }
+    public void visit(OracleHierarchicalExpression oexpr) { supported = false; }
+    public void visit(RegExpMatchOperator rexpr) { supported = false; }
+    public void visit(JsonExpression jsonExpr) { supported = false; }
+    public void visit(RegExpMySQLOperator regExpMySQLOperator) { supported = false; }
+    public void visit(UserVariable var) { supported = false; }
+    public void visit(NumericBind bind) { supported = false; }
+    public void visit(KeepExpression aexpr) { supported = false; }
+    public void visit(MySQLGroupConcat groupConcat) { supported = false; }
+    public void visit(RowConstructor rowConstructor) { supported = false; }
+    public void visit(OracleHint hint) { supported = false; }
+}
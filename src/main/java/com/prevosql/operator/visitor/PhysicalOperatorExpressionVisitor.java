@@ -19,6 +19,9 @@ public class PhysicalOperatorExpressionVisitor implements ExpressionVisitor {
     private final Tuple tuple;
     private boolean satisfied;
     private Catalog catalog;
+    private long value;
+    private long leftValue;
+    private long rightValue;
 
     /**
      * Initializes OperatorExpressionVisitor
@@ -53,127 +56,96 @@ public class PhysicalOperatorExpressionVisitor implements ExpressionVisitor {
      * @param minorThan Input expression
      */
     public void visit(MinorThan minorThan) {
-        String value = evaluateExpression(minorThan.getLeftExpression());
-        String queried = evaluateExpression(minorThan.getRightExpression());
-        if (value == null) {
-            satisfied = false;
-            return;
-        }
-        float storedVal = Float.parseFloat(value);
-        assert queried != null;
-        float queryVal = Float.parseFloat(queried);
-        satisfied = storedVal < queryVal;
+        satisfied = evaluateOperands(minorThan) && leftValue < rightValue;
     }
 
     public void visit(MinorThanEquals minorThanEquals) {
-        String value = evaluateExpression(minorThanEquals.getLeftExpression());
-        String queried = evaluateExpression(minorThanEquals.getRightExpression());
-        if (value == null) {
-            satisfied = false;
-            return;
-        }
-        float storedVal = Float.parseFloat(value);
-        assert queried != null;
-        float queryVal = Float.parseFloat(queried);
-        satisfied = storedVal <= queryVal;
+        satisfied = evaluateOperands(minorThanEquals) && leftValue <= rightValue;
     }
 
     public void visit(NotEqualsTo notEqualsTo) {
-        String value = evaluateExpression(notEqualsTo.getLeftExpression());
-        String queried = evaluateExpression(notEqualsTo.getRightExpression());
-        if (value == null) {
-            satisfied = false;
-            return;
-        }
-        satisfied = !value.equalsIgnoreCase(queried);
+        satisfied = evaluateOperands(notEqualsTo) && leftValue != rightValue;
     }
 
     public void visit(Column tableColumn) { }
 
     public void visit(AndExpression andExpression) {
-        PhysicalOperatorExpressionVisitor ov1 = new PhysicalOperatorExpressionVisitor(tuple, catalog);
-        andExpression.getLeftExpression().accept(ov1);
-        PhysicalOperatorExpressionVisitor ov2;
-        ov2 = new PhysicalOperatorExpressionVisitor(tuple, catalog);
-        andExpression.getRightExpression().accept(ov2);
-        satisfied = ov1.getResult() && ov2.getResult();
+        andExpression.getLeftExpression().accept(this);
+        if (!satisfied) {
+            return;
+        }
+        andExpression.getRightExpression().accept(this);
     }
 
     public void visit(EqualsTo equalsTo) {
-        String value = evaluateExpression(equalsTo.getLeftExpression());
-        String queried = evaluateExpression(equalsTo.getRightExpression());
-        if (value == null) {
-            satisfied = false;
-            return;
-        }
-        satisfied = value.equalsIgnoreCase(queried);
+        satisfied = evaluateOperands(equalsTo) && leftValue == rightValue;
     }
 
     public void visit(GreaterThan greaterThan) {
-        String value = evaluateExpression(greaterThan.getLeftExpression());
-        String queried = evaluateExpression(greaterThan.getRightExpression());
-        if (value == null) {
-            satisfied = false;
-            return;
-        }
-        float storedValue = Float.parseFloat(value);
-        assert queried != null;
-        float queryValue = Float.parseFloat(queried);
-        satisfied = storedValue > queryValue;
+        satisfied = evaluateOperands(greaterThan) && leftValue > rightValue;
     }
 
     public void visit(GreaterThanEquals greaterThanEquals) {
-        String value = evaluateExpression(greaterThanEquals.getLeftExpression());
-        String queried = evaluateExpression(greaterThanEquals.getRightExpression());
-        if (value == null) {
-            satisfied = false;
-            return;
+        satisfied = evaluateOperands(greaterThanEquals) && leftValue >= rightValue;
+    }
+
+    /**
+     * Evaluates both sides of a comparison into leftValue and rightValue
+     *
+     * @param e Input comparison
+     * @return Whether or not both sides could be evaluated
+     */
+    private boolean evaluateOperands(BinaryExpression e) {
+        if (!evaluateExpression(e.getLeftExpression())) {
+            return false;
         }
-        float storedValue = Float.parseFloat(value);
-        assert queried != null;
-        float queryValue = Float.parseFloat(queried);
-        satisfied = storedValue >= queryValue;
+        leftValue = value;
+        if (!evaluateExpression(e.getRightExpression())) {
+            return false;
+        }
+        rightValue = value;
+        return true;
     }
 
     /**
      * Evaluates an expression and extracts leftTuple information based
-     * on the expression
+     * on the expression. The result is stored in value
      *
      * @param e Input expression
-     * @return Tuple information based on expression
+     * @return Whether or not the expression could be evaluated
      */
-    private String evaluateExpression(Expression e) {
+    private boolean evaluateExpression(Expression e) {
         if (e instanceof LongValue) {
-            return e.toString();
+            value = ((LongValue) e).getValue();
+            return true;
         }
 
         Column column = (Column) e;
         String columnVal = column.getColumnName();
 
-        if (column.getTable() != null) {
-            String tableName = column.getTable().getName();
-            String fullName;
-            if ((fullName = DBCatalog.getInstance().getTableName(tableName)) == null) {
-                fullName = tableName;
-            }
-            Table table = catalog.getTable(fullName);
-            int index;
-            try {
-                index = table.getIndexForColumn(columnVal);
-            } catch (NullPointerException n) {
-                System.err.println("Invalid column selected");
-                return null;
-            }
-
-            try {
-                return tuple.get(index);
-
-            } catch (NullPointerException n) {
-                return null;
-            }
-        } else {
-            return column.toString();
+        if (column.getTable() == null || column.getTable().getName() == null) {
+            return false;
+        }
+
+        String tableName = column.getTable().getName();
+        String fullName;
+        if ((fullName = DBCatalog.getInstance().getTableName(tableName)) == null) {
+            fullName = tableName;
+        }
+        Table table = catalog.getTable(fullName);
+        Integer index;
+        try {
+            index = table.getIndexForColumn(columnVal);
+        } catch (NullPointerException n) {
+            System.err.println("Invalid column selected");
+            return false;
+        }
+
+        if (index == null) {
+            return false;
         }
+        value = tuple.get(index);
+        return true;
     }
 
     //----------------------------------------------
@@ -1,10 +1,24 @@
 package com.prevosql.tuple;
 
+import java.util.Arrays;
+
 /**
- * Internal class for representing tuples
+ * Internal class for representing tuples. Values are stored
+ * as primitive ints; conversion to and from strings only happens
+ * at the plain text boundaries (plain readers/writers and printing)
  */
-public class Tuple {
-    private final String[] array;
+public class Tuple implements Comparable<Tuple> {
+    private final int[] array;
+
+    /**
+     * Builds tuple from a list of int values. The array is
+     * used as is and is not copied
+     *
+     * @param values Input values for tuple
+     */
+    public Tuple(int... values) {
+        array = values;
+    }
 
     /**
      * Builds tuple from list of string arguments
@@ -12,7 +26,10 @@ public class Tuple {
      * @param args Input strings for tuple values
      */
     public Tuple(String... args) {
-        array = args;
+        array = new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            array[i] = Integer.parseInt(args[i].trim());
+        }
     }
 
     /**
@@ -21,7 +38,7 @@ public class Tuple {
      * @param args Comma-delimited string
      */
     public Tuple(String args) {
-        array = args.split(",");
+        this(args.split(","));
     }
 
     /**
@@ -31,7 +48,7 @@ public class Tuple {
      * @param t2 Input tuple
      */
     public Tuple(Tuple t1, Tuple t2) {
-        String[] newArray = new String[t1.array.length + t2.array.length];
+        int[] newArray = new int[t1.array.length + t2.array.length];
         System.arraycopy(t1.array, 0, newArray, 0, t1.array.length);
         System.arraycopy(t2.array, 0, newArray, t1.array.length, t2.array.length);
         array = newArray;
@@ -43,7 +60,7 @@ public class Tuple {
      * @param i Input index
      * @return Value of tuple at index
      */
-    public String get(int i) {
+    public int get(int i) {
         return array[i];
     }
 
@@ -54,7 +71,14 @@ public class Tuple {
      */
     @Override
     public String toString() {
-        return String.join(",", array);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < array.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(array[i]);
+        }
+        return sb.toString();
     }
 
     /**
@@ -65,15 +89,27 @@ public class Tuple {
      * @return Whether or not these tuples are equivalent
      */
     public Boolean equals(Tuple other) {
-        if (other.array.length != array.length) {
-            return false;
-        }
-        for (int i = 0; i < array.length; i++) {
-            if (!get(i).equals(other.get(i))) {
-                return false;
+        return Arrays.equals(array, other.array);
+    }
+
+    /**
+     * Compares two tuples attribute by attribute, from
+     * the first attribute to the last
+     *
+     * @param other Tuple to compare against
+     * @return Negative if this tuple comes first, positive if other
+     * comes first, 0 if they are equal
+     */
+    @Override
+    public int compareTo(Tuple other) {
+        int length = Math.min(array.length, other.array.length);
+        for (int i = 0; i < length; i++) {
+            int val = Integer.compare(array[i], other.array[i]);
+            if (val != 0) {
+                return val;
             }
         }
-        return true;
+        return array.length - other.array.length;
     }
 
     public int length() {
@@ -0,0 +1,220 @@
+package com.prevosql.tuple;
+
+/**
+ * Column-major batch of tuples used for vectorized execution. The values
+ * of each attribute are stored in their own int array, and a selection
+ * vector holds the row positions that are still valid. Filters refine the
+ * selection vector instead of moving any values around.
+ */
+public class TupleBatch {
+    private final int numAttributes;
+    private final int capacity;
+    private final int[][] columns;
+    private final int[] selection;
+    private int size;
+    private int numSelected;
+
+    /**
+     * Constructs an empty batch
+     *
+     * @param numAttributes Number of attributes of each tuple in the batch
+     * @param capacity Maximum number of rows in the batch
+     */
+    public TupleBatch(int numAttributes, int capacity) {
+        this.numAttributes = numAttributes;
+        this.capacity = capacity;
+        this.columns = new int[numAttributes][capacity];
+        this.selection = new int[capacity];
+    }
+
+    /**
+     * Constructs a batch that shares column arrays and the selection
+     * vector with another batch
+     *
+     * @param columns Column arrays of the new batch
+     * @param other Batch to share the selection vector with
+     */
+    private TupleBatch(int[][] columns, TupleBatch other) {
+        this.numAttributes = columns.length;
+        this.capacity = other.capacity;
+        this.columns = columns;
+        this.selection = other.selection;
+        this.size = other.size;
+        this.numSelected = other.numSelected;
+    }
+
+    /**
+     * Reserves a new row at the end of the batch and marks it as
+     * selected. The caller is responsible for filling in its values.
+     *
+     * @return Position of the new row
+     */
+    public int appendRow() {
+        selection[numSelected++] = size;
+        return size++;
+    }
+
+    /**
+     * Appends a tuple to the batch
+     *
+     * @param t Tuple to append
+     */
+    public void add(Tuple t) {
+        int row = appendRow();
+        for (int i = 0; i < numAttributes; i++) {
+            columns[i][row] = t.get(i);
+        }
+    }
+
+    /**
+     * Appends the concatenation of two tuples to the batch
+     *
+     * @param left Left tuple
+     * @param right Right tuple
+     */
+    public void add(Tuple left, Tuple right) {
+        int row = appendRow();
+        int offset = left.length();
+        for (int i = 0; i < offset; i++) {
+            columns[i][row] = left.get(i);
+        }
+        for (int i = offset; i < numAttributes; i++) {
+            columns[i][row] = right.get(i - offset);
+        }
+    }
+
+    /**
+     * Appends a row copied from another batch
+     *
+     * @param other Batch to copy from
+     * @param row Position of the row in the other batch
+     */
+    public void add(TupleBatch other, int row) {
+        int newRow = appendRow();
+        for (int i = 0; i < numAttributes; i++) {
+            columns[i][newRow] = other.columns[i][row];
+        }
+    }
+
+    /**
+     * Appends the concatenation of two rows from two batches
+     *
+     * @param left Batch containing the left row
+     * @param leftRow Position of the left row
+     * @param right Batch containing the right row
+     * @param rightRow Position of the right row
+     */
+    public void add(TupleBatch left, int leftRow, TupleBatch right, int rightRow) {
+        int row = appendRow();
+        int offset = left.numAttributes;
+        for (int i = 0; i < offset; i++) {
+            columns[i][row] = left.columns[i][leftRow];
+        }
+        for (int i = offset; i < numAttributes; i++) {
+            columns[i][row] = right.columns[i - offset][rightRow];
+        }
+    }
+
+    /**
+     * Builds a view of this batch containing only some of its attributes.
+     * No values are copied.
+     *
+     * @param indices Attribute indices to keep, in output order
+     * @return Projected batch
+     */
+    public TupleBatch project(int[] indices) {
+        int[][] projected = new int[indices.length][];
+        for (int i = 0; i < indices.length; i++) {
+            projected[i] = columns[indices[i]];
+        }
+        return new TupleBatch(projected, this);
+    }
+
+    /**
+     * Materializes a selected row as a tuple
+     *
+     * @param i Index into the selection vector
+     * @return Tuple at that position
+     */
+    public Tuple getTuple(int i) {
+        int row = selection[i];
+        int[] values = new int[numAttributes];
+        for (int j = 0; j < numAttributes; j++) {
+            values[j] = columns[j][row];
+        }
+        return new Tuple(values);
+    }
+
+    /**
+     * Gets a single value from the batch
+     *
+     * @param attribute Attribute index
+     * @param row Row position (not an index into the selection vector)
+     * @return Value of attribute at row
+     */
+    public int get(int attribute, int row) {
+        return columns[attribute][row];
+    }
+
+    /**
+     * @param attribute Attribute index
+     * @return Values of the attribute, indexed by row position
+     */
+    public int[] getColumn(int attribute) {
+        return columns[attribute];
+    }
+
+    /**
+     * @return Positions of the selected rows, valid up to getNumSelected()
+     */
+    public int[] getSelection() {
+        return selection;
+    }
+
+    /**
+     * @return Number of selected rows
+     */
+    public int getNumSelected() {
+        return numSelected;
+    }
+
+    /**
+     * Sets the number of selected rows after the selection vector
+     * has been refined
+     *
+     * @param numSelected New number of selected rows
+     */
+    public void setNumSelected(int numSelected) {
+        this.numSelected = numSelected;
+    }
+
+    /**
+     * @return Number of rows stored in the batch, selected or not
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Whether or not there is room for another row
+     */
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Empties the batch so it can be reused
+     */
+    public void clear() {
+        size = 0;
+        numSelected = 0;
+    }
+
+    public int getNumAttributes() {
+        return numAttributes;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
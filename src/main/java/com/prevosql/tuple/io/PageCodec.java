@@ -0,0 +1,232 @@
+package com.prevosql.tuple.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Describes the PAX and compressed binary page formats and decodes them.
+ *
+ * A PAX page starts with the same two header ints as a plain page,
+ * except that PAX is or-ed into the number of attributes. It holds as
+ * many tuples as a plain page, but stores each attribute in its own
+ * minipage: attribute c of tuple t is at 8 + 4 * (c * capacity + t),
+ * where capacity is the number of tuples that fit on a plain page.
+ *
+ * A compressed page starts with the same two header ints as a plain
+ * page, except that COMPRESSED is or-ed into the number of attributes.
+ * Each column follows in order, with a one byte encoding, a one byte
+ * bit width, an int base and an int minimum delta, and then its values
+ * bit-packed at that width:
+ * <ul>
+ *     <li>FRAME_OF_REFERENCE: value - base, where base is the smallest value on the page</li>
+ *     <li>DELTA: difference from the previous value - minimum delta, where base is the first value</li>
+ * </ul>
+ */
+public final class PageCodec {
+    public static final int PAGE_SIZE = 4096;
+    public static final int HEADER_SIZE = 8;
+    public static final int COLUMN_HEADER_SIZE = 10;
+    public static final int COMPRESSED = 1 << 30;
+    public static final int PAX = 1 << 29;
+    public static final int MAX_TUPLES_PER_PAGE = 4096;
+
+    public static final byte FRAME_OF_REFERENCE = 1;
+    public static final byte DELTA = 2;
+
+    /**
+     * Private constructor so that PageCodec is only used statically
+     */
+    private PageCodec() {
+        throw new UnsupportedOperationException("PageCodec cannot be instantiated");
+    }
+
+    /**
+     * @param header First int of a page
+     * @return Whether or not the page is compressed
+     */
+    public static boolean isCompressed(int header) {
+        return (header & COMPRESSED) != 0;
+    }
+
+    /**
+     * @param header First int of a page
+     * @return Whether or not the page uses the PAX layout
+     */
+    public static boolean isPax(int header) {
+        return (header & PAX) != 0;
+    }
+
+    /**
+     * @param header First int of a page
+     * @return Number of attributes of the tuples on the page
+     */
+    public static int getNumAttributes(int header) {
+        return header & ~(COMPRESSED | PAX);
+    }
+
+    /**
+     * @param numAttributes Number of attributes of each tuple
+     * @return Number of tuples that fit on a plain or PAX page
+     */
+    public static int getCapacity(int numAttributes) {
+        return (PAGE_SIZE - HEADER_SIZE) / (4 * numAttributes);
+    }
+
+    /**
+     * Decodes a PAX page into the plain page layout. Attributes that
+     * are not needed are skipped and left untouched in the destination.
+     * The destination is cleared and flipped, ready to be read.
+     *
+     * @param src Buffer holding the PAX page
+     * @param offset Position of the page in src
+     * @param dst Buffer to decode into
+     * @param needed Attributes to decode, or null to decode all of them
+     */
+    public static void decodePax(ByteBuffer src, int offset, ByteBuffer dst, boolean[] needed) {
+        int numAttributes = getNumAttributes(src.getInt(offset));
+        int numTuples = src.getInt(offset + 4);
+        int capacity = getCapacity(numAttributes);
+        dst.clear();
+        dst.putInt(0, numAttributes);
+        dst.putInt(4, numTuples);
+
+        for (int c = 0; c < numAttributes; c++) {
+            if (needed != null && !needed[c]) {
+                continue;
+            }
+            int in = offset + HEADER_SIZE + c * capacity * 4;
+            int out = HEADER_SIZE + c * 4;
+            for (int i = 0; i < numTuples; i++) {
+                dst.putInt(out, src.getInt(in));
+                in += 4;
+                out += numAttributes * 4;
+            }
+        }
+        dst.limit(HEADER_SIZE + numTuples * numAttributes * 4);
+    }
+
+    /**
+     * @param range Difference between the largest and smallest value to store
+     * @return Number of bits needed to store every value in the range
+     */
+    public static int bitWidth(long range) {
+        return 64 - Long.numberOfLeadingZeros(range);
+    }
+
+    /**
+     * @param numTuples Number of values in the column
+     * @param width Bit width of each value
+     * @return Number of bytes the column takes on a page, including its header
+     */
+    public static int columnSize(int numTuples, int width) {
+        return COLUMN_HEADER_SIZE + (int) (((long) numTuples * width + 7) / 8);
+    }
+
+    /**
+     * Decodes a compressed page into the plain page layout: the two
+     * header ints followed by the tuples, one attribute after another.
+     * The destination is cleared and flipped, ready to be read.
+     *
+     * @param src Buffer holding the compressed page
+     * @param offset Position of the page in src
+     * @param dst Buffer to decode into, with room for MAX_TUPLES_PER_PAGE tuples
+     * @param needed Attributes to decode, or null to decode all of them.
+     *               Attributes that are not needed are left untouched in dst
+     */
+    public static void decode(ByteBuffer src, int offset, ByteBuffer dst, boolean[] needed) {
+        int numAttributes = getNumAttributes(src.getInt(offset));
+        int numTuples = src.getInt(offset + 4);
+        dst.clear();
+        dst.putInt(0, numAttributes);
+        dst.putInt(4, numTuples);
+
+        int pos = offset + HEADER_SIZE;
+        for (int c = 0; c < numAttributes; c++) {
+            byte encoding = src.get(pos);
+            int width = src.get(pos + 1);
+            int base = src.getInt(pos + 2);
+            int minDelta = src.getInt(pos + 6);
+            pos += COLUMN_HEADER_SIZE;
+            if (needed != null && !needed[c]) {
+                pos += columnSize(numTuples, width) - COLUMN_HEADER_SIZE;
+                continue;
+            }
+
+            long mask = width == 0 ? 0 : -1L >>> (64 - width);
+            long acc = 0;
+            int bits = 0;
+            int prev = base;
+            int out = HEADER_SIZE + c * 4;
+            for (int i = 0; i < numTuples; i++) {
+                while (bits < width) {
+                    acc |= (src.get(pos++) & 0xFFL) << bits;
+                    bits += 8;
+                }
+                int packed = (int) (acc & mask);
+                acc >>>= width;
+                bits -= width;
+
+                int value;
+                if (encoding == DELTA) {
+                    value = i == 0 ? base : prev + minDelta + packed;
+                } else {
+                    value = base + packed;
+                }
+                prev = value;
+                dst.putInt(out, value);
+                out += numAttributes * 4;
+            }
+        }
+        dst.limit(HEADER_SIZE + numTuples * numAttributes * 4);
+    }
+
+    /**
+     * Bit-packs values into a buffer
+     *
+     * @param dst Buffer to write to, at its current position
+     * @param values Values to pack, already relative to their base
+     * @param from First value to pack
+     * @param to One past the last value to pack
+     * @param width Number of bits per value
+     */
+    public static void pack(ByteBuffer dst, long[] values, int from, int to, int width) {
+        long mask = width == 0 ? 0 : -1L >>> (64 - width);
+        long acc = 0;
+        int bits = 0;
+        for (int i = from; i < to; i++) {
+            acc |= (values[i] & mask) << bits;
+            bits += width;
+            while (bits >= 8) {
+                dst.put((byte) acc);
+                acc >>>= 8;
+                bits -= 8;
+            }
+        }
+        if (bits > 0) {
+            dst.put((byte) acc);
+        }
+    }
+
+    /**
+     * Finds the page holding a tuple of a file whose pages hold
+     * varying numbers of tuples
+     *
+     * @param firstTuples Index of the first tuple of each page, followed
+     *                    by the total number of tuples in the file
+     * @param index Index of the tuple to find
+     * @return Page holding the tuple, or the last page if the index is
+     * past the end of the file
+     */
+    public static int findPage(int[] firstTuples, int index) {
+        int lo = 0;
+        int hi = firstTuples.length - 2;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (firstTuples[mid] <= index) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+}
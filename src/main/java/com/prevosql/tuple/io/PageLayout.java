@@ -0,0 +1,19 @@
+package com.prevosql.tuple.io;
+
+/**
+ * Models the ways tuples can be laid out on a binary page
+ */
+public enum PageLayout {
+    /**
+     * Tuples stored one after another
+     */
+    ROW,
+    /**
+     * Each attribute stored in its own minipage
+     */
+    PAX,
+    /**
+     * Each attribute encoded and bit-packed on its own (see PageCodec)
+     */
+    COMPRESSED
+}
@@ -0,0 +1,205 @@
+package com.prevosql.tuple.io;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Smallest and largest value of every attribute on every page of a
+ * binary tuple file. Scans use it to skip pages that cannot hold any
+ * tuple matching a range predicate.
+ *
+ * A zone map is kept in a sidecar file next to the file it describes,
+ * along with the length and modification time of that file so that a
+ * stale zone map is never used.
+ */
+public class ZoneMap {
+    private final int numAttributes;
+    private int numPages = 0;
+    private int[] numTuples;
+    private int[] mins;
+    private int[] maxs;
+
+    private static final String EXTENSION = ".zonemap";
+
+    /**
+     * Constructs an empty zone map
+     *
+     * @param numAttributes Number of attributes of each tuple
+     */
+    public ZoneMap(int numAttributes) {
+        this.numAttributes = numAttributes;
+        this.numTuples = new int[16];
+        this.mins = new int[16 * numAttributes];
+        this.maxs = new int[16 * numAttributes];
+    }
+
+    /**
+     * Records the bounds of the next page of the file
+     *
+     * @param page Buffer holding the page in the plain layout
+     * @param offset Position of the page in the buffer
+     */
+    public void addPage(ByteBuffer page, int offset) {
+        if (numPages == numTuples.length) {
+            numTuples = Arrays.copyOf(numTuples, numPages * 2);
+            mins = Arrays.copyOf(mins, mins.length * 2);
+            maxs = Arrays.copyOf(maxs, maxs.length * 2);
+        }
+        int count = page.getInt(offset + 4);
+        int base = numPages * numAttributes;
+        for (int i = 0; i < numAttributes; i++) {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            int position = offset + PageCodec.HEADER_SIZE + 4 * i;
+            for (int t = 0; t < count; t++) {
+                int value = page.getInt(position);
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+                position += 4 * numAttributes;
+            }
+            mins[base + i] = min;
+            maxs[base + i] = max;
+        }
+        numTuples[numPages++] = count;
+    }
+
+    /**
+     * @param page Page number
+     * @param attribute Attribute index
+     * @param low Smallest value of the range, inclusive
+     * @param high Largest value of the range, inclusive
+     * @return Whether or not the page might hold a value of the attribute in the range
+     */
+    public boolean mayContain(int page, int attribute, int low, int high) {
+        if (page >= numPages) {
+            return true;
+        }
+        int i = page * numAttributes + attribute;
+        return mins[i] <= high && maxs[i] >= low && mins[i] <= maxs[i];
+    }
+
+    /**
+     * @param attribute Attribute index
+     * @param low Smallest value of the range, inclusive
+     * @param high Largest value of the range, inclusive
+     * @return Predicate accepting the pages that might hold a value of the attribute in the range
+     */
+    public IntPredicate pageFilter(int attribute, int low, int high) {
+        return page -> mayContain(page, attribute, low, high);
+    }
+
+    /**
+     * @param attribute Attribute index
+     * @return Smallest value of the attribute in the file
+     */
+    public int getMin(int attribute) {
+        int min = Integer.MAX_VALUE;
+        for (int p = 0; p < numPages; p++) {
+            min = Math.min(min, mins[p * numAttributes + attribute]);
+        }
+        return min;
+    }
+
+    /**
+     * @param attribute Attribute index
+     * @return Largest value of the attribute in the file
+     */
+    public int getMax(int attribute) {
+        int max = Integer.MIN_VALUE;
+        for (int p = 0; p < numPages; p++) {
+            max = Math.max(max, maxs[p * numAttributes + attribute]);
+        }
+        return max;
+    }
+
+    /**
+     * @return Number of tuples in the file
+     */
+    public int getNumTuples() {
+        int total = 0;
+        for (int p = 0; p < numPages; p++) {
+            total += numTuples[p];
+        }
+        return total;
+    }
+
+    public int getNumPages() {
+        return numPages;
+    }
+
+    public int getNumAttributes() {
+        return numAttributes;
+    }
+
+    /**
+     * Writes the zone map to the sidecar file of a tuple file
+     *
+     * @param filename Tuple file the zone map describes
+     * @throws IOException If the sidecar file cannot be written
+     */
+    public void write(String filename) throws IOException {
+        File file = new File(filename);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(getSidecarName(filename))))) {
+            out.writeLong(file.length());
+            out.writeLong(file.lastModified());
+            out.writeInt(numAttributes);
+            out.writeInt(numPages);
+            for (int p = 0; p < numPages; p++) {
+                out.writeInt(numTuples[p]);
+                for (int i = 0; i < numAttributes; i++) {
+                    out.writeInt(mins[p * numAttributes + i]);
+                    out.writeInt(maxs[p * numAttributes + i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the zone map of a tuple file from its sidecar file
+     *
+     * @param filename Tuple file the zone map describes
+     * @return The zone map, or null if there is none or it is out of date
+     */
+    public static ZoneMap read(String filename) {
+        File file = new File(filename);
+        File sidecar = new File(getSidecarName(filename));
+        if (!sidecar.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(sidecar)))) {
+            if (in.readLong() != file.length() || in.readLong() != file.lastModified()) {
+                return null;
+            }
+            ZoneMap zoneMap = new ZoneMap(in.readInt());
+            int numPages = in.readInt();
+            int numAttributes = zoneMap.numAttributes;
+            zoneMap.numTuples = new int[Math.max(numPages, 1)];
+            zoneMap.mins = new int[Math.max(numPages, 1) * numAttributes];
+            zoneMap.maxs = new int[Math.max(numPages, 1) * numAttributes];
+            for (int p = 0; p < numPages; p++) {
+                zoneMap.numTuples[p] = in.readInt();
+                for (int i = 0; i < numAttributes; i++) {
+                    zoneMap.mins[p * numAttributes + i] = in.readInt();
+                    zoneMap.maxs[p * numAttributes + i] = in.readInt();
+                }
+            }
+            zoneMap.numPages = numPages;
+            return zoneMap;
+
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param filename Tuple file
+     * @return Name of the sidecar file holding the zone map of the tuple file
+     */
+    public static String getSidecarName(String filename) {
+        return filename + EXTENSION;
+    }
+}
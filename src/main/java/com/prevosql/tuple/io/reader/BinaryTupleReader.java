@@ -1,41 +1,43 @@
 package com.prevosql.tuple.io.reader;
 
+import com.prevosql.buffer.BufferPool;
 import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
+import com.prevosql.tuple.io.PageCodec;
 import org.apache.log4j.Logger;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
-import java.nio.file.Paths;
+import java.util.function.IntPredicate;
 
+/**
+ * Reads binary tuple files one page at a time through the buffer pool.
+ * The current page stays pinned until the reader moves past it.
+ */
 class BinaryTupleReader implements TupleReader {
     private int numAttributes;
     private int numTuples;
 
-    private FileChannel channel;
+    private final String filename;
+    private final BufferPool pool = BufferPool.getInstance();
+    private ByteBuffer page;
     private ByteBuffer buffer;
+    private final PageDecoder decoder = new PageDecoder();
+    private int[] firstTuples;
+    private IntPredicate pageFilter;
+    private IntPredicate activeFilter;
+    private int numPages;
     private int currTuple = 0;
     private int currPage = 0;
 
     private static final int PAGE_SIZE = 4096;
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
     private static final Logger LOG = Logger.getLogger(BinaryTupleReader.class);
 
     BinaryTupleReader(String filename) {
-        try {
-            String path = Paths.get(filename).toAbsolutePath().toString();
-            FileInputStream fin = new FileInputStream(path);
-            channel = fin.getChannel();
-            buffer = ByteBuffer.allocate(PAGE_SIZE);
-            int read = initializeDiskPage();
-            if (read < 0) {
-                LOG.warn("No bytes read from file " + filename);
-            }
-
-        } catch (FileNotFoundException e) {
-            LOG.fatal("File " + filename + " not found", e);
-
+        this.filename = filename;
+        int read = initializeDiskPage();
+        if (read < 0) {
+            LOG.warn("No bytes read from file " + filename);
         }
     }
 
@@ -48,9 +50,10 @@ class BinaryTupleReader implements TupleReader {
             }
 
             // we have at least one tuple remaining to read
-            String[] tuple = new String[numAttributes];
+            decoder.materialize();
+            int[] tuple = new int[numAttributes];
             for (int i = 0; i < numAttributes; i++) {
-                tuple[i] = "" + buffer.getInt();
+                tuple[i] = buffer.getInt();
             }
 
             currTuple++;
@@ -60,25 +63,72 @@ class BinaryTupleReader implements TupleReader {
             // we need to read another page into the buffer
             LOG.debug("Reading another page into buffer");
 
-            currPage++;                         // to signify that we have read a page
-            buffer.clear();                     // clear the buffer
+            currPage = nextAcceptedPage(currPage + 1);  // to signify that we have read a page
             int read = initializeDiskPage();
             if (read < 0) {
-                buffer.clear();
                 return null;
             }
             return readNextTuple();
         }
     }
 
+    @Override
+    public boolean readNextBatch(TupleBatch batch) {
+        int read = 0;
+        while (!batch.isFull()) {
+            if (buffer.remaining() >= 4 * numAttributes) {
+                if (currTuple == numTuples) {
+                    break;
+                }
+
+                // decode the rest of the page straight into the batch's columns
+                int count = Math.min(numTuples - currTuple, batch.getCapacity() - batch.size());
+                decoder.copyTuples(buffer, buffer.position(), count, numAttributes, batch);
+                buffer.position(buffer.position() + count * 4 * numAttributes);
+                currTuple += count;
+                read += count;
+
+            } else {
+                currPage = nextAcceptedPage(currPage + 1);
+                if (initializeDiskPage() < 0) {
+                    break;
+                }
+            }
+        }
+        return read > 0;
+    }
+
     @Override
     public void reset() {
-        currTuple = 0;
-        currPage = 0;
-        buffer.clear();
+        activeFilter = pageFilter;
+        currPage = nextAcceptedPage(0);
         initializeDiskPage();
     }
 
+    @Override
+    public void setPageFilter(IntPredicate pageFilter) {
+        this.pageFilter = pageFilter;
+        numPages = (int) (pool.size(filename) / PAGE_SIZE);
+        if (currPage == 0 && currTuple == 0) {
+            reset();
+        }
+    }
+
+    @Override
+    public void setProjection(int[] columns) {
+        decoder.setProjection(columns, numAttributes);
+    }
+
+    @Override
+    public void close() {
+        if (page != null) {
+            pool.unpin(page);
+            page = null;
+        }
+        buffer = EMPTY;
+        currTuple = numTuples = 0;
+    }
+
     @Override
     public int getNumAttributes() {
         return numAttributes;
@@ -86,22 +136,29 @@ class BinaryTupleReader implements TupleReader {
 
     @Override
     public void reset(int index) {
-        currTuple = index;
-        buffer.clear();
-        int numBytesSinceBeginning = 8 + index * numAttributes * 4;
-        currPage = numBytesSinceBeginning / PAGE_SIZE;
-        try {
-            channel.read(buffer, currPage * PAGE_SIZE);
-            buffer.flip();
-            numAttributes = buffer.getInt();
-            numTuples = buffer.getInt();
-            buffer.position(numBytesSinceBeginning % PAGE_SIZE);
-
-        } catch (IOException e) {
-            LOG.fatal(e);
-            System.err.println("ERROR: " + e.getMessage());
-            System.exit(1);
+        if (numAttributes == 0) {
+            return;
         }
+        activeFilter = null;
+        int tupleOffset;
+        if (decoder.hasVariablePageSizes()) {
+            // compressed pages hold varying numbers of tuples
+            if (firstTuples == null) {
+                firstTuples = readPageDirectory();
+            }
+            currPage = PageCodec.findPage(firstTuples, index);
+            tupleOffset = index - firstTuples[currPage];
+        } else {
+            int tuplesPerPage = (PAGE_SIZE - 8) / (4 * numAttributes);
+            currPage = index / tuplesPerPage;
+            tupleOffset = index % tuplesPerPage;
+        }
+        if (initializeDiskPage() < 0) {
+            buffer.limit(0);
+            return;
+        }
+        currTuple = Math.min(tupleOffset, numTuples);
+        buffer.position(8 + currTuple * numAttributes * 4);
     }
 
     @Override
@@ -114,24 +171,61 @@ class BinaryTupleReader implements TupleReader {
         return numTuples;
     }
 
+    /**
+     * Unpins the current page and pins currPage in its place
+     *
+     * @return Number of bytes in the page, or -1 if there is no such page
+     */
     private int initializeDiskPage() {
-        int res = -1;
-        try {
-            res = channel.read(buffer, currPage * PAGE_SIZE);
-            if (res < 0) {
-                return res;
-            }
-            buffer.flip();
-            numAttributes = buffer.getInt();
-            numTuples = buffer.getInt();
-            currTuple = 0;
+        if (page != null) {
+            pool.unpin(page);
+        }
+        page = pool.pin(filename, currPage);
+        if (page == null) {
+            buffer = EMPTY;
+            return -1;
+        }
+        buffer = page;
+        ByteBuffer decoded = decoder.decode(page, 0);
+        if (decoded != null) {
+            buffer = decoded;
+        }
+        numAttributes = buffer.getInt();
+        numTuples = buffer.getInt();
+        currTuple = 0;
 
-            LOG.debug("Initialized Disk Page " + currPage + " for reading: " + numTuples + " tuples, " + numAttributes + " attributes");
-            return res;
+        LOG.debug("Initialized Disk Page " + currPage + " for reading: " + numTuples + " tuples, " + numAttributes + " attributes");
+        return page.limit();
+    }
 
-        } catch (IOException e) {
-            LOG.fatal("Failed to read disk page into buffer", e);
+    /**
+     * @param page First page to consider
+     * @return First page from page on that the active page filter
+     * accepts, or the number of pages if there is none
+     */
+    private int nextAcceptedPage(int page) {
+        while (activeFilter != null && page < numPages && !activeFilter.test(page)) {
+            page++;
+        }
+        return page;
+    }
+
+    /**
+     * Reads the header of every page
+     *
+     * @return Index of the first tuple of each page, followed by
+     * the total number of tuples
+     */
+    private int[] readPageDirectory() {
+        int numPages = (int) (pool.size(filename) / PAGE_SIZE);
+        int[] directory = new int[numPages + 1];
+        for (int p = 0; p < numPages; p++) {
+            ByteBuffer header = pool.pin(filename, p);
+            directory[p + 1] = directory[p] + (header == null ? 0 : header.getInt(4));
+            if (header != null) {
+                pool.unpin(header);
+            }
         }
-        return res;
+        return directory;
     }
 }
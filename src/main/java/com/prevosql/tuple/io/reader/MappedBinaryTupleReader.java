@@ -0,0 +1,237 @@
+package com.prevosql.tuple.io.reader;
+
+import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
+import com.prevosql.tuple.io.PageCodec;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.util.function.IntPredicate;
+
+/**
+ * Reads binary tuple files by mapping them into memory. Moving between
+ * pages, including repositioning with reset(int), only updates offsets
+ * into the mapped file instead of reading pages through the channel.
+ * PAX and compressed pages are decoded into a separate buffer.
+ */
+class MappedBinaryTupleReader implements TupleReader {
+    private int numAttributes;
+    private int numTuples;
+
+    private MappedByteBuffer file;
+    private ByteBuffer page;
+    private final PageDecoder decoder = new PageDecoder();
+    private int[] firstTuples;
+    private IntPredicate pageFilter;
+    private IntPredicate activeFilter;
+    private int numPages = 0;
+    private int currTuple = 0;
+    private int currPage = 0;
+    private int position = 0;
+
+    private static final int PAGE_SIZE = 4096;
+    private static final Logger LOG = Logger.getLogger(MappedBinaryTupleReader.class);
+
+    MappedBinaryTupleReader(String filename) {
+        String path = Paths.get(filename).toAbsolutePath().toString();
+        try (RandomAccessFile raf = new RandomAccessFile(path, "r")) {
+            FileChannel channel = raf.getChannel();
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            numPages = (int) (channel.size() / PAGE_SIZE);
+            if (numPages == 0) {
+                LOG.warn("No bytes read from file " + filename);
+            } else {
+                initializeDiskPage(0);
+            }
+
+        } catch (IOException e) {
+            LOG.fatal("Failed to map file " + filename, e);
+        }
+    }
+
+    @Override
+    public Tuple readNextTuple() {
+        if (!hasNextTuple()) {
+            return null;
+        }
+        decoder.materialize();
+
+        int[] tuple = new int[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            tuple[i] = page.getInt(position);
+            position += 4;
+        }
+        currTuple++;
+        return new Tuple(tuple);
+    }
+
+    @Override
+    public boolean readNextBatch(TupleBatch batch) {
+        int read = 0;
+        while (!batch.isFull() && hasNextTuple()) {
+            // decode as many tuples of the current page as fit in the batch
+            int count = Math.min(numTuples - currTuple, batch.getCapacity() - batch.size());
+            decoder.copyTuples(page, position, count, numAttributes, batch);
+            position += count * 4 * numAttributes;
+            currTuple += count;
+            read += count;
+        }
+        return read > 0;
+    }
+
+    @Override
+    public void reset() {
+        activeFilter = pageFilter;
+        if (numPages == 0) {
+            return;
+        }
+        int first = nextAcceptedPage(0);
+        if (first < numPages) {
+            initializeDiskPage(first);
+        } else {
+            // every page was filtered out
+            initializeDiskPage(numPages - 1);
+            currTuple = numTuples;
+        }
+    }
+
+    @Override
+    public void setPageFilter(IntPredicate pageFilter) {
+        this.pageFilter = pageFilter;
+        if (currPage == 0 && currTuple == 0) {
+            reset();
+        }
+    }
+
+    @Override
+    public void setProjection(int[] columns) {
+        decoder.setProjection(columns, numAttributes);
+    }
+
+    /**
+     * Drops the mapping; it is unmapped once it is garbage collected
+     */
+    @Override
+    public void close() {
+        file = null;
+        page = null;
+        numPages = 0;
+        currTuple = numTuples = 0;
+    }
+
+    @Override
+    public int getNumAttributes() {
+        return numAttributes;
+    }
+
+    /**
+     * Positions the reader at the index-th tuple of the file, counting
+     * from the first tuple of the first page
+     *
+     * @param index Index of the tuple to read next
+     */
+    @Override
+    public void reset(int index) {
+        if (numPages == 0 || numAttributes == 0) {
+            return;
+        }
+        activeFilter = null;
+        int targetPage;
+        int tupleOffset;
+        if (decoder.hasVariablePageSizes()) {
+            // compressed pages hold varying numbers of tuples
+            if (firstTuples == null) {
+                firstTuples = readPageDirectory();
+            }
+            targetPage = PageCodec.findPage(firstTuples, index);
+            tupleOffset = index - firstTuples[targetPage];
+        } else {
+            int tuplesPerPage = (PAGE_SIZE - 8) / (4 * numAttributes);
+            targetPage = index / tuplesPerPage;
+            tupleOffset = index % tuplesPerPage;
+        }
+        if (targetPage >= numPages) {
+            initializeDiskPage(numPages - 1);
+            currTuple = numTuples;
+            return;
+        }
+        initializeDiskPage(targetPage);
+        currTuple = Math.min(tupleOffset, numTuples);
+        position += currTuple * numAttributes * 4;
+    }
+
+    @Override
+    public int getCurrPage() {
+        return currPage;
+    }
+
+    @Override
+    public int getNumTuples() {
+        return numTuples;
+    }
+
+    /**
+     * Moves to the next page if the current one has been read
+     *
+     * @return Whether or not there is another tuple to read
+     */
+    private boolean hasNextTuple() {
+        while (currTuple == numTuples) {
+            int next = nextAcceptedPage(currPage + 1);
+            if (next >= numPages) {
+                return false;
+            }
+            LOG.debug("Moving to next mapped page");
+            initializeDiskPage(next);
+        }
+        return true;
+    }
+
+    /**
+     * @param page First page to consider
+     * @return First page from page on that the active page filter
+     * accepts, or the number of pages if there is none
+     */
+    private int nextAcceptedPage(int page) {
+        while (activeFilter != null && page < numPages && !activeFilter.test(page)) {
+            page++;
+        }
+        return page;
+    }
+
+    private void initializeDiskPage(int pageNumber) {
+        currPage = pageNumber;
+        page = file;
+        position = pageNumber * PAGE_SIZE;
+        ByteBuffer decoded = decoder.decode(file, position);
+        if (decoded != null) {
+            page = decoded;
+            position = 0;
+        }
+        numAttributes = page.getInt(position);
+        numTuples = page.getInt(position + 4);
+        position += 8;
+        currTuple = 0;
+
+        LOG.debug("Initialized Disk Page " + currPage + " for reading: " + numTuples + " tuples, " + numAttributes + " attributes");
+    }
+
+    /**
+     * Reads the header of every page
+     *
+     * @return Index of the first tuple of each page, followed by
+     * the total number of tuples
+     */
+    private int[] readPageDirectory() {
+        int[] directory = new int[numPages + 1];
+        for (int p = 0; p < numPages; p++) {
+            directory[p + 1] = directory[p] + file.getInt(p * PAGE_SIZE + 4);
+        }
+        return directory;
+    }
+}
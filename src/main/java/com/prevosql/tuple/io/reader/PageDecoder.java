@@ -0,0 +1,200 @@
+package com.prevosql.tuple.io.reader;
+
+import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
+import com.prevosql.tuple.io.PageCodec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes PAX and compressed pages into the plain page layout for the
+ * binary tuple readers, and copies tuples into batches. Only the
+ * attributes of the current projection are decoded; the others read as 0.
+ *
+ * A PAX page is only turned into rows once a tuple is read on its own.
+ * Batches copy the projected minipages straight into their columns.
+ */
+public class PageDecoder {
+    private ByteBuffer decoded;
+    private int[] projection;
+    private boolean[] needed;
+    private boolean compressed = false;
+
+    // PAX page whose rows have not been decoded yet, and the buffer they go to
+    private ByteBuffer paxPage;
+    private int paxOffset;
+    private ByteBuffer paxRows;
+
+    /**
+     * Decodes a page if it is not in the plain layout
+     *
+     * @param page Buffer holding the page
+     * @param offset Position of the page in the buffer
+     * @return Buffer holding the decoded page, positioned at its start,
+     * or null if the page already uses the plain layout. The rows of a
+     * PAX page are only filled in by materialize().
+     */
+    ByteBuffer decode(ByteBuffer page, int offset) {
+        paxPage = null;
+        int header = page.getInt(offset);
+        boolean isCompressed = PageCodec.isCompressed(header);
+        if (!isCompressed && !PageCodec.isPax(header)) {
+            return null;
+        }
+
+        int size = PageCodec.HEADER_SIZE + PageCodec.MAX_TUPLES_PER_PAGE * 4 * PageCodec.getNumAttributes(header);
+        if (decoded == null || decoded.capacity() < size) {
+            decoded = ByteBuffer.allocate(size);
+        }
+        if (isCompressed) {
+            compressed = true;
+            PageCodec.decode(page, offset, decoded, needed);
+        } else {
+            int numTuples = page.getInt(offset + 4);
+            decoded.clear();
+            decoded.putInt(0, PageCodec.getNumAttributes(header));
+            decoded.putInt(4, numTuples);
+            decoded.limit(PageCodec.HEADER_SIZE + numTuples * 4 * PageCodec.getNumAttributes(header));
+            paxPage = page;
+            paxOffset = offset;
+            paxRows = decoded;
+        }
+        return decoded;
+    }
+
+    /**
+     * Fills in the rows of the current page if it is a PAX page that
+     * has only been read in batches so far. Readers call this before
+     * reading a tuple on its own.
+     */
+    void materialize() {
+        if (paxPage == null) {
+            return;
+        }
+        int position = paxRows.position();
+        PageCodec.decodePax(paxPage, paxOffset, paxRows, needed);
+        paxRows.position(position);
+        paxPage = null;
+    }
+
+    /**
+     * Limits decoding to some attributes
+     *
+     * @param columns Attributes to decode, or null to decode all of them
+     * @param numAttributes Number of attributes of each tuple
+     */
+    void setProjection(int[] columns, int numAttributes) {
+        projection = columns;
+        if (columns == null) {
+            needed = null;
+        } else {
+            needed = new boolean[numAttributes];
+            for (int c : columns) {
+                needed[c] = true;
+            }
+        }
+        // start from a zeroed buffer so skipped attributes read as 0
+        decoded = null;
+    }
+
+    /**
+     * Copies a tuple in the plain layout into a new row of a batch
+     *
+     * @param src Buffer holding the tuple
+     * @param position Position of the tuple in src
+     * @param numAttributes Number of attributes of the tuple
+     * @param batch Batch to append to
+     */
+    private void copyTuple(ByteBuffer src, int position, int numAttributes, TupleBatch batch) {
+        int row = batch.appendRow();
+        if (projection == null) {
+            for (int i = 0; i < numAttributes; i++) {
+                batch.getColumn(i)[row] = src.getInt(position + i * 4);
+            }
+        } else {
+            for (int c : projection) {
+                batch.getColumn(c)[row] = src.getInt(position + c * 4);
+            }
+        }
+    }
+
+    /**
+     * Copies consecutive tuples of the current page into new rows of a
+     * batch. The tuples of a PAX page are copied a minipage at a time.
+     *
+     * @param src Buffer holding the tuples in the plain layout
+     * @param position Position of the first tuple in src
+     * @param count Number of tuples to copy
+     * @param numAttributes Number of attributes of each tuple
+     * @param batch Batch to append to
+     */
+    void copyTuples(ByteBuffer src, int position, int count, int numAttributes, TupleBatch batch) {
+        if (paxPage == null) {
+            for (int t = 0; t < count; t++) {
+                copyTuple(src, position, numAttributes, batch);
+                position += 4 * numAttributes;
+            }
+            return;
+        }
+
+        int first = (position - PageCodec.HEADER_SIZE) / (4 * numAttributes);
+        int capacity = PageCodec.getCapacity(numAttributes);
+        int row = batch.size();
+        for (int t = 0; t < count; t++) {
+            batch.appendRow();
+        }
+        for (int c = 0; c < numAttributes; c++) {
+            if (needed != null && !needed[c]) {
+                continue;
+            }
+            int[] column = batch.getColumn(c);
+            int in = paxOffset + PageCodec.HEADER_SIZE + 4 * (c * capacity + first);
+            for (int t = 0; t < count; t++) {
+                column[row + t] = paxPage.getInt(in);
+                in += 4;
+            }
+        }
+    }
+
+    /**
+     * Reads a single tuple of a page in any layout, without decoding
+     * the rest of a PAX page
+     *
+     * @param page Buffer holding the page
+     * @param offset Position of the page in the buffer
+     * @param index Position of the tuple on the page
+     * @return The tuple
+     */
+    public Tuple readTuple(ByteBuffer page, int offset, int index) {
+        int header = page.getInt(offset);
+        int numAttributes = PageCodec.getNumAttributes(header);
+        int[] values = new int[numAttributes];
+        if (PageCodec.isPax(header)) {
+            int capacity = PageCodec.getCapacity(numAttributes);
+            for (int c = 0; c < numAttributes; c++) {
+                values[c] = page.getInt(offset + PageCodec.HEADER_SIZE + 4 * (c * capacity + index));
+            }
+            return new Tuple(values);
+        }
+
+        ByteBuffer rows = page;
+        int position = offset;
+        if (PageCodec.isCompressed(header)) {
+            rows = decode(page, offset);
+            position = 0;
+        }
+        position += PageCodec.HEADER_SIZE + index * 4 * numAttributes;
+        for (int c = 0; c < numAttributes; c++) {
+            values[c] = rows.getInt(position + c * 4);
+        }
+        return new Tuple(values);
+    }
+
+    /**
+     * @return Whether or not any compressed page was seen. Compressed
+     * pages hold varying numbers of tuples.
+     */
+    boolean hasVariablePageSizes() {
+        return compressed;
+    }
+}
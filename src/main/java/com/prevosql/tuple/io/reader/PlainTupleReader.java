@@ -1,11 +1,13 @@
 package com.prevosql.tuple.io.reader;
 
 import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
 import org.apache.log4j.Logger;
 
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.util.function.IntPredicate;
 
 class PlainTupleReader implements TupleReader {
     private BufferedReader fileReader;
@@ -39,15 +41,46 @@ class PlainTupleReader implements TupleReader {
         }
     }
 
+    @Override
+    public boolean readNextBatch(TupleBatch batch) {
+        boolean read = false;
+        Tuple t;
+        while (!batch.isFull() && (t = readNextTuple()) != null) {
+            batch.add(t);
+            read = true;
+        }
+        return read;
+    }
+
     @Override
     public void reset() {
         try {
+            fileReader.close();
             fileReader = new BufferedReader(new FileReader(filename));
         } catch (Exception e) {
             LOG.fatal("Failed to reset", e);
         }
     }
 
+    @Override
+    public void setProjection(int[] columns) {
+        // plain text has to be parsed in full anyway
+    }
+
+    @Override
+    public void setPageFilter(IntPredicate pageFilter) {
+        // plain text has no pages
+    }
+
+    @Override
+    public void close() {
+        try {
+            fileReader.close();
+        } catch (Exception e) {
+            LOG.fatal("Failed to close " + filename, e);
+        }
+    }
+
     @Override
     public int getNumAttributes() {
         return 0;
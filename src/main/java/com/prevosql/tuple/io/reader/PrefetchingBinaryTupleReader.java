@@ -0,0 +1,354 @@
+package com.prevosql.tuple.io.reader;
+
+import com.prevosql.buffer.BufferPool;
+import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
+import com.prevosql.tuple.io.PageCodec;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.IntPredicate;
+
+/**
+ * Reads binary tuple files sequentially while a background thread
+ * reads ahead. The prefetcher pins up to a fixed number of pages in the
+ * buffer pool and hands them to the reader in file order; the reader
+ * unpins each page once all of its tuples have been consumed.
+ */
+class PrefetchingBinaryTupleReader implements TupleReader {
+    private int numAttributes;
+    private int numTuples;
+    private int currTuple = 0;
+    private int currPage = -1;
+
+    private final String filename;
+    private final BufferPool pool = BufferPool.getInstance();
+    private final Semaphore free;
+    private final BlockingQueue<ByteBuffer> filled;
+    private ByteBuffer page;
+    private ByteBuffer buffer;
+    private final PageDecoder decoder = new PageDecoder();
+    private int[] firstTuples;
+    private IntPredicate pageFilter;
+    private IntPredicate activeFilter;
+    private int numPages;
+    private boolean exhausted = false;
+    private Thread prefetcher;
+    private volatile boolean stopped;
+
+    private static final int PAGE_SIZE = 4096;
+    private static final ByteBuffer END_OF_FILE = ByteBuffer.allocate(0);
+    private static final Logger LOG = Logger.getLogger(PrefetchingBinaryTupleReader.class);
+
+    /**
+     * Opens a file and starts prefetching from its first page
+     *
+     * @param filename File to read tuples from
+     * @param numPages Number of pages to keep in flight ahead of the reader
+     */
+    PrefetchingBinaryTupleReader(String filename, int numPages) {
+        this.filename = filename;
+        this.free = new Semaphore(numPages);
+        this.filled = new ArrayBlockingQueue<>(numPages + 1);
+
+        if (!new File(filename).exists()) {
+            LOG.fatal("File " + filename + " not found");
+            exhausted = true;
+            return;
+        }
+        startPrefetching(0);
+        if (!nextPage()) {
+            LOG.warn("No bytes read from file " + filename);
+        }
+    }
+
+    @Override
+    public Tuple readNextTuple() {
+        while (currTuple == numTuples) {
+            if (!nextPage()) {
+                return null;
+            }
+        }
+        decoder.materialize();
+
+        int[] tuple = new int[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            tuple[i] = buffer.getInt();
+        }
+        currTuple++;
+        return new Tuple(tuple);
+    }
+
+    @Override
+    public boolean readNextBatch(TupleBatch batch) {
+        int read = 0;
+        while (!batch.isFull()) {
+            if (currTuple == numTuples) {
+                if (!nextPage()) {
+                    break;
+                }
+                continue;
+            }
+
+            int count = Math.min(numTuples - currTuple, batch.getCapacity() - batch.size());
+            decoder.copyTuples(buffer, buffer.position(), count, numAttributes, batch);
+            buffer.position(buffer.position() + count * 4 * numAttributes);
+            currTuple += count;
+            read += count;
+        }
+        return read > 0;
+    }
+
+    @Override
+    public void reset() {
+        activeFilter = pageFilter;
+        restartAt(0);
+    }
+
+    @Override
+    public void setPageFilter(IntPredicate pageFilter) {
+        if (prefetcher == null) {
+            return;
+        }
+        this.pageFilter = pageFilter;
+        numPages = (int) (pool.size(filename) / PAGE_SIZE);
+        if (currPage == 0 && currTuple == 0) {
+            reset();
+        }
+    }
+
+    @Override
+    public void setProjection(int[] columns) {
+        decoder.setProjection(columns, numAttributes);
+    }
+
+    /**
+     * Stops the prefetcher and unpins every page it read ahead
+     */
+    @Override
+    public void close() {
+        if (prefetcher != null) {
+            stopPrefetching();
+            prefetcher = null;
+        }
+        exhausted = true;
+        currTuple = numTuples = 0;
+    }
+
+    @Override
+    public int getNumAttributes() {
+        return numAttributes;
+    }
+
+    @Override
+    public void reset(int index) {
+        if (numAttributes == 0) {
+            return;
+        }
+        int targetPage;
+        int tupleOffset;
+        if (decoder.hasVariablePageSizes()) {
+            // compressed pages hold varying numbers of tuples
+            if (firstTuples == null) {
+                firstTuples = readPageDirectory();
+            }
+            targetPage = PageCodec.findPage(firstTuples, index);
+            tupleOffset = index - firstTuples[targetPage];
+        } else {
+            int tuplesPerPage = (PAGE_SIZE - 8) / (4 * numAttributes);
+            targetPage = index / tuplesPerPage;
+            tupleOffset = index % tuplesPerPage;
+        }
+        activeFilter = null;
+        restartAt(targetPage);
+        if (nextPage()) {
+            currTuple = Math.min(tupleOffset, numTuples);
+            buffer.position(8 + currTuple * numAttributes * 4);
+        }
+    }
+
+    @Override
+    public int getCurrPage() {
+        return currPage;
+    }
+
+    @Override
+    public int getNumTuples() {
+        return numTuples;
+    }
+
+    /**
+     * Hands the current page back to the prefetcher and waits
+     * for the next one
+     *
+     * @return Whether or not there was another page to read
+     */
+    private boolean nextPage() {
+        if (exhausted) {
+            return false;
+        }
+        releasePage();
+
+        ByteBuffer next;
+        try {
+            next = filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exhausted = true;
+            return false;
+        }
+
+        if (next == END_OF_FILE) {
+            LOG.info("Finished reading bytes from buffer");
+            exhausted = true;
+            currTuple = numTuples = 0;
+            return false;
+        }
+
+        page = next;
+        buffer = page;
+        ByteBuffer decoded = decoder.decode(page, 0);
+        if (decoded != null) {
+            buffer = decoded;
+        }
+        currPage = nextAcceptedPage(currPage + 1);
+        numAttributes = buffer.getInt();
+        numTuples = buffer.getInt();
+        currTuple = 0;
+        LOG.debug("Initialized Disk Page " + currPage + " for reading: " + numTuples + " tuples, " + numAttributes + " attributes");
+        return true;
+    }
+
+    /**
+     * Stops the prefetcher and starts a new one at page
+     *
+     * @param page Page to continue reading from
+     */
+    private void restartAt(int page) {
+        if (prefetcher == null) {
+            return;
+        }
+        stopPrefetching();
+        exhausted = false;
+        currTuple = numTuples = 0;
+        currPage = page - 1;
+        startPrefetching(page);
+    }
+
+    private void startPrefetching(int page) {
+        stopped = false;
+        int first = nextAcceptedPage(page);
+        prefetcher = new Thread(() -> prefetch(first), "prefetch-" + filename);
+        prefetcher.setDaemon(true);
+        prefetcher.start();
+    }
+
+    /**
+     * Stops the prefetcher and unpins every page it read ahead
+     */
+    private void stopPrefetching() {
+        stopped = true;
+        releasePage();
+        while (prefetcher.isAlive()) {
+            // give pages back so that a blocked prefetcher can notice it was stopped
+            drainFilledPages();
+            try {
+                prefetcher.join(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        drainFilledPages();
+    }
+
+    private void drainFilledPages() {
+        ByteBuffer b;
+        while ((b = filled.poll()) != null) {
+            if (b != END_OF_FILE) {
+                pool.unpin(b);
+                free.release();
+            }
+        }
+    }
+
+    /**
+     * Unpins the current page and lets the prefetcher read another one
+     */
+    private void releasePage() {
+        if (page != null) {
+            pool.unpin(page);
+            free.release();
+            page = null;
+            buffer = null;
+        }
+    }
+
+    /**
+     * Body of the prefetching thread. Pins pages in order, as long as
+     * fewer than the allowed number are in flight, until the end of the
+     * file or until it is stopped.
+     *
+     * @param page First page to read
+     */
+    private void prefetch(int page) {
+        try {
+            while (!stopped) {
+                free.acquire();
+                if (stopped) {
+                    free.release();
+                    return;
+                }
+
+                ByteBuffer b = pool.pin(filename, page);
+                if (b == null) {
+                    free.release();
+                    filled.put(END_OF_FILE);
+                    return;
+                }
+
+                filled.put(b);
+                page = nextAcceptedPage(page + 1);
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param page First page to consider
+     * @return First page from page on that the active page filter
+     * accepts, or the number of pages if there is none
+     */
+    private int nextAcceptedPage(int page) {
+        while (activeFilter != null && page < numPages && !activeFilter.test(page)) {
+            page++;
+        }
+        return page;
+    }
+
+    /**
+     * Reads the header of every page. Pinning pages out of order
+     * does not disturb the prefetcher.
+     *
+     * @return Index of the first tuple of each page, followed by
+     * the total number of tuples
+     */
+    private int[] readPageDirectory() {
+        int numPages = (int) (pool.size(filename) / PAGE_SIZE);
+        int[] directory = new int[numPages + 1];
+        for (int p = 0; p < numPages; p++) {
+            ByteBuffer header = pool.pin(filename, p);
+            directory[p + 1] = directory[p] + (header == null ? 0 : header.getInt(4));
+            if (header != null) {
+                pool.unpin(header);
+            }
+        }
+        return directory;
+    }
+}
@@ -1,6 +1,9 @@
 package com.prevosql.tuple.io.reader;
 
 import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
+
+import java.util.function.IntPredicate;
 
 /**
  * Interface for defining tuple readers for use by
@@ -14,11 +17,46 @@ public interface TupleReader {
      */
     Tuple readNextTuple();
 
+    /**
+     * Reads tuples from input stream into the batch until the
+     * batch is full or the stream is exhausted
+     *
+     * @param batch Batch to append tuples to
+     * @return Whether or not any tuples were read
+     */
+    boolean readNextBatch(TupleBatch batch);
+
     /**
      * Resets input stream
      */
     void reset();
 
+    /**
+     * Limits the attributes that are decoded from PAX and compressed
+     * pages, and that are copied into batches. Attributes that are not
+     * listed may read as 0.
+     *
+     * @param columns Indices of the attributes to decode, or null
+     *                to decode all of them
+     */
+    void setProjection(int[] columns);
+
+    /**
+     * Sets the pages to read when scanning the file from the start.
+     * Pages the filter rejects are skipped without being read. Takes
+     * effect on the next reset(), or right away if nothing has been
+     * read yet; reset(int) always reads the page it moves to.
+     *
+     * @param pageFilter Predicate on page numbers, or null to read every page
+     */
+    void setPageFilter(IntPredicate pageFilter);
+
+    /**
+     * Releases the pages, files and threads held by the reader.
+     * The reader must not be used afterwards.
+     */
+    void close();
+
     int getNumAttributes();
 
     void reset(int index);
@@ -1,10 +1,19 @@
 package com.prevosql.tuple.io.reader;
 
+import com.prevosql.config.operator.PhysicalConfigParser;
+import com.prevosql.tuple.io.ZoneMap;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+
 /**
  * Factory class for building TupleReader objects.
  * Used to hide implementations of TupleReaders
  */
 public class TupleReaderFactory {
+    private static final Logger LOG = Logger.getLogger(TupleReaderFactory.class);
+
     /**
      * Private constructor so that we cannot construct TupleReaderFactorys
      * but only use them statically
@@ -22,12 +31,69 @@ public class TupleReaderFactory {
      */
     public static TupleReader getReader(String filename, boolean binary) {
         if (binary) {
-            return new BinaryTupleReader(filename);
+            return getBinaryReader(filename, PhysicalConfigParser.getInstance().useMemoryMappedReaders());
         } else {
             return new PlainTupleReader(filename);
         }
     }
 
+    /**
+     * Returns a binary TupleReader that either maps the file into memory
+     * or reads it one page at a time. Files too large to be mapped as a
+     * single buffer are always read page by page.
+     *
+     * @param filename Input file to read tuples from (must be binary)
+     * @param mapped Whether or not to memory-map the file
+     * @return A binary TupleReader
+     */
+    public static TupleReader getBinaryReader(String filename, boolean mapped) {
+        if (mapped && new File(filename).length() <= Integer.MAX_VALUE) {
+            return new MappedBinaryTupleReader(filename);
+        }
+        return new BinaryTupleReader(filename);
+    }
+
+    /**
+     * Returns a TupleReader for reading a file front to back. Binary
+     * files are read ahead by a background thread when prefetching is
+     * configured; otherwise this is the same as getReader(filename, binary).
+     *
+     * @param filename File to read tuples from
+     * @param binary Whether or not the file is a binary file
+     * @return a TupleReader
+     */
+    public static TupleReader getSequentialReader(String filename, boolean binary) {
+        int numPages = PhysicalConfigParser.getInstance().getNumPrefetchPages();
+        if (binary && numPages > 0) {
+            return new PrefetchingBinaryTupleReader(filename, numPages);
+        }
+        return getReader(filename, binary);
+    }
+
+    /**
+     * Returns the zone map of a binary file. The zone map is read from
+     * the file's sidecar if it is up to date; otherwise it is built from
+     * the file and written to the sidecar.
+     *
+     * @param filename Binary file to get the zone map for
+     * @return Zone map of the file, or null if the file could not be read
+     */
+    public static ZoneMap getZoneMap(String filename) {
+        ZoneMap zoneMap = ZoneMap.read(filename);
+        if (zoneMap != null) {
+            return zoneMap;
+        }
+        zoneMap = ZoneMapBuilder.build(filename);
+        if (zoneMap != null) {
+            try {
+                zoneMap.write(filename);
+            } catch (IOException e) {
+                LOG.warn("Failed to write zone map for " + filename, e);
+            }
+        }
+        return zoneMap;
+    }
+
     /**
      * Automatically returns a binary TupleReader
      *
@@ -35,6 +101,6 @@ public class TupleReaderFactory {
      * @return A binary TupleReader
      */
     public static TupleReader getReader(String filename) {
-        return new BinaryTupleReader(filename);
+        return getReader(filename, true);
     }
 }
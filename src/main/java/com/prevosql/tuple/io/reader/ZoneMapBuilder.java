@@ -0,0 +1,62 @@
+package com.prevosql.tuple.io.reader;
+
+import com.prevosql.tuple.io.PageCodec;
+import com.prevosql.tuple.io.ZoneMap;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+
+/**
+ * Builds zone maps by reading binary tuple files one page at a time
+ */
+class ZoneMapBuilder {
+    private static final Logger LOG = Logger.getLogger(ZoneMapBuilder.class);
+
+    /**
+     * Private constructor so that ZoneMapBuilder is only used statically
+     */
+    private ZoneMapBuilder() {
+        throw new UnsupportedOperationException("ZoneMapBuilder cannot be instantiated");
+    }
+
+    /**
+     * Reads every page of a binary tuple file and records its bounds
+     *
+     * @param filename Binary tuple file
+     * @return Zone map of the file, or null if it could not be read
+     */
+    static ZoneMap build(String filename) {
+        String path = Paths.get(filename).toAbsolutePath().toString();
+        try (RandomAccessFile raf = new RandomAccessFile(path, "r")) {
+            FileChannel channel = raf.getChannel();
+            int numPages = (int) (channel.size() / PageCodec.PAGE_SIZE);
+            ByteBuffer page = ByteBuffer.allocate(PageCodec.PAGE_SIZE);
+            PageDecoder decoder = new PageDecoder();
+            ZoneMap zoneMap = null;
+            for (int p = 0; p < numPages; p++) {
+                page.clear();
+                while (page.hasRemaining()) {
+                    if (channel.read(page, (long) p * PageCodec.PAGE_SIZE + page.position()) < 0) {
+                        break;
+                    }
+                }
+                ByteBuffer decoded = decoder.decode(page, 0);
+                decoder.materialize();
+                ByteBuffer plain = decoded != null ? decoded : page;
+                if (zoneMap == null) {
+                    zoneMap = new ZoneMap(plain.getInt(0));
+                }
+                zoneMap.addPage(plain, 0);
+            }
+            return zoneMap;
+
+        } catch (IOException e) {
+            LOG.fatal("Failed to build zone map for " + filename, e);
+            return null;
+        }
+    }
+}
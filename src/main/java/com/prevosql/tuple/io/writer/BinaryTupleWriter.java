@@ -1,6 +1,11 @@
 package com.prevosql.tuple.io.writer;
 
+import com.prevosql.buffer.BufferPool;
+import com.prevosql.config.operator.PhysicalConfigParser;
 import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
+import com.prevosql.tuple.io.PageCodec;
+import com.prevosql.tuple.io.PageLayout;
 import org.apache.log4j.Logger;
 
 import java.io.File;
@@ -9,21 +14,56 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
+/**
+ * Writes tuples to binary files. Pages are composed in multi-page
+ * direct buffers; full buffers are handed to a write-behind thread so
+ * that the caller can keep producing tuples while they are written.
+ * Pages are plain, PAX or compressed (see PageLayout).
+ */
 class BinaryTupleWriter implements TupleWriter {
+    private final String path;
     private FileChannel channel;
     private ByteBuffer buffer;
     private final int numAttributes;
+    private final int tuplesPerPage;
+    private final int bufferSize;
     private int numTuples = 0;
+    private int pageStart = 0;
     private int currPage = 0;
+    private final boolean pax;
+    private final CompressedPageBuilder compressedPage;
+    private final int[] row;
+
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(NUM_BUFFERS);
+    private final BlockingQueue<ByteBuffer> pending = new ArrayBlockingQueue<>(NUM_BUFFERS + 1);
+    private int numBuffers = 0;
+    private Thread writer;
+    private volatile boolean failed = false;
+    private boolean unflushed = true;
 
     private static final int PAGE_SIZE = 4096;
+    private static final int NUM_BUFFERS = 2;
+    private static final byte[] ZEROS = new byte[PAGE_SIZE];
+    private static final ByteBuffer END_OF_WRITES = ByteBuffer.allocate(0);
     private static final Logger LOG = Logger.getLogger(BinaryTupleWriter.class);
 
-    BinaryTupleWriter(String filename, int numAttributes) {
+    BinaryTupleWriter(String filename, int numAttributes, PageLayout layout) {
         this.numAttributes = numAttributes;
+        // very wide tuples might not fit on a compressed page on their own
+        boolean fits = PageCodec.HEADER_SIZE + numAttributes * PageCodec.columnSize(1, 32) <= PAGE_SIZE;
+        this.compressedPage = layout == PageLayout.COMPRESSED && fits ? new CompressedPageBuilder(numAttributes) : null;
+        this.pax = layout == PageLayout.PAX;
+        this.row = new int[numAttributes];
+        this.tuplesPerPage = PageCodec.getCapacity(numAttributes);
+        this.bufferSize = PhysicalConfigParser.getInstance().getNumWriteBufferPages() * PAGE_SIZE;
 
         String path = Paths.get(filename).toAbsolutePath().toString();
+        this.path = path;
+        // pages cached for an older file of the same name are no longer valid
+        BufferPool.getInstance().invalidate(path);
         try {
             File f = new File(path);
             while (!f.createNewFile()) {
@@ -33,8 +73,8 @@ class BinaryTupleWriter implements TupleWriter {
             }
             FileOutputStream fout = new FileOutputStream(f, false);
             channel = fout.getChannel();
-            buffer = ByteBuffer.allocate(PAGE_SIZE);
-            initializeDiskPage(numAttributes);
+            buffer = nextFreeBuffer();
+            initializeDiskPage();
 
         } catch (Exception e) {
             LOG.fatal("Failed to create new file: " + filename, e);
@@ -45,59 +85,268 @@ class BinaryTupleWriter implements TupleWriter {
     public boolean writeTuple(Tuple t) {
         assert t.length() == numAttributes;
 
-        if (buffer.remaining() >= 4 * numAttributes) {
-            // we have room to write at least 1 more tuple to the file
+        if (compressedPage != null) {
             for (int i = 0; i < numAttributes; i++) {
-                buffer.putInt(Integer.parseInt(t.get(i)));
+                row[i] = t.get(i);
             }
-            buffer.putInt(4, ++numTuples);
+            writeCompressed();
+            unflushed = true;
+            return !failed;
+        }
 
+        if (numTuples == tuplesPerPage) {
+            nextDiskPage();
+        }
+        if (pax) {
+            for (int i = 0; i < numAttributes; i++) {
+                buffer.putInt(paxPosition(i), t.get(i));
+            }
         } else {
-            return !writeDiskPage() && writeTuple(t);
+            for (int i = 0; i < numAttributes; i++) {
+                buffer.putInt(t.get(i));
+            }
+        }
+        numTuples++;
+        unflushed = true;
+        return !failed;
+    }
+
+    @Override
+    public boolean writeBatch(TupleBatch batch) {
+        assert batch.getNumAttributes() == numAttributes;
+
+        int[] selection = batch.getSelection();
+        for (int i = 0; i < batch.getNumSelected(); i++) {
+            if (compressedPage != null) {
+                for (int j = 0; j < numAttributes; j++) {
+                    row[j] = batch.get(j, selection[i]);
+                }
+                writeCompressed();
+                continue;
+            }
+            if (numTuples == tuplesPerPage) {
+                nextDiskPage();
+            }
+            if (pax) {
+                for (int j = 0; j < numAttributes; j++) {
+                    buffer.putInt(paxPosition(j), batch.get(j, selection[i]));
+                }
+            } else {
+                for (int j = 0; j < numAttributes; j++) {
+                    buffer.putInt(batch.get(j, selection[i]));
+                }
+            }
+            numTuples++;
         }
-        return true;
+        unflushed = true;
+        return !failed;
     }
 
+    /**
+     * Throws away buffered tuples and truncates the file
+     */
     @Override
     public void reset() {
+        waitForWrites();
+        try {
+            channel.truncate(0);
+        } catch (IOException e) {
+            LOG.fatal("Failed to truncate file", e);
+        }
+        BufferPool.getInstance().invalidate(path);
         buffer.clear();
+        unflushed = true;
+        pageStart = 0;
         currPage = 0;
+        if (compressedPage != null) {
+            compressedPage.clear();
+        }
+        initializeDiskPage();
     }
 
+    /**
+     * Writes out the current page and waits until everything
+     * handed to the write-behind thread is on disk
+     */
     @Override
     public void flush() {
-       LOG.info("Forcing a write to disk");
-       writeDiskPage();
+        LOG.debug("Forcing a write to disk");
+        closeDiskPage();
+        submitBuffer();
+        waitForWrites();
+        BufferPool.getInstance().invalidate(path);
+        unflushed = false;
+        initializeDiskPage();
+    }
+
+    /**
+     * Flushes the current page unless nothing was written since the
+     * last flush, stops the write-behind thread and closes the file
+     */
+    @Override
+    public void close() {
+        if (channel == null) {
+            return;
+        }
+        if (unflushed) {
+            flush();
+        }
+        waitForWrites();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOG.fatal("Failed to close " + path, e);
+        }
+        channel = null;
+    }
+
+    /**
+     * Adds the tuple in row to the compressed page, starting
+     * a new page if it does not fit
+     */
+    private void writeCompressed() {
+        if (!compressedPage.add(row)) {
+            nextDiskPage();
+            compressedPage.add(row);
+        }
+    }
+
+    /**
+     * @param attribute Attribute index
+     * @return Position of the attribute of the next tuple on the current PAX page
+     */
+    private int paxPosition(int attribute) {
+        return pageStart + PageCodec.HEADER_SIZE + 4 * (attribute * tuplesPerPage + numTuples);
     }
 
-    private void initializeDiskPage(int numAttributes) {
+    private void initializeDiskPage() {
+        numTuples = 0;
+        if (compressedPage != null) {
+            // the header is written when the page is encoded
+            return;
+        }
+        if (pax) {
+            // minipages are filled in out of order, so zero the page up front
+            buffer.put(ZEROS);
+            buffer.putInt(pageStart, PageCodec.PAX | numAttributes);
+            buffer.putInt(pageStart + 4, 0);
+            LOG.debug("Initialized PAX Disk Page " + currPage + " for writing: " + numAttributes + " attributes");
+            return;
+        }
         buffer.putInt(numAttributes);
         buffer.putInt(0);
-        LOG.debug("Initialized Disk Page " + currPage + " for writing: " + numTuples + " tuples, " + numAttributes + " attributes");
+        LOG.debug("Initialized Disk Page " + currPage + " for writing: " + numAttributes + " attributes");
+    }
+
+    /**
+     * Finishes the current page and starts a new one, handing the
+     * buffer off to be written once all of its pages are used
+     */
+    private void nextDiskPage() {
+        closeDiskPage();
+        if (pageStart == bufferSize) {
+            submitBuffer();
+        }
+        initializeDiskPage();
     }
 
-    private boolean writeDiskPage() {
-        LOG.info("Writing buffer to disk page");
+    /**
+     * Records the number of tuples in the current page's header, or
+     * encodes the compressed page, and zero-fills whatever room is
+     * left in the page
+     */
+    private void closeDiskPage() {
+        if (compressedPage != null) {
+            compressedPage.encode(buffer, pageStart);
+            compressedPage.clear();
+        } else {
+            buffer.putInt(pageStart + 4, numTuples);
+        }
+        buffer.put(ZEROS, 0, pageStart + PAGE_SIZE - buffer.position());
+        pageStart += PAGE_SIZE;
+        currPage++;
+    }
 
-        // we have to write to a disk page
-        while (buffer.remaining() > 0) {
-            buffer.putInt(0); // fill in the remaining space with 0's
+    /**
+     * Queues the pages in the current buffer for writing and
+     * switches to a free buffer
+     */
+    private void submitBuffer() {
+        buffer.flip();
+        if (writer == null) {
+            writer = new Thread(this::writeBehind, "write-behind");
+            writer.setDaemon(true);
+            writer.start();
         }
         try {
-            buffer.flip();
-            channel.write(buffer, currPage * PAGE_SIZE); // we write to the file in blocks of size 4kb
-            LOG.info("Wrote bytes to disk at file position " + currPage * PAGE_SIZE);
+            pending.put(buffer);
+            buffer = nextFreeBuffer();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.fatal("Interrupted while queueing pages for writing", e);
+            failed = true;
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+        buffer.clear();
+        pageStart = 0;
+        LOG.debug("Queued pages up to disk page " + currPage + " for writing");
+    }
 
-        } catch (IOException e) {
-            LOG.fatal("Failed to write buffer to disk", e);
-            return true;
+    /**
+     * @return A buffer that is not waiting to be written, allocating
+     * one if fewer than NUM_BUFFERS exist
+     */
+    private ByteBuffer nextFreeBuffer() throws InterruptedException {
+        ByteBuffer b = free.poll();
+        if (b != null) {
+            return b;
+        }
+        if (numBuffers < NUM_BUFFERS) {
+            numBuffers++;
+            return ByteBuffer.allocateDirect(bufferSize);
         }
+        return free.take();
+    }
 
-        // then we have to set up the buffer to receive more data
-        buffer.clear();
-        numTuples = 0;
-        initializeDiskPage(numAttributes);
-        currPage++;
-        return false;
+    /**
+     * Stops the write-behind thread once it has written every queued buffer
+     */
+    private void waitForWrites() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            pending.put(END_OF_WRITES);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.fatal("Interrupted while waiting for writes to finish", e);
+        }
+        writer = null;
+    }
+
+    /**
+     * Body of the write-behind thread
+     */
+    private void writeBehind() {
+        try {
+            while (true) {
+                ByteBuffer b = pending.take();
+                if (b == END_OF_WRITES) {
+                    return;
+                }
+                try {
+                    while (b.hasRemaining()) {
+                        channel.write(b);
+                    }
+                } catch (IOException e) {
+                    LOG.fatal("Failed to write buffer to disk", e);
+                    failed = true;
+                }
+                free.put(b);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
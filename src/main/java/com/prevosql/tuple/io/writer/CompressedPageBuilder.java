@@ -0,0 +1,120 @@
+package com.prevosql.tuple.io.writer;
+
+import com.prevosql.tuple.io.PageCodec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Collects the tuples of one compressed page. Keeps the value range
+ * and delta range of every column up to date so that it knows exactly
+ * how large the encoded page is, and refuses tuples that would not fit.
+ */
+class CompressedPageBuilder {
+    private final int numAttributes;
+    private final int[][] columns;
+    private final long[] min;
+    private final long[] max;
+    private final long[] minDelta;
+    private final long[] maxDelta;
+    private final long[] scratch;
+    private int numTuples = 0;
+
+    CompressedPageBuilder(int numAttributes) {
+        this.numAttributes = numAttributes;
+        this.columns = new int[numAttributes][PageCodec.MAX_TUPLES_PER_PAGE];
+        this.min = new long[numAttributes];
+        this.max = new long[numAttributes];
+        this.minDelta = new long[numAttributes];
+        this.maxDelta = new long[numAttributes];
+        this.scratch = new long[PageCodec.MAX_TUPLES_PER_PAGE];
+    }
+
+    /**
+     * Adds a tuple to the page if the encoded page still fits
+     *
+     * @param row Values of the tuple
+     * @return Whether or not the tuple was added
+     */
+    boolean add(int[] row) {
+        if (numTuples == PageCodec.MAX_TUPLES_PER_PAGE) {
+            return false;
+        }
+
+        int size = PageCodec.HEADER_SIZE;
+        for (int c = 0; c < numAttributes; c++) {
+            long v = row[c];
+            long newMin = numTuples == 0 ? v : Math.min(min[c], v);
+            long newMax = numTuples == 0 ? v : Math.max(max[c], v);
+            int width = PageCodec.bitWidth(newMax - newMin);
+            if (numTuples > 0) {
+                long d = v - columns[c][numTuples - 1];
+                long newMinDelta = numTuples == 1 ? d : Math.min(minDelta[c], d);
+                long newMaxDelta = numTuples == 1 ? d : Math.max(maxDelta[c], d);
+                width = Math.min(width, PageCodec.bitWidth(newMaxDelta - newMinDelta));
+            }
+            size += PageCodec.columnSize(numTuples + 1, width);
+        }
+        if (size > PageCodec.PAGE_SIZE) {
+            return false;
+        }
+
+        for (int c = 0; c < numAttributes; c++) {
+            long v = row[c];
+            if (numTuples == 0) {
+                min[c] = max[c] = v;
+            } else {
+                min[c] = Math.min(min[c], v);
+                max[c] = Math.max(max[c], v);
+                long d = v - columns[c][numTuples - 1];
+                minDelta[c] = numTuples == 1 ? d : Math.min(minDelta[c], d);
+                maxDelta[c] = numTuples == 1 ? d : Math.max(maxDelta[c], d);
+            }
+            columns[c][numTuples] = row[c];
+        }
+        numTuples++;
+        return true;
+    }
+
+    /**
+     * Encodes the page, choosing frame-of-reference or delta encoding
+     * for each column depending on which packs it into fewer bits
+     *
+     * @param dst Buffer to encode into
+     * @param offset Position of the page in dst
+     */
+    void encode(ByteBuffer dst, int offset) {
+        dst.position(offset);
+        dst.putInt(PageCodec.COMPRESSED | numAttributes);
+        dst.putInt(numTuples);
+
+        for (int c = 0; c < numAttributes; c++) {
+            int[] column = columns[c];
+            int forWidth = numTuples == 0 ? 0 : PageCodec.bitWidth(max[c] - min[c]);
+            int deltaWidth = numTuples < 2 ? 0 : PageCodec.bitWidth(maxDelta[c] - minDelta[c]);
+
+            if (numTuples > 0 && deltaWidth < forWidth) {
+                dst.put(PageCodec.DELTA).put((byte) deltaWidth).putInt(column[0]).putInt((int) minDelta[c]);
+                scratch[0] = 0;
+                for (int i = 1; i < numTuples; i++) {
+                    scratch[i] = (long) column[i] - column[i - 1] - minDelta[c];
+                }
+                PageCodec.pack(dst, scratch, 0, numTuples, deltaWidth);
+
+            } else {
+                int base = numTuples == 0 ? 0 : (int) min[c];
+                dst.put(PageCodec.FRAME_OF_REFERENCE).put((byte) forWidth).putInt(base).putInt(0);
+                for (int i = 0; i < numTuples; i++) {
+                    scratch[i] = (long) column[i] - base;
+                }
+                PageCodec.pack(dst, scratch, 0, numTuples, forWidth);
+            }
+        }
+    }
+
+    /**
+     * Empties the page
+     */
+    void clear() {
+        numTuples = 0;
+    }
+}
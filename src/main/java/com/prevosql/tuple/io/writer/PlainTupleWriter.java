@@ -1,6 +1,7 @@
 package com.prevosql.tuple.io.writer;
 
 import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
 import org.apache.log4j.Logger;
 
 import java.io.File;
@@ -41,9 +42,21 @@ class PlainTupleWriter implements TupleWriter {
         return true;
     }
 
+    @Override
+    public boolean writeBatch(TupleBatch batch) {
+        if (batch == null) {
+            return false;
+        }
+        for (int i = 0; i < batch.getNumSelected(); i++) {
+            pw.println(batch.getTuple(i));
+        }
+        return true;
+    }
+
     @Override
     public void reset() {
         try {
+            pw.close();
             fileWriter = new FileWriter(filename);
             pw = new PrintWriter(fileWriter);
 
@@ -62,4 +75,10 @@ class PlainTupleWriter implements TupleWriter {
             LOG.fatal(e);
         }
     }
+
+    @Override
+    public void close() {
+        // writes out anything not flushed yet; closing twice is harmless
+        pw.close();
+    }
 }
@@ -1,6 +1,7 @@
 package com.prevosql.tuple.io.writer;
 
 import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
 
 /**
  * Interface for dealing with tuple writers. All tuple writers
@@ -18,6 +19,14 @@ public interface TupleWriter {
      */
     boolean writeTuple(Tuple t);
 
+    /**
+     * Writes every selected tuple of a batch to the output stream
+     *
+     * @param batch Batch of tuples to write
+     * @return Whether or not all tuples were successfully written
+     */
+    boolean writeBatch(TupleBatch batch);
+
     /**
      * Resets output stream. Depending on implementation,
      * may not do anything.
@@ -29,4 +38,10 @@ public interface TupleWriter {
      * implementation, may not do anything.
      */
     void flush();
+
+    /**
+     * Flushes tuples written since the last flush and closes
+     * the output stream. The writer must not be used afterwards.
+     */
+    void close();
 }
@@ -1,13 +1,28 @@
 package com.prevosql.tuple.io.writer;
 
+import com.prevosql.tuple.io.PageLayout;
+
 public class TupleWriterFactory {
     private TupleWriterFactory() {
         throw new UnsupportedOperationException("TupleWriterFactory cannot be instantiated");
     }
 
     public static TupleWriter getWriter(String filename, int numAttributes) {
+        return getWriter(filename, numAttributes, PageLayout.ROW);
+    }
+
+    /**
+     * Returns a binary writer if numAttributes is positive, and a
+     * plain text writer otherwise
+     *
+     * @param filename File to write tuples to
+     * @param numAttributes Number of attributes of each tuple
+     * @param layout How tuples are laid out on binary pages
+     * @return a TupleWriter
+     */
+    public static TupleWriter getWriter(String filename, int numAttributes, PageLayout layout) {
         if (numAttributes > 0) {
-            return new BinaryTupleWriter(filename, numAttributes);
+            return new BinaryTupleWriter(filename, numAttributes, layout);
         } else {
             return new PlainTupleWriter(filename);
         }
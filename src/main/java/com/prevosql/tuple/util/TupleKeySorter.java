@@ -0,0 +1,150 @@
+package com.prevosql.tuple.util;
+
+import com.prevosql.tuple.Tuple;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * Sorts tuples on a list of key attributes, breaking ties on all of
+ * their attributes. The first key of every tuple is extracted once and
+ * radix sorted along with the tuple's position; only tuples that share
+ * their first key are compared attribute by attribute.
+ */
+public class TupleKeySorter implements Comparator<Tuple> {
+    private final int[] columns;
+
+    private static final int RADIX_THRESHOLD = 64;
+
+    /**
+     * @param columns Indices of the key attributes, in order of
+     *                precedence, or null to sort on all attributes
+     */
+    public TupleKeySorter(int[] columns) {
+        // ordering on the first attribute and then on all of them is the natural order
+        this.columns = columns == null ? new int[]{ 0 } : columns;
+    }
+
+    /**
+     * Compares two tuples on the key attributes, and then on all attributes
+     *
+     * @param o1 First tuple to compare
+     * @param o2 Second tuple to compare
+     * @return Negative if o1 comes first, positive if o2 comes first, 0 if they are equal
+     */
+    @Override
+    public int compare(Tuple o1, Tuple o2) {
+        for (int column : columns) {
+            int value = Integer.compare(o1.get(column), o2.get(column));
+            if (value != 0) {
+                return value;
+            }
+        }
+        return o1.compareTo(o2);
+    }
+
+    /**
+     * Sorts a list of tuples in place
+     *
+     * @param tuples Tuples to sort
+     */
+    public void sort(List<Tuple> tuples) {
+        Tuple[] array = tuples.toArray(new Tuple[0]);
+        sort(array, 0, array.length);
+        ListIterator<Tuple> it = tuples.listIterator();
+        for (Tuple t : array) {
+            it.next();
+            it.set(t);
+        }
+    }
+
+    /**
+     * Sorts a range of an array of tuples in place
+     *
+     * @param tuples Tuples to sort
+     * @param from Index of the first tuple to sort
+     * @param to Index after the last tuple to sort
+     */
+    public void sort(Tuple[] tuples, int from, int to) {
+        int n = to - from;
+        if (n < RADIX_THRESHOLD || columns.length == 0 || tuples[from].length() == 0) {
+            Arrays.sort(tuples, from, to, this);
+            return;
+        }
+
+        // flipping the sign bit makes the keys order as unsigned digits
+        int[] keys = new int[n];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = tuples[from + i].get(columns[0]) ^ Integer.MIN_VALUE;
+            order[i] = i;
+        }
+        radixSort(keys, order);
+
+        Tuple[] sorted = new Tuple[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = tuples[from + order[i]];
+        }
+
+        // tuples with the same first key still have to be ordered on the rest
+        int start = 0;
+        for (int i = 1; i <= n; i++) {
+            if (i == n || keys[i] != keys[start]) {
+                if (i - start > 1) {
+                    Arrays.sort(sorted, start, i, this);
+                }
+                start = i;
+            }
+        }
+        System.arraycopy(sorted, 0, tuples, from, n);
+    }
+
+    /**
+     * Sorts keys as unsigned ints with a least significant digit radix
+     * sort, one byte at a time, permuting order along with them. Bytes
+     * that are the same in every key are skipped.
+     *
+     * @param keys Keys to sort
+     * @param order Values to carry along with the keys
+     */
+    private static void radixSort(int[] keys, int[] order) {
+        int n = keys.length;
+        int[] srcKeys = keys;
+        int[] srcOrder = order;
+        int[] dstKeys = new int[n];
+        int[] dstOrder = new int[n];
+        int[] counts = new int[257];
+
+        for (int shift = 0; shift < 32; shift += 8) {
+            Arrays.fill(counts, 0);
+            for (int key : srcKeys) {
+                counts[((key >>> shift) & 0xFF) + 1]++;
+            }
+            if (counts[((srcKeys[0] >>> shift) & 0xFF) + 1] == n) {
+                continue;
+            }
+            for (int d = 0; d < 256; d++) {
+                counts[d + 1] += counts[d];
+            }
+            for (int i = 0; i < n; i++) {
+                int pos = counts[(srcKeys[i] >>> shift) & 0xFF]++;
+                dstKeys[pos] = srcKeys[i];
+                dstOrder[pos] = srcOrder[i];
+            }
+
+            int[] tmp = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tmp;
+            tmp = srcOrder;
+            srcOrder = dstOrder;
+            dstOrder = tmp;
+        }
+
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, n);
+            System.arraycopy(srcOrder, 0, order, 0, n);
+        }
+    }
+}
@@ -11,7 +11,6 @@ import org.apache.log4j.Logger;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -33,11 +32,13 @@ public class TupleSorter {
         while ((t = tr.readNextTuple()) != null) {
             list.add(t);
         }
-        list.sort(Comparator.comparing(Tuple::toString));
+        tr.close();
+        new TupleKeySorter(null).sort(list);
         TupleWriter tw = TupleWriterFactory.getWriter(outfile, list.get(0).length());
         for (Tuple tup : list) {
             tw.writeTuple(tup);
         }
+        tw.close();
         LOG.info("Wrote list of sorted tuples to disk");
     }
 
@@ -0,0 +1,96 @@
+package com.prevosql;
+
+import com.prevosql.operator.physical.PhysicalOperator;
+import com.prevosql.operator.physical.leaf.ScanPhysicalOperator;
+import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Helpers to read operators and tables in tests
+ */
+public class TestUtils {
+    private TestUtils() {
+    }
+
+    /**
+     * @return Tuples of the table in file order
+     */
+    public static List<Tuple> scan(String table) {
+        ScanPhysicalOperator scan = new ScanPhysicalOperator(table, true);
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple t;
+        while ((t = scan.getNextTuple()) != null) {
+            tuples.add(t);
+        }
+        scan.close();
+        return tuples;
+    }
+
+    /**
+     * Joins two tables on one column of each with a nested loop
+     *
+     * @return Joined tuples as sorted strings
+     */
+    public static List<String> join(String leftTable, String rightTable, int leftColumn, int rightColumn) {
+        List<Tuple> left = scan(leftTable);
+        List<Tuple> right = scan(rightTable);
+        List<String> joined = new ArrayList<>();
+        for (Tuple l : left) {
+            for (Tuple r : right) {
+                if (l.get(leftColumn) == r.get(rightColumn)) {
+                    joined.add(new Tuple(l, r).toString());
+                }
+            }
+        }
+        Collections.sort(joined);
+        return joined;
+    }
+
+    /**
+     * @return Tuples of the operator in the order it returns them
+     */
+    public static List<String> readAll(PhysicalOperator op) {
+        List<String> tuples = new ArrayList<>();
+        Tuple t;
+        while ((t = op.getNextTuple()) != null) {
+            tuples.add(t.toString());
+        }
+        return tuples;
+    }
+
+    /**
+     * @return Tuples of the operator as sorted strings
+     */
+    public static List<String> readSorted(PhysicalOperator op) {
+        List<String> tuples = readAll(op);
+        Collections.sort(tuples);
+        return tuples;
+    }
+
+    /**
+     * @return Tuples of the operator read in batches, in the order it returns them
+     */
+    public static List<String> readBatches(PhysicalOperator op) {
+        List<String> tuples = new ArrayList<>();
+        TupleBatch batch;
+        while ((batch = op.getNextBatch()) != null) {
+            for (int i = 0; i < batch.getNumSelected(); i++) {
+                tuples.add(batch.getTuple(i).toString());
+            }
+        }
+        return tuples;
+    }
+
+    /**
+     * @return Tuples of the operator read in batches, as sorted strings
+     */
+    public static List<String> readSortedBatches(PhysicalOperator op) {
+        List<String> tuples = readBatches(op);
+        Collections.sort(tuples);
+        return tuples;
+    }
+}
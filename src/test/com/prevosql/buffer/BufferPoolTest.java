@@ -0,0 +1,96 @@
+package com.prevosql.buffer;
+
+import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.io.writer.TupleWriter;
+import com.prevosql.tuple.io.writer.TupleWriterFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class BufferPoolTest {
+    private static final String OUT_FILE = "bufferpoolfile";
+    private static final int NUM_PAGES = 10;
+    private static final int TUPLES_PER_PAGE = (4096 - 8) / 4;
+
+    @Before
+    public void setUp() {
+        writeFile(0);
+    }
+
+    @After
+    public void tearDown() {
+        BufferPool.getInstance().invalidate(OUT_FILE);
+        new File(OUT_FILE).delete();
+    }
+
+    private void writeFile(int offset) {
+        TupleWriter tw = TupleWriterFactory.getWriter(OUT_FILE, 1);
+        for (int i = 0; i < NUM_PAGES * TUPLES_PER_PAGE; i++) {
+            tw.writeTuple(new Tuple(i + offset));
+        }
+        tw.flush();
+    }
+
+    @Test
+    public void testPinHitsCachedPage() {
+        BufferPool pool = new BufferPool(4);
+        ByteBuffer first = pool.pin(OUT_FILE, 2);
+        ByteBuffer second = pool.pin(OUT_FILE, 2);
+        assertEquals(1, pool.getNumMisses());
+        assertEquals(1, pool.getNumHits());
+        assertEquals(2 * TUPLES_PER_PAGE, first.getInt(8));
+
+        // views have their own positions
+        first.getInt();
+        assertEquals(0, second.position());
+        pool.unpin(first);
+        pool.unpin(second);
+        assertNull(pool.pin(OUT_FILE, NUM_PAGES + 1));
+    }
+
+    @Test
+    public void testEviction() {
+        BufferPool pool = new BufferPool(2);
+        ByteBuffer pinned = pool.pin(OUT_FILE, 0);
+        for (int p = 1; p < NUM_PAGES; p++) {
+            ByteBuffer page = pool.pin(OUT_FILE, p);
+            assertEquals(p * TUPLES_PER_PAGE, page.getInt(8));
+            pool.unpin(page);
+        }
+        // the pinned page is never evicted
+        assertEquals(0, pinned.getInt(8));
+        long misses = pool.getNumMisses();
+        pool.unpin(pool.pin(OUT_FILE, 0));
+        assertEquals(misses, pool.getNumMisses());
+
+        // with every frame pinned, pages are still readable
+        ByteBuffer other = pool.pin(OUT_FILE, 1);
+        ByteBuffer extra = pool.pin(OUT_FILE, 5);
+        assertNotNull(extra);
+        assertEquals(5 * TUPLES_PER_PAGE, extra.getInt(8));
+        pool.unpin(other);
+        pool.unpin(extra);
+        pool.unpin(pinned);
+    }
+
+    @Test
+    public void testInvalidate() {
+        BufferPool pool = BufferPool.getInstance();
+        ByteBuffer page = pool.pin(OUT_FILE, 3);
+        assertEquals(3 * TUPLES_PER_PAGE, page.getInt(8));
+        pool.unpin(page);
+
+        // rewriting the file drops its cached pages
+        writeFile(1000000);
+        page = pool.pin(OUT_FILE, 3);
+        assertEquals(3 * TUPLES_PER_PAGE + 1000000, page.getInt(8));
+        pool.unpin(page);
+    }
+}
@@ -0,0 +1,74 @@
+package com.prevosql.operator.physical;
+
+import com.prevosql.TestCaseInitializer;
+import com.prevosql.operator.physical.binary.join.BlockNestedLoopJoinPhysicalOperator;
+import com.prevosql.operator.physical.leaf.ScanPhysicalOperator;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.prevosql.TestUtils.join;
+import static com.prevosql.TestUtils.readSorted;
+import static com.prevosql.TestUtils.readSortedBatches;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class BlockNestedLoopJoinPhysicalOperatorTest {
+    @Before
+    public void setUp() {
+        TestCaseInitializer.initializeProject4(0, 1);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestCaseInitializer.tearDownProject4();
+    }
+
+    @Test(timeout = 120000)
+    public void testCompiledCondition() throws JSQLParserException {
+        // a page holds half of Reserves, so the inner relation is rescanned for a second outer block
+        String condition = "Reserves.G = Sailors.B AND Reserves.H < Sailors.C";
+        List<String> expected = readSorted(bnlj(condition));
+        List<String> fromJoin = new ArrayList<>();
+        for (String t : join("Reserves", "Sailors", 0, 1)) {
+            String[] values = t.split(",");
+            if (Integer.parseInt(values[1]) < Integer.parseInt(values[4])) {
+                fromJoin.add(t);
+            }
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(fromJoin, expected);
+
+        BlockNestedLoopJoinPhysicalOperator join = bnlj(condition);
+        assertEquals(expected, readSortedBatches(join));
+
+        join.reset();
+        assertEquals(expected, readSortedBatches(join));
+        join.close();
+    }
+
+    @Test(timeout = 120000)
+    public void testPerRowCondition() throws JSQLParserException {
+        // disjunctions are not compiled; the row visitor joins no pair on them, a condition that compiled nothing would join all
+        String condition = "Reserves.G = Sailors.B OR Reserves.H = Sailors.C";
+        List<String> expected = readSorted(bnlj(condition));
+
+        BlockNestedLoopJoinPhysicalOperator join = bnlj(condition);
+        assertEquals(expected, readSortedBatches(join));
+        join.close();
+    }
+
+    private static BlockNestedLoopJoinPhysicalOperator bnlj(String condition) throws JSQLParserException {
+        return new BlockNestedLoopJoinPhysicalOperator(
+                new ScanPhysicalOperator("Reserves"),
+                new ScanPhysicalOperator("Sailors"),
+                CCJSqlParserUtil.parseCondExpression(condition),
+                1);
+    }
+}
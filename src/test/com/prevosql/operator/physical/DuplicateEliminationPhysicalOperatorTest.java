@@ -1,29 +1,49 @@
 package com.prevosql.operator.physical;
 
 import com.prevosql.TestCaseInitializer;
+import com.prevosql.interpreter.query.Query;
 import com.prevosql.operator.physical.leaf.ScanPhysicalOperator;
 import com.prevosql.operator.physical.unary.DuplicateEliminationPhysicalOperator;
 import com.prevosql.operator.physical.unary.ProjectPhysicalOperator;
+import com.prevosql.operator.physical.unary.sort.ExternalSortPhysicalOperator;
 import com.prevosql.tuple.Tuple;
 import net.sf.jsqlparser.JSQLParserException;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
 import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.OrderByElement;
 import net.sf.jsqlparser.statement.select.PlainSelect;
 import net.sf.jsqlparser.statement.select.Select;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.prevosql.TestUtils.readAll;
+import static com.prevosql.TestUtils.scan;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class DuplicateEliminationPhysicalOperatorTest {
     @Before
     public void setUp() {
-        TestCaseInitializer.initialize(2);
+        TestCaseInitializer.initializeProject4(0, 1);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestCaseInitializer.tearDownProject4();
     }
 
     @Test
     public void testBasicDistinct() throws JSQLParserException {
+        TestCaseInitializer.initialize(2);
         String query = "SELECT DISTINCT G FROM Reserves;";
         Statement stmt = CCJSqlParserUtil.parse(query);
         Select select = (Select) stmt;
@@ -46,4 +66,114 @@ public class DuplicateEliminationPhysicalOperatorTest {
         res = d.getNextTuple();
         assertNull(res);
     }
-}
\ No newline at end of file
+
+    @Test(timeout = 60000)
+    public void testInMemoryDistinct() {
+        // Reserves holds a few whole duplicate rows and fits in the default sort buffer
+        DuplicateEliminationPhysicalOperator d = new DuplicateEliminationPhysicalOperator(
+                new ScanPhysicalOperator("Reserves"));
+
+        List<String> expected = distinct("Reserves", 0, 1);
+        assertTrue(expected.size() < scan("Reserves").size());
+        assertEquals(expected, readAll(d));
+
+        d.reset();
+        assertEquals(expected, readAll(d));
+        d.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testReplacementSelectionDistinct() throws JSQLParserException {
+        // a single thread writes the runs with replacement selection, few enough to be merged on the fly
+        DuplicateEliminationPhysicalOperator d = new DuplicateEliminationPhysicalOperator(
+                new ExternalSortPhysicalOperator(project("Sailors.B"), null, 5, true, 1));
+
+        assertEquals(distinct("Sailors", 1), readAll(d));
+        d.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testParallelBlockDistinct() throws JSQLParserException {
+        // blocks are sorted in slices on several threads and duplicates dropped as the slices are merged
+        DuplicateEliminationPhysicalOperator d = new DuplicateEliminationPhysicalOperator(
+                new ExternalSortPhysicalOperator(project("Sailors.B"), null, 5, true, 4));
+
+        assertEquals(distinct("Sailors", 1), readAll(d));
+        d.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testMergePassDistinct() throws JSQLParserException {
+        // a single page leaves a fan-in of two, so duplicates across runs meet in intermediate merges
+        for (int numThreads : new int[] {1, 4}) {
+            DuplicateEliminationPhysicalOperator d = new DuplicateEliminationPhysicalOperator(
+                    new ExternalSortPhysicalOperator(project("Sailors.B"), null, 1, true, numThreads));
+
+            List<String> expected = distinct("Sailors", 1);
+            assertEquals(expected, readAll(d));
+
+            d.reset();
+            assertEquals(expected, readAll(d));
+            d.close();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testSortedChildOnFewerColumns() {
+        // the child is sorted on G only, ties on H still leave duplicates next to each other
+        OrderByElement element = new OrderByElement();
+        element.setExpression(new Column(new Table("Reserves"), "G"));
+        DuplicateEliminationPhysicalOperator d = new DuplicateEliminationPhysicalOperator(
+                new ExternalSortPhysicalOperator(new ScanPhysicalOperator("Reserves"),
+                        Collections.singletonList(element), 1));
+
+        List<String> expected = distinct("Reserves", 0, 1);
+        assertEquals(expected, readAll(d));
+        d.close();
+
+        Query query = new Query("SELECT DISTINCT * FROM Reserves ORDER BY Reserves.G;");
+        assertEquals(expected, readAll(query.getRoot()));
+        query.getRoot().close();
+    }
+
+    /**
+     * @param column Column of Sailors to project on
+     * @return Projection of a scan of Sailors
+     */
+    private static PhysicalOperator project(String column) throws JSQLParserException {
+        PlainSelect ps = (PlainSelect) ((Select) CCJSqlParserUtil.parse("SELECT " + column + " FROM Sailors;")).getSelectBody();
+        return new ProjectPhysicalOperator(new ScanPhysicalOperator("Sailors"), ps.getSelectItems());
+    }
+
+    /**
+     * Projects a table on some of its columns and drops duplicates
+     *
+     * @return Distinct projected tuples in sorted order
+     */
+    private static List<String> distinct(String table, int... columns) {
+        List<int[]> rows = new ArrayList<>();
+        for (Tuple t : scan(table)) {
+            int[] row = new int[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                row[i] = t.get(columns[i]);
+            }
+            rows.add(row);
+        }
+        rows.sort((a, b) -> {
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] != b[i]) {
+                    return Integer.compare(a[i], b[i]);
+                }
+            }
+            return 0;
+        });
+        List<String> tuples = new ArrayList<>();
+        for (int[] row : rows) {
+            String t = new Tuple(row).toString();
+            if (tuples.isEmpty() || !tuples.get(tuples.size() - 1).equals(t)) {
+                tuples.add(t);
+            }
+        }
+        return tuples;
+    }
+}
@@ -0,0 +1,164 @@
+package com.prevosql.operator.physical;
+
+import com.prevosql.TestCaseInitializer;
+import com.prevosql.interpreter.query.plan.visitor.PhysicalPlanVisitor;
+import com.prevosql.operator.physical.binary.join.HybridHashJoinPhysicalOperator;
+import com.prevosql.operator.physical.leaf.ScanPhysicalOperator;
+import com.prevosql.tuple.Tuple;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.prevosql.TestUtils.join;
+import static com.prevosql.TestUtils.readSorted;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class HybridHashJoinPhysicalOperatorTest {
+    @Before
+    public void setUp() {
+        TestCaseInitializer.initializeProject4(0, 1);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestCaseInitializer.tearDownProject4();
+    }
+
+    @Test(timeout = 60000)
+    public void testInMemoryJoin() throws JSQLParserException {
+        HybridHashJoinPhysicalOperator join = new HybridHashJoinPhysicalOperator(
+                new ScanPhysicalOperator("Sailors", true),
+                new ScanPhysicalOperator("Reserves", true),
+                CCJSqlParserUtil.parseCondExpression("Sailors.A = Reserves.G"),
+                100, 1);
+
+        List<String> expected = join("Sailors", "Reserves", 0, 0);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, readSorted(join));
+        join.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testSpilledJoin() throws JSQLParserException {
+        // two pages hold a fraction of either spilled partition of Sailors, so they are joined in chunks
+        HybridHashJoinPhysicalOperator join = new HybridHashJoinPhysicalOperator(
+                new ScanPhysicalOperator("Reserves", true),
+                new ScanPhysicalOperator("Sailors", true),
+                CCJSqlParserUtil.parseCondExpression("Reserves.G = Sailors.A"),
+                2, 1);
+
+        List<String> expected = join("Reserves", "Sailors", 0, 0);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, readSorted(join));
+
+        join.reset();
+        assertEquals(expected, readSorted(join));
+        join.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testResidualCondition() throws JSQLParserException {
+        HybridHashJoinPhysicalOperator join = new HybridHashJoinPhysicalOperator(
+                new ScanPhysicalOperator("Reserves", true),
+                new ScanPhysicalOperator("Sailors", true),
+                CCJSqlParserUtil.parseCondExpression("Reserves.G = Sailors.A AND Reserves.H < Sailors.B"),
+                2, 1);
+
+        List<String> expected = new ArrayList<>();
+        for (String t : join("Reserves", "Sailors", 0, 0)) {
+            String[] values = t.split(",");
+            if (Integer.parseInt(values[1]) < Integer.parseInt(values[3])) {
+                expected.add(t);
+            }
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, readSorted(join));
+        join.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testJoinOnSeveralThreads() throws JSQLParserException {
+        HybridHashJoinPhysicalOperator join = new HybridHashJoinPhysicalOperator(
+                new ScanPhysicalOperator("Sailors", true),
+                new ScanPhysicalOperator("Reserves", true),
+                CCJSqlParserUtil.parseCondExpression("Sailors.A = Reserves.G"),
+                4, 4);
+
+        List<String> expected = join("Sailors", "Reserves", 0, 0);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, readSorted(join));
+
+        join.reset();
+        assertEquals(expected, readSorted(join));
+        join.close();
+    }
+
+    @Test(timeout = 60000, expected = IllegalStateException.class)
+    public void testPartitionerFailure() throws JSQLParserException {
+        HybridHashJoinPhysicalOperator join = new HybridHashJoinPhysicalOperator(
+                new FaultyPhysicalOperator(new ScanPhysicalOperator("Sailors", true), 5000, false),
+                new ScanPhysicalOperator("Reserves", true),
+                CCJSqlParserUtil.parseCondExpression("Sailors.A = Reserves.G"),
+                4, 4);
+        readSorted(join);
+    }
+
+    @Test(timeout = 60000, expected = IllegalStateException.class)
+    public void testWorkerFailure() throws JSQLParserException {
+        // truncated left tuples make the residual condition read past the joined tuple
+        HybridHashJoinPhysicalOperator join = new HybridHashJoinPhysicalOperator(
+                new FaultyPhysicalOperator(new ScanPhysicalOperator("Sailors", true), 0, true),
+                new ScanPhysicalOperator("Reserves", true),
+                CCJSqlParserUtil.parseCondExpression("Sailors.A = Reserves.G AND Sailors.B < Reserves.H"),
+                4, 4);
+        readSorted(join);
+    }
+
+    /**
+     * Passes the tuples of its child through, but fails on one of them
+     * or truncates all of them from there on
+     */
+    private static class FaultyPhysicalOperator extends PhysicalOperator {
+        private final PhysicalOperator child;
+        private final int faultAt;
+        private final boolean truncate;
+        private int numTuples = 0;
+
+        FaultyPhysicalOperator(PhysicalOperator child, int faultAt, boolean truncate) {
+            super(child.getTableName());
+            this.child = child;
+            this.faultAt = faultAt;
+            this.truncate = truncate;
+            this.numAttributes = child.getNumAttributes();
+        }
+
+        @Override
+        public Tuple getNextTuple() {
+            Tuple t = child.getNextTuple();
+            if (t == null || numTuples++ < faultAt) {
+                return t;
+            }
+            if (!truncate) {
+                throw new IllegalArgumentException("Injected failure");
+            }
+            return new Tuple(t.get(0));
+        }
+
+        @Override
+        public void reset() {
+            child.reset();
+            numTuples = 0;
+        }
+
+        @Override
+        public void accept(PhysicalPlanVisitor visitor) {
+        }
+    }
+}
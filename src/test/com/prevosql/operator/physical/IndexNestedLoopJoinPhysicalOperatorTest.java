@@ -0,0 +1,58 @@
+package com.prevosql.operator.physical;
+
+import com.prevosql.TestCaseInitializer;
+import com.prevosql.config.index.IndexInfo;
+import com.prevosql.operator.physical.binary.join.IndexNestedLoopJoinPhysicalOperator;
+import com.prevosql.operator.physical.leaf.ScanPhysicalOperator;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static com.prevosql.TestUtils.join;
+import static com.prevosql.TestUtils.readSorted;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class IndexNestedLoopJoinPhysicalOperatorTest {
+    // the index config only lists the indexes it builds, the test data comes with this one built
+    private static final IndexInfo SAILORS_A = new IndexInfo("Sailors", "A", 15, true);
+
+    @Before
+    public void setUp() {
+        TestCaseInitializer.initializeProject4(0, 1);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestCaseInitializer.tearDownProject4();
+    }
+
+    @Test(timeout = 60000)
+    public void testProbeSearchKey() throws JSQLParserException {
+        IndexNestedLoopJoinPhysicalOperator join = new IndexNestedLoopJoinPhysicalOperator(
+                new ScanPhysicalOperator("Reserves"),
+                CCJSqlParserUtil.parseCondExpression("Reserves.G = Sailors.A"),
+                null, SAILORS_A, 1);
+        List<String> expected = join("Reserves", "Sailors", 0, 0);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, readSorted(join));
+
+        join.reset();
+        assertEquals(expected, readSorted(join));
+        join.close();
+    }
+
+    @Test(timeout = 60000, expected = IllegalArgumentException.class)
+    public void testConditionWithoutSearchKey() throws JSQLParserException {
+        // fails while the plan is built, not on the first read
+        new IndexNestedLoopJoinPhysicalOperator(
+                new ScanPhysicalOperator("Reserves"),
+                CCJSqlParserUtil.parseCondExpression("Reserves.G = Sailors.B"),
+                null, SAILORS_A, 1);
+    }
+}
@@ -9,7 +9,12 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
+import static com.prevosql.TestUtils.readAll;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class IndexPhysicalOperatorTest {
@@ -47,4 +52,20 @@ public class IndexPhysicalOperatorTest {
 
         assertTrue(FileUtils.contentEquals(unclusteredOut, clusteredOut));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testClusteredResetAfterStop() {
+        IndexScanPhysicalOperator op = new IndexScanPhysicalOperator("Sailors", "A", 100, 200, true);
+        List<String> expected = readAll(op);
+        assertFalse(expected.isEmpty());
+
+        op.reset();
+        op.getNextTuple();
+        op.stop();
+        assertNull(op.getNextTuple());
+
+        op.reset();
+        assertEquals(expected, readAll(op));
+        op.close();
+    }
+}
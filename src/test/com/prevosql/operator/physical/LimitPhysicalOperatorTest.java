@@ -0,0 +1,118 @@
+package com.prevosql.operator.physical;
+
+import com.prevosql.TestCaseInitializer;
+import com.prevosql.interpreter.query.Query;
+import com.prevosql.operator.physical.leaf.ScanPhysicalOperator;
+import com.prevosql.operator.physical.unary.LimitPhysicalOperator;
+import com.prevosql.operator.physical.unary.sort.ExternalSortPhysicalOperator;
+import com.prevosql.operator.physical.unary.sort.TopNSortPhysicalOperator;
+import com.prevosql.tuple.Tuple;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.prevosql.TestUtils.readAll;
+import static com.prevosql.TestUtils.readBatches;
+import static com.prevosql.TestUtils.scan;
+import static org.junit.Assert.assertEquals;
+
+public class LimitPhysicalOperatorTest {
+    private List<String> sorted;
+
+    @Before
+    public void setUp() {
+        TestCaseInitializer.initializeProject4(0, 1);
+        // ties on G are broken by H
+        List<Tuple> tuples = scan("Reserves");
+        tuples.sort(Comparator.<Tuple>comparingInt(t -> t.get(0)).thenComparingInt(t -> t.get(1)));
+        sorted = new ArrayList<>();
+        for (Tuple t : tuples) {
+            sorted.add(t.toString());
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestCaseInitializer.tearDownProject4();
+    }
+
+    @Test
+    public void testLimit() {
+        checkQuery("LIMIT 10", 0, 10);
+    }
+
+    @Test
+    public void testLimitOffset() {
+        checkQuery("LIMIT 10 OFFSET 5", 5, 15);
+    }
+
+    @Test
+    public void testOffsetCommaLimit() {
+        checkQuery("LIMIT 5, 10", 5, 15);
+    }
+
+    @Test
+    public void testLimitAll() {
+        checkQuery("LIMIT ALL", 0, sorted.size());
+    }
+
+    @Test
+    public void testOffsetOnly() {
+        checkQuery("OFFSET 990", 990, sorted.size());
+    }
+
+    @Test
+    public void testOffsetPastBatches() {
+        // the offset skips whole batches and ends inside one
+        checkQuery("LIMIT 20 OFFSET 700", 700, 720);
+    }
+
+    @Test
+    public void testTopNMatchesSortTies() {
+        for (int n : new int[] {1, 7, 50}) {
+            LimitPhysicalOperator topN = new LimitPhysicalOperator(
+                    new TopNSortPhysicalOperator(new ScanPhysicalOperator("Reserves"), orderByG(), n), n, 0);
+            LimitPhysicalOperator sort = new LimitPhysicalOperator(
+                    new ExternalSortPhysicalOperator(new ScanPhysicalOperator("Reserves"), orderByG(), 10), n, 0);
+            List<String> expected = readAll(sort);
+            assertEquals(sorted.subList(0, n), expected);
+            assertEquals(expected, readAll(topN));
+            topN.close();
+            sort.close();
+        }
+    }
+
+    /**
+     * Runs a query ordered by G with a limit clause once a tuple at a
+     * time and once in batches
+     *
+     * @param clause LIMIT and OFFSET clause of the query
+     * @param from Index of the first expected tuple in sorted order
+     * @param to Index after the last expected tuple
+     */
+    private void checkQuery(String clause, int from, int to) {
+        String sql = "SELECT * FROM Reserves ORDER BY Reserves.G " + clause + ";";
+        Query tuples = new Query(sql);
+        assertEquals(sorted.subList(from, to), readAll(tuples.getRoot()));
+        tuples.getRoot().close();
+
+        Query batches = new Query(sql);
+        assertEquals(sorted.subList(from, to), readBatches(batches.getRoot()));
+        batches.getRoot().close();
+    }
+
+    private static List<OrderByElement> orderByG() {
+        OrderByElement element = new OrderByElement();
+        element.setExpression(new Column(new Table("Reserves"), "G"));
+        return Collections.singletonList(element);
+    }
+}
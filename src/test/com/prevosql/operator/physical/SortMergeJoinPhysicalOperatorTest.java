@@ -0,0 +1,108 @@
+package com.prevosql.operator.physical;
+
+import com.prevosql.TestCaseInitializer;
+import com.prevosql.config.catalog.DBCatalog;
+import com.prevosql.operator.physical.binary.join.SortMergeJoinPhysicalOperator;
+import com.prevosql.operator.physical.leaf.ScanPhysicalOperator;
+import com.prevosql.operator.physical.unary.sort.ExternalSortPhysicalOperator;
+import com.prevosql.operator.physical.unary.sort.SortPhysicalOperator;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.prevosql.TestUtils.join;
+import static com.prevosql.TestUtils.readSorted;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class SortMergeJoinPhysicalOperatorTest {
+    @Before
+    public void setUp() {
+        TestCaseInitializer.initializeProject4(0, 1);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestCaseInitializer.tearDownProject4();
+    }
+
+    @Test(timeout = 60000)
+    public void testDuplicateKeys() throws JSQLParserException {
+        // both Reserves.G and Sailors.B repeat, so groups of right tuples are joined with several left tuples
+        SortMergeJoinPhysicalOperator join = new SortMergeJoinPhysicalOperator(
+                sort("Reserves", "Reserves", "G"),
+                sort("Sailors", "Sailors", "B"),
+                CCJSqlParserUtil.parseCondExpression("Reserves.G = Sailors.B"),
+                100);
+
+        List<String> expected = join("Reserves", "Sailors", 0, 1);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, readSorted(join));
+        join.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testSpilledGroups() throws JSQLParserException {
+        // no buffer pages leave room for a single right tuple, so every group is reread from the right child
+        SortMergeJoinPhysicalOperator join = new SortMergeJoinPhysicalOperator(
+                sort("Reserves", "Reserves", "G"),
+                sort("Sailors", "Sailors", "B"),
+                CCJSqlParserUtil.parseCondExpression("Reserves.G = Sailors.B"),
+                0);
+
+        List<String> expected = join("Reserves", "Sailors", 0, 1);
+        assertEquals(expected, readSorted(join));
+
+        join.reset();
+        assertEquals(expected, readSorted(join));
+        join.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testAliasedKeys() throws JSQLParserException {
+        DBCatalog.getInstance().copyTable("S", "Sailors");
+        DBCatalog.getInstance().copyTable("B", "Boats");
+        // the children are sorted in the opposite order of the condition, so keys are paired by the sort order
+        SortMergeJoinPhysicalOperator join = new SortMergeJoinPhysicalOperator(
+                sort("Sailors", "S", "C", "A"),
+                sort("Boats", "B", "D", "E"),
+                CCJSqlParserUtil.parseCondExpression("B.E = S.A AND S.C = B.D"),
+                100);
+
+        List<String> expected = new ArrayList<>();
+        for (String t : join("Sailors", "Boats", 0, 1)) {
+            String[] values = t.split(",");
+            if (values[2].equals(values[3])) {
+                expected.add(t);
+            }
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, readSorted(join));
+        join.close();
+    }
+
+    /**
+     * @param tableName Relation to sort
+     * @param alias Name the columns are qualified by
+     * @param columns Columns to sort on
+     * @return External sort of a scan of the relation
+     */
+    private static SortPhysicalOperator sort(String tableName, String alias, String... columns) {
+        List<OrderByElement> elements = new ArrayList<>();
+        for (String column : columns) {
+            OrderByElement element = new OrderByElement();
+            element.setExpression(new Column(new Table(alias), column));
+            elements.add(element);
+        }
+        return new ExternalSortPhysicalOperator(new ScanPhysicalOperator(tableName), elements, 10);
+    }
+}
@@ -6,20 +6,37 @@ import com.prevosql.tuple.Tuple;
 import net.sf.jsqlparser.JSQLParserException;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.OrderByElement;
 import net.sf.jsqlparser.statement.select.PlainSelect;
 import net.sf.jsqlparser.statement.select.Select;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.prevosql.TestUtils.readAll;
+import static com.prevosql.TestUtils.scan;
+import static org.junit.Assert.assertEquals;
+
 public class ExternalSortPhysicalOperatorTest {
 
     @Before
     public void setUp() {
-        TestCaseInitializer.initialize(3);
+        TestCaseInitializer.initializeProject4(0, 1);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestCaseInitializer.tearDownProject4();
     }
 
     @Test
     public void basicTest() throws JSQLParserException {
+        TestCaseInitializer.initialize(3);
         ScanPhysicalOperator scan = new ScanPhysicalOperator("Sailors");
         Statement stmt = CCJSqlParserUtil.parse("SELECT * FROM Sailors ORDER BY Sailors.B");
         Select select = (Select) stmt;
@@ -28,4 +45,89 @@ public class ExternalSortPhysicalOperatorTest {
         Tuple t = exo.getNextTuple();
         System.out.println(t);
     }
-}
\ No newline at end of file
+
+    @Test(timeout = 60000)
+    public void testMoreRunsThanFanIn() throws JSQLParserException {
+        // a page holds 341 tuples of Sailors, so a few pages give many more runs than the fan-in and need merge passes
+        List<String> expected = sortedSailors();
+        for (int numPages : new int[] {1, 4}) {
+            for (int numThreads : new int[] {1, 4}) {
+                ExternalSortPhysicalOperator exo = new ExternalSortPhysicalOperator(
+                        new ScanPhysicalOperator("Sailors"), orderByB(), numPages, true, numThreads);
+                assertEquals(expected, readAll(exo));
+
+                exo.reset();
+                assertEquals(expected, readAll(exo));
+                exo.close();
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testResetIndexAfterPartialRead() throws JSQLParserException {
+        List<String> expected = sortedSailors();
+        for (int numPages : new int[] {1, 100}) {
+            ExternalSortPhysicalOperator exo = new ExternalSortPhysicalOperator(
+                    new ScanPhysicalOperator("Sailors"), orderByB(), numPages, true, 1);
+            // the first tuples are streamed from the final merge, the reset has to write it out first
+            for (int i = 0; i < 100; i++) {
+                assertEquals(expected.get(i), exo.getNextTuple().toString());
+            }
+
+            exo.reset(5000);
+            assertEquals(expected.subList(5000, expected.size()), readAll(exo));
+
+            exo.reset(42);
+            assertEquals(expected.get(42), exo.getNextTuple().toString());
+
+            exo.reset();
+            assertEquals(expected, readAll(exo));
+            exo.close();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testResetAfterStop() throws JSQLParserException {
+        List<String> expected = sortedSailors();
+        ExternalSortPhysicalOperator exo = new ExternalSortPhysicalOperator(
+                new ScanPhysicalOperator("Sailors"), orderByB(), 1, true, 1);
+        assertEquals(expected, readAll(exo));
+
+        // the final merge is still streamed when stopped
+        exo.stop();
+        exo.reset();
+        assertEquals(expected, readAll(exo));
+
+        // and has been written to the sorted file from here on
+        exo.reset(5);
+        exo.stop();
+        exo.reset();
+        assertEquals(expected, readAll(exo));
+
+        exo.stop();
+        exo.reset(5000);
+        assertEquals(expected.subList(5000, expected.size()), readAll(exo));
+        exo.close();
+    }
+
+    private static List<OrderByElement> orderByB() throws JSQLParserException {
+        Statement stmt = CCJSqlParserUtil.parse("SELECT * FROM Sailors ORDER BY Sailors.B");
+        return ((PlainSelect) ((Select) stmt).getSelectBody()).getOrderByElements();
+    }
+
+    /**
+     * @return Tuples of Sailors sorted on B, and then on all attributes
+     */
+    private static List<String> sortedSailors() {
+        List<Tuple> tuples = scan("Sailors");
+        tuples.sort(Comparator.<Tuple>comparingInt(s -> s.get(1))
+                .thenComparingInt(s -> s.get(0))
+                .thenComparingInt(s -> s.get(2)));
+
+        List<String> sorted = new ArrayList<>();
+        for (Tuple s : tuples) {
+            sorted.add(s.toString());
+        }
+        return sorted;
+    }
+}
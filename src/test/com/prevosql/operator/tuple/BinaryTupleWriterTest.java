@@ -1,6 +1,8 @@
 package com.prevosql.operator.tuple;
 
 import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.io.reader.TupleReader;
+import com.prevosql.tuple.io.reader.TupleReaderFactory;
 import com.prevosql.tuple.io.writer.TupleWriter;
 import com.prevosql.tuple.io.writer.TupleWriterFactory;
 import org.apache.log4j.Logger;
@@ -9,6 +11,10 @@ import org.junit.Test;
 
 import java.io.File;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 public class BinaryTupleWriterTest {
     private static final String OUT_FILE = "outfile";
     private static final Logger LOG = Logger.getLogger(BinaryTupleWriterTest.class);
@@ -28,4 +34,22 @@ public class BinaryTupleWriterTest {
         tw.writeTuple(t);
         tw.flush();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testWriteManyBuffers() {
+        TupleWriter tw = TupleWriterFactory.getWriter(OUT_FILE, 3);
+        int numTuples = 50000;
+        for (int i = 0; i < numTuples; i++) {
+            tw.writeTuple(new Tuple(i, -i, i % 7));
+        }
+        tw.flush();
+
+        // 340 tuples fit on a page
+        assertEquals(((numTuples + 339) / 340) * 4096, new File(OUT_FILE).length());
+        TupleReader tr = TupleReaderFactory.getBinaryReader(OUT_FILE, false);
+        for (int i = 0; i < numTuples; i++) {
+            assertTrue(new Tuple(i, -i, i % 7).equals(tr.readNextTuple()));
+        }
+        assertNull(tr.readNextTuple());
+    }
+}
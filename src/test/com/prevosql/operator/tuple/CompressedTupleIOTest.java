@@ -0,0 +1,76 @@
+package com.prevosql.operator.tuple;
+
+import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.io.PageLayout;
+import com.prevosql.tuple.io.reader.TupleReader;
+import com.prevosql.tuple.io.reader.TupleReaderFactory;
+import com.prevosql.tuple.io.writer.TupleWriter;
+import com.prevosql.tuple.io.writer.TupleWriterFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompressedTupleIOTest {
+    private static final String OUT_FILE = "compressedfile";
+    private static final int NUM_TUPLES = 30000;
+
+    @After
+    public void tearDown() {
+        new File(OUT_FILE).delete();
+    }
+
+    private Tuple expected(int i) {
+        // sorted, small-range, constant and full-range columns
+        return new Tuple(i, i % 100, 42, i % 5000 == 0 ? Integer.MIN_VALUE : Integer.MAX_VALUE - i);
+    }
+
+    private void writeFile() {
+        TupleWriter tw = TupleWriterFactory.getWriter(OUT_FILE, 4, PageLayout.COMPRESSED);
+        for (int i = 0; i < NUM_TUPLES; i++) {
+            tw.writeTuple(expected(i));
+        }
+        tw.flush();
+    }
+
+    @Test
+    public void testRoundTrip() {
+        writeFile();
+        assertTrue(new File(OUT_FILE).length() < (long) NUM_TUPLES * 16 / 2);
+
+        TupleReader[] readers = {
+                TupleReaderFactory.getBinaryReader(OUT_FILE, false),
+                TupleReaderFactory.getBinaryReader(OUT_FILE, true),
+                TupleReaderFactory.getSequentialReader(OUT_FILE, true)
+        };
+        for (TupleReader reader : readers) {
+            for (int i = 0; i < NUM_TUPLES; i++) {
+                assertTrue(expected(i).equals(reader.readNextTuple()));
+            }
+            assertNull(reader.readNextTuple());
+        }
+    }
+
+    @Test
+    public void testResetToIndex() {
+        writeFile();
+        TupleReader[] readers = {
+                TupleReaderFactory.getBinaryReader(OUT_FILE, false),
+                TupleReaderFactory.getBinaryReader(OUT_FILE, true),
+                TupleReaderFactory.getSequentialReader(OUT_FILE, true)
+        };
+        Random random = new Random(7);
+        for (TupleReader reader : readers) {
+            for (int n = 0; n < 50; n++) {
+                int index = random.nextInt(NUM_TUPLES - 1);
+                reader.reset(index);
+                assertTrue(expected(index).equals(reader.readNextTuple()));
+                assertTrue(expected(index + 1).equals(reader.readNextTuple()));
+            }
+        }
+    }
+}
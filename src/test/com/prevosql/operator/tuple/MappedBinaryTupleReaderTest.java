@@ -0,0 +1,57 @@
+package com.prevosql.operator.tuple;
+
+import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.io.reader.TupleReader;
+import com.prevosql.tuple.io.reader.TupleReaderFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MappedBinaryTupleReaderTest {
+    private static final String FILE = "src/test/resources/project4/input/db/data/Boats";
+    private TupleReader mapped;
+    private TupleReader paged;
+
+    @Before
+    public void setUp() {
+        mapped = TupleReaderFactory.getBinaryReader(FILE, true);
+        paged = TupleReaderFactory.getBinaryReader(FILE, false);
+    }
+
+    @Test
+    public void testReadEntireFile() {
+        Tuple expected;
+        while ((expected = paged.readNextTuple()) != null) {
+            assertTrue(expected.equals(mapped.readNextTuple()));
+        }
+        assertNull(mapped.readNextTuple());
+    }
+
+    @Test
+    public void testResetToIndex() {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple t;
+        while ((t = mapped.readNextTuple()) != null) {
+            tuples.add(t);
+        }
+
+        // jump around, crossing page boundaries in both directions
+        int[] indices = {tuples.size() - 1, 0, 400, 340, 339, 1};
+        for (int index : indices) {
+            mapped.reset(index);
+            paged.reset(index);
+            assertTrue(tuples.get(index).equals(mapped.readNextTuple()));
+            assertTrue(tuples.get(index).equals(paged.readNextTuple()));
+        }
+
+        mapped.reset(tuples.size());
+        assertNull(mapped.readNextTuple());
+        assertEquals(3, mapped.getNumAttributes());
+    }
+}
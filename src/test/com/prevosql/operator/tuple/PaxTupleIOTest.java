@@ -0,0 +1,132 @@
+package com.prevosql.operator.tuple;
+
+import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
+import com.prevosql.tuple.io.PageCodec;
+import com.prevosql.tuple.io.PageLayout;
+import com.prevosql.tuple.io.reader.PageDecoder;
+import com.prevosql.tuple.io.reader.TupleReader;
+import com.prevosql.tuple.io.reader.TupleReaderFactory;
+import com.prevosql.tuple.io.writer.TupleWriter;
+import com.prevosql.tuple.io.writer.TupleWriterFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PaxTupleIOTest {
+    private static final String OUT_FILE = "paxfile";
+    private static final int NUM_TUPLES = 5000;
+
+    @After
+    public void tearDown() {
+        new File(OUT_FILE).delete();
+    }
+
+    private Tuple expected(int i) {
+        return new Tuple(i, -i, i % 7);
+    }
+
+    private void writeFile(PageLayout layout) {
+        TupleWriter tw = TupleWriterFactory.getWriter(OUT_FILE, 3, layout);
+        for (int i = 0; i < NUM_TUPLES; i++) {
+            tw.writeTuple(expected(i));
+        }
+        tw.flush();
+    }
+
+    private TupleReader[] readers() {
+        return new TupleReader[] {
+                TupleReaderFactory.getBinaryReader(OUT_FILE, false),
+                TupleReaderFactory.getBinaryReader(OUT_FILE, true),
+                TupleReaderFactory.getSequentialReader(OUT_FILE, true)
+        };
+    }
+
+    @Test
+    public void testRoundTrip() {
+        writeFile(PageLayout.PAX);
+        for (TupleReader reader : readers()) {
+            assertEquals(3, reader.getNumAttributes());
+            for (int i = 0; i < NUM_TUPLES; i++) {
+                assertTrue(expected(i).equals(reader.readNextTuple()));
+            }
+            assertNull(reader.readNextTuple());
+        }
+    }
+
+    @Test
+    public void testResetToIndex() {
+        writeFile(PageLayout.PAX);
+        Random random = new Random(11);
+        for (TupleReader reader : readers()) {
+            for (int n = 0; n < 50; n++) {
+                int index = random.nextInt(NUM_TUPLES - 1);
+                reader.reset(index);
+                assertTrue(expected(index).equals(reader.readNextTuple()));
+                assertTrue(expected(index + 1).equals(reader.readNextTuple()));
+            }
+        }
+    }
+
+    @Test
+    public void testProjectedBatches() {
+        for (PageLayout layout : PageLayout.values()) {
+            writeFile(layout);
+            for (TupleReader reader : readers()) {
+                reader.setProjection(new int[] {1});
+                TupleBatch batch = new TupleBatch(3, 100);
+                int i = 0;
+                while (reader.readNextBatch(batch)) {
+                    for (int k = 0; k < batch.getNumSelected(); k++, i++) {
+                        int row = batch.getSelection()[k];
+                        assertEquals(-i, batch.get(1, row));
+                        assertEquals(0, batch.get(0, row));
+                        assertEquals(0, batch.get(2, row));
+                    }
+                    batch.clear();
+                }
+                assertEquals(NUM_TUPLES, i);
+                assertFalse(reader.readNextBatch(batch));
+            }
+        }
+    }
+
+    @Test
+    public void testBatchThenTuple() {
+        writeFile(PageLayout.PAX);
+        for (TupleReader reader : readers()) {
+            TupleBatch batch = new TupleBatch(3, 100);
+            assertTrue(reader.readNextBatch(batch));
+            for (int i = 0; i < 100; i++) {
+                assertTrue(expected(i).equals(batch.getTuple(i)));
+            }
+            // the rest of the page is turned into rows once a tuple is read on its own
+            assertTrue(expected(100).equals(reader.readNextTuple()));
+            batch.clear();
+            assertTrue(reader.readNextBatch(batch));
+            assertTrue(expected(101).equals(batch.getTuple(0)));
+        }
+    }
+
+    @Test
+    public void testReadSingleTuple() throws IOException {
+        writeFile(PageLayout.PAX);
+        int capacity = PageCodec.getCapacity(3);
+        ByteBuffer page = ByteBuffer.allocate(PageCodec.PAGE_SIZE);
+        try (RandomAccessFile raf = new RandomAccessFile(OUT_FILE, "r")) {
+            raf.getChannel().read(page, PageCodec.PAGE_SIZE);
+        }
+        PageDecoder decoder = new PageDecoder();
+        assertTrue(expected(capacity + 5).equals(decoder.readTuple(page, 0, 5)));
+    }
+}
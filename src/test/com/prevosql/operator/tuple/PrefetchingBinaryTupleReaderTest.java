@@ -0,0 +1,62 @@
+package com.prevosql.operator.tuple;
+
+import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
+import com.prevosql.tuple.io.reader.TupleReader;
+import com.prevosql.tuple.io.reader.TupleReaderFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PrefetchingBinaryTupleReaderTest {
+    private static final String FILE = "src/test/resources/project4/input/db/data/Boats";
+    private TupleReader prefetching;
+    private TupleReader paged;
+
+    @Before
+    public void setUp() {
+        prefetching = TupleReaderFactory.getSequentialReader(FILE, true);
+        paged = TupleReaderFactory.getBinaryReader(FILE, false);
+    }
+
+    @Test
+    public void testReadEntireFile() {
+        Tuple expected;
+        while ((expected = paged.readNextTuple()) != null) {
+            assertTrue(expected.equals(prefetching.readNextTuple()));
+        }
+        assertNull(prefetching.readNextTuple());
+    }
+
+    @Test
+    public void testResetDuringScan() {
+        Tuple first = prefetching.readNextTuple();
+        for (int i = 0; i < 1000; i++) {
+            prefetching.readNextTuple();
+        }
+        prefetching.reset();
+        assertTrue(first.equals(prefetching.readNextTuple()));
+
+        paged.reset(700);
+        prefetching.reset(700);
+        assertTrue(paged.readNextTuple().equals(prefetching.readNextTuple()));
+    }
+
+    @Test
+    public void testReadBatches() {
+        TupleBatch batch = new TupleBatch(prefetching.getNumAttributes(), 1000);
+        int numTuples = 0;
+        while (prefetching.readNextBatch(batch)) {
+            for (int i = 0; i < batch.getNumSelected(); i++) {
+                assertTrue(paged.readNextTuple().equals(batch.getTuple(i)));
+            }
+            numTuples += batch.getNumSelected();
+            batch.clear();
+        }
+        assertNull(paged.readNextTuple());
+        assertEquals(10000, numTuples);
+    }
+}
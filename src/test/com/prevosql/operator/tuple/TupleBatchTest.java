@@ -0,0 +1,42 @@
+package com.prevosql.operator.tuple;
+
+import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TupleBatchTest {
+    @Test
+    public void testAddAndGetTuple() {
+        TupleBatch batch = new TupleBatch(3, 4);
+        batch.add(new Tuple(1, 2, 3));
+        batch.add(new Tuple(4), new Tuple(5, 6));
+        assertEquals(2, batch.size());
+        assertEquals(2, batch.getNumSelected());
+        assertTrue(batch.getTuple(1).equals(new Tuple(4, 5, 6)));
+        assertEquals(5, batch.get(1, 1));
+    }
+
+    @Test
+    public void testSelectionAndProject() {
+        TupleBatch batch = new TupleBatch(2, 4);
+        for (int i = 0; i < 4; i++) {
+            batch.add(new Tuple(i, i * 10));
+        }
+        assertTrue(batch.isFull());
+
+        batch.getSelection()[0] = 1;
+        batch.getSelection()[1] = 3;
+        batch.setNumSelected(2);
+        assertTrue(batch.getTuple(1).equals(new Tuple(3, 30)));
+
+        TupleBatch projected = batch.project(new int[]{1});
+        assertEquals(2, projected.getNumSelected());
+        assertTrue(projected.getTuple(0).equals(new Tuple(10)));
+
+        batch.clear();
+        assertEquals(0, batch.size());
+    }
+}
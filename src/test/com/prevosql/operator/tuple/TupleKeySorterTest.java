@@ -0,0 +1,57 @@
+package com.prevosql.operator.tuple;
+
+import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.util.TupleKeySorter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TupleKeySorterTest {
+    private static final int NUM_TUPLES = 5000;
+
+    private static List<Tuple> randomTuples(int bound) {
+        Random random = new Random(42);
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < NUM_TUPLES; i++) {
+            tuples.add(new Tuple(random.nextInt(bound) - bound / 2, random.nextInt(bound), random.nextInt()));
+        }
+        return tuples;
+    }
+
+    private static void assertSameOrder(List<Tuple> expected, List<Tuple> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue(expected.get(i).equals(actual.get(i)));
+        }
+    }
+
+    @Test
+    public void testSortOnKeys() {
+        for (int bound : new int[]{ 10, 1000, Integer.MAX_VALUE }) {
+            List<Tuple> tuples = randomTuples(bound);
+            List<Tuple> expected = new ArrayList<>(tuples);
+            expected.sort(Comparator.<Tuple>comparingInt(t -> t.get(1))
+                    .thenComparingInt(t -> t.get(0))
+                    .thenComparing(Comparator.naturalOrder()));
+
+            new TupleKeySorter(new int[]{ 1, 0 }).sort(tuples);
+            assertSameOrder(expected, tuples);
+        }
+    }
+
+    @Test
+    public void testNaturalOrder() {
+        List<Tuple> tuples = randomTuples(100);
+        List<Tuple> expected = new ArrayList<>(tuples);
+        expected.sort(Comparator.naturalOrder());
+
+        new TupleKeySorter(null).sort(tuples);
+        assertSameOrder(expected, tuples);
+    }
+}
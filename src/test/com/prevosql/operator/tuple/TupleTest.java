@@ -0,0 +1,37 @@
+package com.prevosql.operator.tuple;
+
+import com.prevosql.tuple.Tuple;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TupleTest {
+    @Test
+    public void testParseFromString() {
+        Tuple t = new Tuple("12,143,196");
+        assertEquals(3, t.length());
+        assertEquals(143, t.get(1));
+        assertTrue(t.equals(new Tuple(12, 143, 196)));
+    }
+
+    @Test
+    public void testToString() {
+        Tuple t = new Tuple(-1, 0, 42);
+        assertEquals("-1,0,42", t.toString());
+    }
+
+    @Test
+    public void testConcatenate() {
+        Tuple t = new Tuple(new Tuple(1, 2), new Tuple(3));
+        assertTrue(t.equals(new Tuple(1, 2, 3)));
+    }
+
+    @Test
+    public void testCompareTo() {
+        assertTrue(new Tuple(1, 5).compareTo(new Tuple(2, 0)) < 0);
+        assertTrue(new Tuple(2, 0).compareTo(new Tuple(1, 5)) > 0);
+        assertTrue(new Tuple(10, 2).compareTo(new Tuple(9, 20)) > 0);
+        assertEquals(0, new Tuple(3, 3).compareTo(new Tuple(3, 3)));
+    }
+}
@@ -0,0 +1,85 @@
+package com.prevosql.operator.tuple;
+
+import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.io.ZoneMap;
+import com.prevosql.tuple.io.reader.TupleReader;
+import com.prevosql.tuple.io.reader.TupleReaderFactory;
+import com.prevosql.tuple.io.writer.TupleWriter;
+import com.prevosql.tuple.io.writer.TupleWriterFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ZoneMapTest {
+    private static final String OUT_FILE = "zonemapfile";
+    private static final int NUM_TUPLES = 10000;
+    private static final int TUPLES_PER_PAGE = (4096 - 8) / 8;
+
+    @Before
+    public void setUp() {
+        TupleWriter tw = TupleWriterFactory.getWriter(OUT_FILE, 2);
+        for (int i = 0; i < NUM_TUPLES; i++) {
+            tw.writeTuple(new Tuple(i, i % 10));
+        }
+        tw.flush();
+    }
+
+    @After
+    public void tearDown() {
+        new File(OUT_FILE).delete();
+        new File(ZoneMap.getSidecarName(OUT_FILE)).delete();
+    }
+
+    @Test
+    public void testBounds() {
+        ZoneMap zoneMap = TupleReaderFactory.getZoneMap(OUT_FILE);
+        assertNotNull(zoneMap);
+        assertEquals(NUM_TUPLES, zoneMap.getNumTuples());
+        assertEquals(0, zoneMap.getMin(0));
+        assertEquals(NUM_TUPLES - 1, zoneMap.getMax(0));
+        assertEquals(9, zoneMap.getMax(1));
+        assertTrue(zoneMap.mayContain(1, 0, TUPLES_PER_PAGE, TUPLES_PER_PAGE));
+        assertFalse(zoneMap.mayContain(0, 0, TUPLES_PER_PAGE, TUPLES_PER_PAGE));
+
+        // the sidecar is reused until the file changes
+        assertTrue(new File(ZoneMap.getSidecarName(OUT_FILE)).exists());
+        ZoneMap reread = ZoneMap.read(OUT_FILE);
+        assertNotNull(reread);
+        assertEquals(zoneMap.getNumPages(), reread.getNumPages());
+    }
+
+    @Test
+    public void testPageSkipping() {
+        ZoneMap zoneMap = TupleReaderFactory.getZoneMap(OUT_FILE);
+        int low = 3 * TUPLES_PER_PAGE + 5;
+        int high = 4 * TUPLES_PER_PAGE + 5;
+
+        TupleReader[] readers = {
+                TupleReaderFactory.getBinaryReader(OUT_FILE, false),
+                TupleReaderFactory.getBinaryReader(OUT_FILE, true),
+                TupleReaderFactory.getSequentialReader(OUT_FILE, true)
+        };
+        for (TupleReader reader : readers) {
+            reader.setPageFilter(zoneMap.pageFilter(0, low, high));
+            // only pages 3 and 4 are read
+            for (int i = 3 * TUPLES_PER_PAGE; i < 5 * TUPLES_PER_PAGE; i++) {
+                assertTrue(new Tuple(i, i % 10).equals(reader.readNextTuple()));
+            }
+            assertNull(reader.readNextTuple());
+
+            // reset(int) ignores the filter, reset() brings it back
+            reader.reset(0);
+            assertTrue(new Tuple(0, 0).equals(reader.readNextTuple()));
+            reader.reset();
+            assertEquals(3 * TUPLES_PER_PAGE, reader.readNextTuple().get(0));
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.prevosql.operator.visitor;
+
+import com.prevosql.TestCaseInitializer;
+import com.prevosql.config.catalog.Catalog;
+import com.prevosql.operator.physical.binary.join.BlockNestedLoopJoinPhysicalOperator;
+import com.prevosql.operator.physical.leaf.ScanPhysicalOperator;
+import com.prevosql.tuple.Tuple;
+import com.prevosql.tuple.TupleBatch;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiPredicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class BatchExpressionVisitorTest {
+    private static final int NUM_ROWS = 100;
+
+    @Before
+    public void setUp() {
+        TestCaseInitializer.initializeProject4(0, 1);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestCaseInitializer.tearDownProject4();
+    }
+
+    @Test
+    public void testColumnAgainstConstant() throws JSQLParserException {
+        checkFilter("Reserves.G > 3", (g, h) -> g > 3);
+        // constants on the left flip the comparison
+        checkFilter("Reserves.G > 3 AND 5 >= Reserves.H AND Reserves.G <> 7",
+                (g, h) -> g > 3 && h <= 5 && g != 7);
+        checkFilter("2 = Reserves.H AND Reserves.G <= 4", (g, h) -> h == 2 && g <= 4);
+        checkFilter("1 < 0 AND Reserves.G = 1", (g, h) -> false);
+    }
+
+    @Test
+    public void testColumnAgainstColumn() throws JSQLParserException {
+        checkFilter("Reserves.G = Reserves.H", (g, h) -> g.equals(h));
+        checkFilter("Reserves.G < Reserves.H AND Reserves.H <= 4", (g, h) -> g < h && h <= 4);
+        checkFilter("Reserves.H >= Reserves.G AND Reserves.G <> Reserves.H", (g, h) -> h > g);
+    }
+
+    @Test
+    public void testPerRowFallback() throws JSQLParserException {
+        // rows are kept exactly when the tuple path keeps them
+        for (String condition : new String[] {
+                "Reserves.G = 1 OR Reserves.H = 2",
+                "Reserves.G > 2 AND (Reserves.G = 1 OR Reserves.H = 2)",
+                "(Reserves.G < Reserves.H) AND Reserves.H <> 3"}) {
+            Expression e = CCJSqlParserUtil.parseCondExpression(condition);
+            checkFilter(condition, (g, h) -> {
+                PhysicalOperatorExpressionVisitor ov = new PhysicalOperatorExpressionVisitor(new Tuple(g, h));
+                e.accept(ov);
+                return ov.getResult();
+            });
+        }
+
+        // arithmetic operands are left to the rows too instead of being compiled as constants
+        TupleBatch batch = new TupleBatch(2, 1);
+        new BatchExpressionVisitor(CCJSqlParserUtil.parseCondExpression("Reserves.G + 1 = Reserves.H")).filter(batch);
+        assertEquals(0, batch.getNumSelected());
+    }
+
+    @Test
+    public void testInnerRow() throws JSQLParserException {
+        BlockNestedLoopJoinPhysicalOperator join = new BlockNestedLoopJoinPhysicalOperator(
+                new ScanPhysicalOperator("Reserves"), new ScanPhysicalOperator("Sailors"), null, 1);
+        join.createJoinedTable();
+        Catalog catalog = join.getCatalog();
+
+        TupleBatch inner = new TupleBatch(3, 10);
+        for (int i = 0; i < 10; i++) {
+            inner.add(new Tuple(i, 9 - i, i % 3));
+        }
+        // inner columns are compiled as constants for the duration of the inner row
+        checkJoinFilter(catalog, inner, "Reserves.G = Sailors.A AND Sailors.B > Reserves.H",
+                (outer, s) -> outer.get(0) == s.get(0) && s.get(1) > outer.get(1));
+        checkJoinFilter(catalog, inner, "Sailors.C < Reserves.H AND 3 <= Sailors.A",
+                (outer, s) -> s.get(2) < outer.get(1) && s.get(0) >= 3);
+        checkJoinFilter(catalog, inner, "Reserves.G <> Sailors.C AND Sailors.B <= Reserves.H",
+                (outer, s) -> outer.get(0) != s.get(2) && s.get(1) <= outer.get(1));
+        join.close();
+    }
+
+    /**
+     * Filters a batch of Reserves tuples twice, once in full and once
+     * starting from a selection of every other row, and compares both
+     * with the expected rows
+     *
+     * @param condition Condition to filter on
+     * @param expected Whether a row of Reserves should be kept
+     */
+    private static void checkFilter(String condition, BiPredicate<Integer, Integer> expected) throws JSQLParserException {
+        BatchExpressionVisitor visitor = new BatchExpressionVisitor(CCJSqlParserUtil.parseCondExpression(condition));
+
+        TupleBatch batch = reserves();
+        visitor.filter(batch);
+        assertEquals(condition, select(batch, expected, 1), selected(batch));
+
+        batch = reserves();
+        int[] rows = batch.getSelection();
+        int n = 0;
+        for (int i = 0; i < NUM_ROWS; i += 2) {
+            rows[n++] = i;
+        }
+        batch.setNumSelected(n);
+        visitor.filter(batch);
+        assertEquals(condition, select(batch, expected, 2), selected(batch));
+    }
+
+    /**
+     * Filters a batch of Reserves tuples against every row of an inner
+     * batch and compares the matches with the expected rows
+     */
+    private static void checkJoinFilter(Catalog catalog, TupleBatch inner, String condition,
+                                        BiPredicate<Tuple, Tuple> expected) throws JSQLParserException {
+        BatchExpressionVisitor visitor = new BatchExpressionVisitor(CCJSqlParserUtil.parseCondExpression(condition), catalog);
+        TupleBatch outer = reserves();
+        int[] out = new int[NUM_ROWS];
+        int numMatched = 0;
+        for (int r = 0; r < inner.getNumSelected(); r++) {
+            Tuple s = inner.getTuple(r);
+            List<Integer> rows = new ArrayList<>();
+            for (int i = 0; i < NUM_ROWS; i++) {
+                if (expected.test(outer.getTuple(i), s)) {
+                    rows.add(i);
+                }
+            }
+
+            int n = visitor.filter(outer, inner, r, out);
+            List<Integer> matched = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                matched.add(out[i]);
+            }
+            assertEquals(condition, rows, matched);
+            numMatched += n;
+        }
+        assertFalse(condition, numMatched == 0);
+        // the outer selection is left as it was
+        assertEquals(NUM_ROWS, outer.getNumSelected());
+    }
+
+    /**
+     * @return Batch of Reserves tuples that cover every combination of small values
+     */
+    private static TupleBatch reserves() {
+        TupleBatch batch = new TupleBatch(2, NUM_ROWS);
+        for (int i = 0; i < NUM_ROWS; i++) {
+            batch.add(new Tuple(i % 10, i / 10));
+        }
+        return batch;
+    }
+
+    /**
+     * @return Rows of the batch, every step-th one, that satisfy the predicate
+     */
+    private static List<Integer> select(TupleBatch batch, BiPredicate<Integer, Integer> expected, int step) {
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < NUM_ROWS; i += step) {
+            if (expected.test(batch.get(0, i), batch.get(1, i))) {
+                rows.add(i);
+            }
+        }
+        return rows;
+    }
+
+    private static List<Integer> selected(TupleBatch batch) {
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < batch.getNumSelected(); i++) {
+            rows.add(batch.getSelection()[i]);
+        }
+        return rows;
+    }
+}